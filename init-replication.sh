@@ -0,0 +1,5 @@
+#!/bin/bash
+set -e
+
+# Lets the postgres-replica service of docker-compose.dev.yml stream from this server
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -50,6 +50,26 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Runs sync jobs submitted through the admin API. One thread per sync source; the sync locks already prevent
+     * more than one job per source. Jobs use the sync connection pool.
+     */
+    @Bean(name = "syncTaskExecutor")
+    public TaskExecutor syncTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(4);
+        executor.setThreadNamePrefix("Sync-Job-");
+        executor.setTaskDecorator(WorkloadRoutingDataSource::onSyncPool);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+
+        log.info("Configured sync job executor");
+
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return (throwable, method, objects) -> {
@@ -1,39 +1,111 @@
 package com.techstore.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
 
-import java.util.Arrays;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Caffeine caches behind {@code @Cacheable}, each configured under {@code app.cache.caches.<name>}; settings a cache
+ * leaves out come from {@code app.cache.defaults}. A cache is bounded either by entry count ({@code maximum-size}) or
+ * by weight ({@code maximum-weight}), where a cached page, list or map weighs as many as the elements it holds and any
+ * other value weighs 1.
+ * <p>
+ * Every cache records statistics and is registered with Micrometer as {@code cache.gets}, {@code cache.puts},
+ * {@code cache.evictions} and friends, tagged {@code cache}; {@code /admin/caches} shows them live.
+ */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CacheConfig.CacheProperties.class)
 public class CacheConfig {
 
+    private static final String CACHE_MANAGER_NAME = "cacheManager";
+
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(CacheProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // only the configured caches exist; a typo in a cache name fails instead of creating an unbounded cache
+        cacheManager.setCacheNames(properties.getCaches().keySet());
 
-        cacheManager.setCacheNames(Arrays.asList(
-                "products",
-                "manufacturers",
-                "parameters",
-                "parameterOptions",
-                "categoriesByExternalId",
-                "manufacturersByExternalId",
-                "parametersByCategory",
-                "productsByCategory"
-        ));
-
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .maximumSize(10000)
-                .expireAfterWrite(1, TimeUnit.HOURS)
-                .expireAfterAccess(30, TimeUnit.MINUTES)
-                .recordStats());
+        properties.getCaches().forEach((name, spec) -> {
+            Cache<Object, Object> cache = builder(spec.withDefaults(properties.getDefaults())).build();
+            cacheManager.registerCustomCache(name, cache);
+            meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, name,
+                    Tags.of("cache.manager", CACHE_MANAGER_NAME)));
+        });
         return cacheManager;
     }
-}
\ No newline at end of file
+
+    private static Caffeine<Object, Object> builder(CacheSpec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (spec.getMaximumWeight() != null) {
+            builder.maximumWeight(spec.getMaximumWeight()).weigher((key, value) -> weigh(value));
+        } else if (spec.getMaximumSize() != null) {
+            builder.maximumSize(spec.getMaximumSize());
+        }
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(spec.getExpireAfterAccess());
+        }
+        return builder;
+    }
+
+    private static int weigh(Object value) {
+        int weight = 1;
+        if (value instanceof Slice<?> slice) {
+            weight = slice.getNumberOfElements();
+        } else if (value instanceof Collection<?> collection) {
+            weight = collection.size();
+        } else if (value instanceof Map<?, ?> map) {
+            weight = map.size();
+        }
+        return Math.max(weight, 1);
+    }
+
+    @ConfigurationProperties(prefix = "app.cache")
+    @Data
+    public static class CacheProperties {
+        private CacheSpec defaults = new CacheSpec();
+        private Map<String, CacheSpec> caches = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class CacheSpec {
+        private Long maximumSize;
+        private Long maximumWeight;
+        private Duration expireAfterWrite;
+        private Duration expireAfterAccess;
+
+        /**
+         * This spec with unset values taken from {@code defaults}. A cache with its own bound keeps only that bound.
+         */
+        CacheSpec withDefaults(CacheSpec defaults) {
+            CacheSpec merged = new CacheSpec();
+            boolean ownBound = maximumSize != null || maximumWeight != null;
+            merged.setMaximumSize(ownBound ? maximumSize : defaults.getMaximumSize());
+            merged.setMaximumWeight(ownBound ? maximumWeight : defaults.getMaximumWeight());
+            merged.setExpireAfterWrite(expireAfterWrite != null ? expireAfterWrite : defaults.getExpireAfterWrite());
+            merged.setExpireAfterAccess(
+                    expireAfterAccess != null ? expireAfterAccess : defaults.getExpireAfterAccess());
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.techstore.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records, per request, how long it held database connections ({@code http.server.requests.db.hold}) and how many it
+ * took ({@code http.server.requests.db.connections}), tagged like {@code http.server.requests} by method and URI
+ * pattern. Requests that never touch the database are not recorded.
+ * <p>
+ * Runs first in the filter chain, so the user lookup in the security filters counts. Compared with the request
+ * duration, the hold time shows how much of a request keeps a pool connection busy.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ConnectionHoldMetricsFilter extends OncePerRequestFilter {
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ConnectionHoldTracker.Hold hold = ConnectionHoldTracker.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ConnectionHoldTracker.stop();
+            if (hold.getConnections() > 0) {
+                record(request, hold);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, ConnectionHoldTracker.Hold hold) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : UNKNOWN_URI;
+
+        Timer.builder("http.server.requests.db.hold")
+                .description("Time a request held database connections")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(hold.getHeldNanos(), TimeUnit.NANOSECONDS);
+
+        DistributionSummary.builder("http.server.requests.db.connections")
+                .description("Database connections taken by a request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(hold.getConnections());
+    }
+}
@@ -0,0 +1,90 @@
+package com.techstore.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures how long a thread holds JDBC connections between {@link #start()} and {@link #stop()}: from the moment a
+ * connection is taken from the pool until it is closed, summed over all connections taken in between.
+ * <p>
+ * {@link ConnectionHoldMetricsFilter} brackets each HTTP request with it; connections taken outside a bracket, e.g. by
+ * syncs, are not wrapped at all.
+ */
+public final class ConnectionHoldTracker {
+
+    private static final ThreadLocal<Hold> CURRENT = new ThreadLocal<>();
+
+    private ConnectionHoldTracker() {
+    }
+
+    /**
+     * {@code target} with every connection taken while tracking is active reporting its hold time.
+     */
+    public static DataSource tracking(DataSource target) {
+        return new DelegatingDataSource(target) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return track(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return track(super.getConnection(username, password));
+            }
+        };
+    }
+
+    static Hold start() {
+        Hold hold = new Hold();
+        CURRENT.set(hold);
+        return hold;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    private static Connection track(Connection connection) {
+        Hold hold = CURRENT.get();
+        if (hold == null) {
+            return connection;
+        }
+
+        long taken = System.nanoTime();
+        hold.connections++;
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionHoldTracker.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                        hold.heldNanos += System.nanoTime() - taken;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    /**
+     * Hold time and connection count of one bracket; only touched by the thread that started it.
+     */
+    static class Hold {
+        private long heldNanos;
+        private int connections;
+
+        long getHeldNanos() {
+            return heldNanos;
+        }
+
+        int getConnections() {
+            return connections;
+        }
+    }
+}
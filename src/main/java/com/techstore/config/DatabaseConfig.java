@@ -2,47 +2,130 @@ package com.techstore.config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
-//@Configuration
+/**
+ * Two Hikari pools on the same database, one for web requests and one for syncs and other batch jobs, behind a
+ * {@link WorkloadRoutingDataSource}. JPA, {@code JdbcTemplate} and the transaction manager all use the routing
+ * {@code DataSource}, so there is still a single persistence unit.
+ * <p>
+ * Connection settings come from {@code spring.datasource}; pool sizing, timeouts and the per-pool
+ * {@code statement_timeout} from {@code app.datasource.web} and {@code app.datasource.sync}. Both pools publish the
+ * {@code hikaricp.connections.*} meters tagged with their pool name.
+ * <p>
+ * With {@code app.datasource.replica.enabled}, read-only web transactions ({@code @Transactional(readOnly = true)})
+ * run on the read replicas listed in {@code app.datasource.replica.urls}, see {@link ReplicaRoutingDataSource}. The
+ * routing {@code DataSource} is then wrapped in a {@link LazyConnectionDataSourceProxy}, which takes the physical
+ * connection at the first statement, after the transaction has marked it read-only. Sync work keeps reading from the
+ * primary, since it reads what it has just written.
+ * <p>
+ * Connections taken during a web request report how long they were held, see {@link ConnectionHoldMetricsFilter}.
+ */
+@Configuration
 public class DatabaseConfig {
 
-    @Value("${spring.datasource.url}")
-    private String jdbcUrl;
+    @Bean
+    @ConfigurationProperties("app.datasource.web")
+    public HikariDataSource webDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("web");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.sync")
+    public HikariDataSource syncDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("sync");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+    public ReplicaRoutingDataSource replicaDataSource(
+            @Qualifier("webDataSource") DataSource webDataSource,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${app.datasource.replica.urls:}") List<String> urls,
+            @Value("${app.datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${app.datasource.replica.password:${spring.datasource.password}}") String password,
+            @Value("${app.datasource.replica.max-lag-seconds:10}") double maxLagSeconds,
+            @Value("${app.datasource.replica.check-interval-ms:5000}") long checkIntervalMs) {
 
-    @Value("${spring.datasource.username}")
-    private String username;
+        HikariConfig template = Binder.get(environment)
+                .bindOrCreate("app.datasource.replica.pool", HikariConfig.class);
 
-    @Value("${spring.datasource.password}")
-    private String password;
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (String url : urls) {
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            template.copyStateTo(config);
+            config.setJdbcUrl(url.trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setPoolName("replica-" + (pools.size() + 1));
+            config.setReadOnly(true);
+            // start even when a replica is down; the lag check keeps it out of rotation until it answers
+            config.setInitializationFailTimeout(-1);
+            meterRegistry.ifAvailable(config::setMetricRegistry);
+            pools.add(new HikariDataSource(config));
+        }
+        if (pools.isEmpty()) {
+            throw new IllegalStateException("app.datasource.replica.enabled is set but app.datasource.replica.urls "
+                    + "lists no replica");
+        }
+
+        ReplicaRoutingDataSource dataSource =
+                new ReplicaRoutingDataSource(pools, webDataSource, maxLagSeconds, checkIntervalMs);
+        meterRegistry.ifAvailable(dataSource::bindMetrics);
+        return dataSource;
+    }
 
     @Bean
-    @Profile("!test")
-    public DataSource dataSource() {
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl(jdbcUrl);
-        config.setUsername(username);
-        config.setPassword(password);
-        config.setDriverClassName("org.postgresql.Driver");
-
-        // Connection pool settings
-        config.setMaximumPoolSize(20);
-        config.setMinimumIdle(5);
-        config.setIdleTimeout(300000);
-        config.setConnectionTimeout(20000);
-        config.setMaxLifetime(1200000);
-
-        // Performance settings
-        config.setLeakDetectionThreshold(60000);
-        config.addDataSourceProperty("cachePrepStmts", "true");
-        config.addDataSourceProperty("prepStmtCacheSize", "250");
-        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-
-        return new HikariDataSource(config);
+    @Primary
+    public DataSource dataSource(@Qualifier("webDataSource") DataSource webDataSource,
+                                 @Qualifier("syncDataSource") DataSource syncDataSource,
+                                 ObjectProvider<ReplicaRoutingDataSource> replicaDataSource) {
+        DataSource dataSource = ConnectionHoldTracker.tracking(workloadRouting(webDataSource, syncDataSource));
+
+        ReplicaRoutingDataSource replicas = replicaDataSource.getIfAvailable();
+        if (replicas == null) {
+            return dataSource;
+        }
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(dataSource);
+        proxy.setReadOnlyDataSource(ConnectionHoldTracker.tracking(workloadRouting(replicas, syncDataSource)));
+        return proxy;
+    }
+
+    private static WorkloadRoutingDataSource workloadRouting(DataSource webDataSource, DataSource syncDataSource) {
+        WorkloadRoutingDataSource dataSource = new WorkloadRoutingDataSource();
+        dataSource.setTargetDataSources(Map.of(
+                WorkloadRoutingDataSource.Workload.WEB, webDataSource,
+                WorkloadRoutingDataSource.Workload.SYNC, syncDataSource));
+        dataSource.setDefaultTargetDataSource(webDataSource);
+        dataSource.afterPropertiesSet();
+        return dataSource;
     }
-}
\ No newline at end of file
+}
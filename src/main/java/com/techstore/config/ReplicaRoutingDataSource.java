@@ -0,0 +1,188 @@
+package com.techstore.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code DataSource} for read-only transactions: hands out connections from the replica pools in turn, skipping
+ * replicas that are unreachable or lag behind the primary by more than {@code maxLagSeconds}, and falls back to the
+ * primary when no replica qualifies.
+ * <p>
+ * Replication lag is measured on a dedicated thread every {@code checkIntervalMs}, not on the shared scheduler, which a
+ * running sync can block for an hour. A replica that has replayed the primary's WAL up to the position read from the
+ * primary just before counts as current, however old its last replayed transaction is; otherwise the lag is the age
+ * of that transaction. Comparing with the primary rather than with what the replica received keeps a replica whose
+ * WAL receiver is disconnected from looking current. A server that is not in recovery has no lag, so two independent
+ * databases with the same schema work for local testing. Until the first check completes, reads go to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final String PRIMARY_LSN_QUERY = "SELECT pg_current_wal_lsn()::text";
+
+    /**
+     * Bound to the primary's current WAL position, or {@code null} when it could not be read, in which case only the
+     * age of the last replayed transaction counts.
+     */
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() THEN 0
+                       WHEN pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn) THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())::float8,
+                                     'Infinity'::float8)
+                   END
+            """;
+
+    private final List<Replica> replicas;
+    private final DataSource primary;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService lagChecker;
+
+    public ReplicaRoutingDataSource(List<HikariDataSource> replicaPools, DataSource primary,
+                                    double maxLagSeconds, long checkIntervalMs) {
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        this.primary = primary;
+        this.maxLagSeconds = maxLagSeconds;
+
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Replica-Lag-Check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lagChecker.scheduleWithFixedDelay(this::checkReplicas, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publishes {@code db.replica.lag} (seconds, -1 while unreachable) and {@code db.replica.available} per replica
+     * pool.
+     */
+    public void bindMetrics(MeterRegistry meterRegistry) {
+        for (Replica replica : replicas) {
+            String pool = replica.pool.getPoolName();
+            Gauge.builder("db.replica.lag", replica, r -> r.reachable ? r.lagSeconds : -1)
+                    .tag("pool", pool)
+                    .baseUnit("seconds")
+                    .description("Replication lag of the read replica")
+                    .register(meterRegistry);
+            Gauge.builder("db.replica.available", replica, r -> isUsable(r) ? 1 : 0)
+                    .tag("pool", pool)
+                    .description("Whether read-only transactions are routed to the replica")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!isUsable(replica)) {
+                continue;
+            }
+            try {
+                return replica.pool.getConnection();
+            } catch (SQLException e) {
+                // the next check decides when it comes back
+                replica.reachable = false;
+                log.warn("Replica {} is unavailable, reading from the next one: {}",
+                        replica.pool.getPoolName(), e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // the replica pools only hold connections of their configured user
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public void close() {
+        lagChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    // ===========================================
+    // LAG CHECK
+    // ===========================================
+
+    private boolean isUsable(Replica replica) {
+        return replica.reachable && replica.lagSeconds <= maxLagSeconds;
+    }
+
+    private void checkReplicas() {
+        String primaryLsn = readPrimaryLsn();
+
+        for (Replica replica : replicas) {
+            boolean wasUsable = isUsable(replica);
+            try (Connection connection = replica.pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_QUERY)) {
+                statement.setString(1, primaryLsn);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    replica.lagSeconds = resultSet.getDouble(1);
+                }
+                replica.reachable = true;
+            } catch (Exception e) {
+                replica.reachable = false;
+                log.debug("Replica {} lag check failed: {}", replica.pool.getPoolName(), e.getMessage());
+            }
+
+            boolean usable = isUsable(replica);
+            if (usable != wasUsable || !replica.checked) {
+                if (usable) {
+                    log.info("Replica {} is serving reads (lag {}s)", replica.pool.getPoolName(),
+                            String.format("%.1f", replica.lagSeconds));
+                } else if (replica.reachable) {
+                    log.warn("Replica {} lags {}s behind the primary, not reading from it",
+                            replica.pool.getPoolName(), String.format("%.1f", replica.lagSeconds));
+                } else {
+                    log.warn("Replica {} is unreachable, not reading from it", replica.pool.getPoolName());
+                }
+            }
+            replica.checked = true;
+        }
+    }
+
+    private String readPrimaryLsn() {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(PRIMARY_LSN_QUERY)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        } catch (Exception e) {
+            log.debug("Reading the primary WAL position failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static class Replica {
+        private final HikariDataSource pool;
+        private volatile boolean reachable;
+        private volatile double lagSeconds;
+        private volatile boolean checked;
+
+        Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+    }
+}
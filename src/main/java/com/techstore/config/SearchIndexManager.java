@@ -31,7 +31,8 @@ public class SearchIndexManager {
             return;
         }
 
-        try {
+        // index builds can outlast the web pool's statement_timeout
+        try (WorkloadRoutingDataSource.Scope syncPool = WorkloadRoutingDataSource.useSyncPool()) {
             log.info("Starting performance search indexes initialization...");
             long startTime = System.currentTimeMillis();
 
@@ -44,7 +45,7 @@ public class SearchIndexManager {
 
             createFilteringIndexes();
             createCompositeIndexes();
-            updateTableStatistics();
+            // statistics are refreshed after syncs that change enough of the catalog (ProductChangeRefresher)
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("Performance search indexes initialization completed in {}ms", duration);
@@ -280,7 +281,7 @@ public class SearchIndexManager {
 
     public void rebuildPerformanceIndexes() {
         log.info("Rebuilding performance search indexes...");
-        try {
+        try (WorkloadRoutingDataSource.Scope syncPool = WorkloadRoutingDataSource.useSyncPool()) {
             dropPerformanceIndexes();
 
             if (enableTrigram) {
@@ -90,6 +90,10 @@ public class SecurityConfig {
                         // Swagger/OpenAPI endpoints
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
 
+                        // Admin syncs, sync jobs and cache statistics, before the admin panel's permitAll
+                        .requestMatchers("/admin/sync/**", "/admin/tekra/sync/**", "/admin/vali/sync/**",
+                                "/admin/caches/**").hasAnyRole("ADMIN", "SUPER_ADMIN")
+
                         // Admin panel static files
                         .requestMatchers("/admin/**").permitAll()
                         .requestMatchers("/static/**", "/css/**", "/js/**", "/images/**").permitAll()
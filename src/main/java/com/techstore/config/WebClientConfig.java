@@ -54,8 +54,10 @@ public class WebClientConfig {
                 .evictInBackground(Duration.ofSeconds(120))
                 .build();
 
+        // compress(true) sends Accept-Encoding: gzip and inflates responses transparently
         HttpClient httpClient = HttpClient.create(connectionProvider)
                 .responseTimeout(Duration.ofMinutes(5))
+                .compress(true)
                 .keepAlive(true);
 
         return WebClient.builder()
@@ -0,0 +1,70 @@
+package com.techstore.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Application {@code DataSource} that hands out connections from the web pool or the sync pool, depending on the
+ * workload of the current thread.
+ * <p>
+ * Everything runs on the web pool unless it is inside {@link #useSyncPool()} or wrapped with {@link #onSyncPool}:
+ * scheduled syncs, admin sync jobs and other batch work mark themselves, so a long sync transaction can only ever
+ * exhaust its own pool. The pool is chosen when a connection is taken, i.e. at the start of a transaction; a
+ * transaction stays on the connection it started with.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Workload {
+        WEB, SYNC
+    }
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Routes the current thread to the sync pool until the returned scope is closed.
+     */
+    public static Scope useSyncPool() {
+        Workload previous = CURRENT.get();
+        CURRENT.set(Workload.SYNC);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * {@code task} running on the sync pool, whichever thread executes it.
+     */
+    public static Runnable onSyncPool(Runnable task) {
+        return () -> {
+            try (Scope ignored = useSyncPool()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * {@code task} running on the pool of the calling thread; for work a sync hands to its own threads.
+     */
+    public static Runnable onCurrentPool(Runnable task) {
+        return CURRENT.get() == Workload.SYNC ? onSyncPool(task) : task;
+    }
+
+    public static Workload currentWorkload() {
+        Workload workload = CURRENT.get();
+        return workload != null ? workload : Workload.WEB;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentWorkload();
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
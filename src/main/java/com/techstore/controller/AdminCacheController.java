@@ -0,0 +1,32 @@
+package com.techstore.controller;
+
+import com.techstore.dto.response.CacheStatsResponseDto;
+import com.techstore.service.CacheStatsService;
+import io.swagger.v3.oas.annotations.Hidden;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Hidden
+@RestController
+@RequestMapping("/admin/caches")
+@RequiredArgsConstructor
+public class AdminCacheController {
+
+    private final CacheStatsService cacheStatsService;
+
+    @GetMapping
+    public ResponseEntity<List<CacheStatsResponseDto>> getCaches() {
+        return ResponseEntity.ok(cacheStatsService.getAllStats());
+    }
+
+    @GetMapping("/{name}")
+    public ResponseEntity<CacheStatsResponseDto> getCache(@PathVariable String name) {
+        return ResponseEntity.ok(cacheStatsService.getStats(name));
+    }
+}
@@ -0,0 +1,46 @@
+package com.techstore.controller;
+
+import com.techstore.dto.response.SyncJobResponseDto;
+import com.techstore.dto.response.SyncLockResponseDto;
+import com.techstore.service.sync.SyncJobService;
+import com.techstore.service.sync.SyncLockService;
+import io.swagger.v3.oas.annotations.Hidden;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Hidden
+@RestController
+@RequestMapping("/admin/sync")
+@RequiredArgsConstructor
+public class AdminSyncController {
+
+    private final SyncLockService syncLockService;
+    private final SyncJobService syncJobService;
+
+    @GetMapping("/locks")
+    public ResponseEntity<List<SyncLockResponseDto>> getLocks() {
+        return ResponseEntity.ok(syncLockService.getLocks());
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<SyncJobResponseDto>> getJobs() {
+        return ResponseEntity.ok(syncJobService.getJobs());
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<SyncJobResponseDto> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(syncJobService.getJob(id));
+    }
+
+    @PostMapping("/jobs/{id}/cancel")
+    public ResponseEntity<SyncJobResponseDto> cancelJob(@PathVariable String id) {
+        return ResponseEntity.ok(syncJobService.cancel(id));
+    }
+}
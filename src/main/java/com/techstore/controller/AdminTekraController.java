@@ -1,5 +1,8 @@
 package com.techstore.controller;
 
+import com.techstore.dto.response.SyncJobResponseDto;
+import com.techstore.service.sync.SyncJobService;
+import com.techstore.service.sync.SyncLockService;
 import com.techstore.service.sync.TekraSyncService;
 import io.swagger.v3.oas.annotations.Hidden;
 import lombok.RequiredArgsConstructor;
@@ -7,10 +10,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Map;
-
+/**
+ * Starts Tekra sync jobs. Every endpoint returns 202 with the job right away; progress is available under
+ * {@code /admin/sync/jobs/{id}}. A sync that is already running answers 409.
+ */
 @Hidden
 @RestController
 @RequestMapping("/admin/tekra/sync")
@@ -20,100 +26,29 @@ import java.util.Map;
 public class AdminTekraController {
 
     private final TekraSyncService tekraSyncService;
+    private final SyncJobService syncJobService;
 
     @PostMapping(value = "/categories")
-    public ResponseEntity<Map<String, Object>> syncCategories() {
-        try {
-            long startTime = System.currentTimeMillis();
-            tekraSyncService.syncTekraCategories();
-            long duration = System.currentTimeMillis() - startTime;
-
-            Map<String, Object> response = Map.of(
-                    "success", true,
-                    "message", "Tekra categories synchronization completed",
-                    "duration", duration + "ms"
-            );
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error during Tekra categories sync", e);
-            Map<String, Object> response = Map.of(
-                    "success", false,
-                    "message", "Error: " + e.getMessage()
-            );
-            return ResponseEntity.status(500).body(response);
-        }
+    public ResponseEntity<SyncJobResponseDto> syncCategories() {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.TEKRA, "TEKRA_CATEGORIES",
+                tekraSyncService::syncTekraCategories));
     }
 
     @PostMapping(value = "/manufacturers")
-    public ResponseEntity<Map<String, Object>> syncManufacturers() {
-        try {
-            long startTime = System.currentTimeMillis();
-            tekraSyncService.syncTekraManufacturers();
-            long duration = System.currentTimeMillis() - startTime;
-
-            Map<String, Object> response = Map.of(
-                    "success", true,
-                    "message", "Tekra manufacturers synchronization completed",
-                    "duration", duration + "ms"
-            );
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error during Tekra manufacturers sync", e);
-            Map<String, Object> response = Map.of(
-                    "success", false,
-                    "message", "Error: " + e.getMessage()
-            );
-            return ResponseEntity.status(500).body(response);
-        }
+    public ResponseEntity<SyncJobResponseDto> syncManufacturers() {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.TEKRA, "TEKRA_MANUFACTURERS",
+                tekraSyncService::syncTekraManufacturers));
     }
 
     @PostMapping(value = "/parameters")
-    public ResponseEntity<Map<String, Object>> syncParameters() {
-        try {
-            long startTime = System.currentTimeMillis();
-            tekraSyncService.syncTekraParameters();
-            long duration = System.currentTimeMillis() - startTime;
-
-            Map<String, Object> response = Map.of(
-                    "success", true,
-                    "message", "Tekra parameters synchronization completed",
-                    "duration", duration + "ms"
-            );
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error during Tekra parameters sync", e);
-            Map<String, Object> response = Map.of(
-                    "success", false,
-                    "message", "Error: " + e.getMessage()
-            );
-            return ResponseEntity.status(500).body(response);
-        }
+    public ResponseEntity<SyncJobResponseDto> syncParameters() {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.TEKRA, "TEKRA_PARAMETERS",
+                tekraSyncService::syncTekraParameters));
     }
 
     @PostMapping(value = "/products")
-    public ResponseEntity<Map<String, Object>> syncProducts() {
-        try {
-            long startTime = System.currentTimeMillis();
-            tekraSyncService.syncTekraProducts();
-            long duration = System.currentTimeMillis() - startTime;
-
-            Map<String, Object> response = Map.of(
-                    "success", true,
-                    "message", "Tekra products synchronization completed",
-                    "duration", duration + "ms"
-            );
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error during Tekra products sync", e);
-            Map<String, Object> response = Map.of(
-                    "success", false,
-                    "message", "Error: " + e.getMessage()
-            );
-            return ResponseEntity.status(500).body(response);
-        }
+    public ResponseEntity<SyncJobResponseDto> syncProducts(@RequestParam(defaultValue = "false") boolean resume) {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.TEKRA, "TEKRA_PRODUCTS",
+                () -> tekraSyncService.syncTekraProducts(resume)));
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package com.techstore.controller;
 
+import com.techstore.dto.response.SyncJobResponseDto;
+import com.techstore.service.sync.SyncJobService;
+import com.techstore.service.sync.SyncLockService;
 import com.techstore.service.sync.ValiSyncService;
 import io.swagger.v3.oas.annotations.Hidden;
 import lombok.RequiredArgsConstructor;
@@ -8,8 +11,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+/**
+ * Starts Vali sync jobs. Every endpoint returns 202 with the job right away; progress is available under
+ * {@code /admin/sync/jobs/{id}}. A sync that is already running answers 409.
+ */
 @Hidden
 @RestController
 @RequestMapping("/admin/vali/sync")
@@ -19,52 +27,40 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminValiController {
 
     private final ValiSyncService valiSyncService;
+    private final SyncJobService syncJobService;
 
     @PostMapping("/categories")
 //    @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> syncCategories() {
-        try {
-            valiSyncService.syncCategories();
-            return ResponseEntity.ok("Categories synchronization completed successfully");
-        } catch (Exception e) {
-            log.error("Error during manual categories synchronization", e);
-            return ResponseEntity.internalServerError().body("Error during synchronization: " + e.getMessage());
-        }
+    public ResponseEntity<SyncJobResponseDto> syncCategories() {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.VALI, "CATEGORIES",
+                valiSyncService::syncCategories));
     }
 
     @PostMapping("/manufacturers")
 //    @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> syncManufacturers() {
-        try {
-            valiSyncService.syncManufacturers();
-            return ResponseEntity.ok("Manufacturers synchronization completed successfully");
-        } catch (Exception e) {
-            log.error("Error during manual manufacturers synchronization", e);
-            return ResponseEntity.internalServerError().body("Error during synchronization: " + e.getMessage());
-        }
+    public ResponseEntity<SyncJobResponseDto> syncManufacturers() {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.VALI, "MANUFACTURERS",
+                valiSyncService::syncManufacturers));
     }
 
     @PostMapping("/parameters")
 //    @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> syncParameters() {
-        try {
-            valiSyncService.syncParameters();
-            return ResponseEntity.ok("Parameters synchronization completed successfully");
-        } catch (Exception e) {
-            log.error("Error during manual parameters synchronization", e);
-            return ResponseEntity.internalServerError().body("Error during synchronization: " + e.getMessage());
-        }
+    public ResponseEntity<SyncJobResponseDto> syncParameters() {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.VALI, "PARAMETERS",
+                valiSyncService::syncParameters));
     }
 
     @PostMapping("/products")
 //    @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> syncProducts() {
-        try {
-            valiSyncService.syncProducts();
-            return ResponseEntity.ok("Products synchronization completed successfully");
-        } catch (Exception e) {
-            log.error("Error during manual products synchronization", e);
-            return ResponseEntity.internalServerError().body("Error during synchronization: " + e.getMessage());
-        }
+    public ResponseEntity<SyncJobResponseDto> syncProducts(@RequestParam(defaultValue = "false") boolean resume) {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.VALI, "PRODUCTS",
+                () -> valiSyncService.syncProducts(resume)));
     }
-}
\ No newline at end of file
+
+    @PostMapping("/products/full")
+//    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SyncJobResponseDto> syncProductsFull() {
+        return ResponseEntity.accepted().body(syncJobService.submit(SyncLockService.VALI, "PRODUCTS_FULL",
+                valiSyncService::syncProductsFull));
+    }
+}
@@ -1,6 +1,8 @@
 package com.techstore.controller;
 
+import com.techstore.service.FileUploadService;
 import com.techstore.service.ProductService;
+import com.techstore.service.S3Service;
 import io.swagger.v3.oas.annotations.Hidden;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -11,10 +13,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 @Hidden
 @RestController
@@ -24,13 +29,15 @@ import java.net.URL;
 public class ImageProxyController {
 
     private final ProductService productService;
+    private final S3Service s3Service;
+    private final FileUploadService fileUploadService;
 
     @GetMapping("/product/{productId}/primary")
     public void getPrimaryImage(@PathVariable Long productId, HttpServletResponse response) {
         try {
             String originalImageUrl = productService.getOriginalImageUrl(productId, true, 0);
             if (originalImageUrl != null) {
-                proxyImage(originalImageUrl, response);
+                serveImage(originalImageUrl, response);
             } else {
                 response.setStatus(HttpStatus.NOT_FOUND.value());
             }
@@ -46,7 +53,7 @@ public class ImageProxyController {
         try {
             String originalImageUrl = productService.getOriginalImageUrl(productId, false, index);
             if (originalImageUrl != null) {
-                proxyImage(originalImageUrl, response);
+                serveImage(originalImageUrl, response);
             } else {
                 response.setStatus(HttpStatus.NOT_FOUND.value());
             }
@@ -56,6 +63,37 @@ public class ImageProxyController {
         }
     }
 
+    /**
+     * Images mirrored to our bucket are redirected to, locally stored ones are streamed, and anything else is
+     * still proxied from the supplier. Cache lifetimes match the proxy's, since these URLs follow the product's
+     * current image.
+     */
+    private void serveImage(String imageUrl, HttpServletResponse response) throws IOException {
+        if (s3Service.isBucketUrl(imageUrl)) {
+            response.setHeader("Cache-Control", "public, max-age=3600");
+            response.sendRedirect(imageUrl);
+        } else if (!imageUrl.startsWith("http")) {
+            serveLocalImage(imageUrl, response);
+        } else {
+            proxyImage(imageUrl, response);
+        }
+    }
+
+    private void serveLocalImage(String filePath, HttpServletResponse response) throws IOException {
+        Path file = fileUploadService.resolveFile(filePath);
+        if (file == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        response.setContentType(getContentTypeFromUrl(filePath));
+        response.setContentLengthLong(Files.size(file));
+        response.setHeader("Cache-Control", "public, max-age=3600");
+        try (OutputStream outputStream = response.getOutputStream()) {
+            Files.copy(file, outputStream);
+        }
+    }
+
     private void proxyImage(String imageUrl, HttpServletResponse response) {
         HttpURLConnection connection = null;
         try {
@@ -0,0 +1,22 @@
+package com.techstore.dto.response;
+
+import lombok.Data;
+
+@Data
+public class CacheStatsResponseDto {
+    private String name;
+    private Long estimatedSize;
+    private Long maximumSize;
+    private Long maximumWeight;
+    private Long weightedSize;
+    private String expireAfterWrite;
+    private String expireAfterAccess;
+    private Long hitCount;
+    private Long missCount;
+    private Double hitRate;
+    private Long evictionCount;
+    private Long evictionWeight;
+    private Long loadSuccessCount;
+    private Long loadFailureCount;
+    private Double averageLoadPenaltyMs;
+}
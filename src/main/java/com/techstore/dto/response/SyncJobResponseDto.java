@@ -0,0 +1,25 @@
+package com.techstore.dto.response;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class SyncJobResponseDto {
+    private String id;
+    private String source;
+    private String type;
+    private String status;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+    private Long processed;
+    private Long created;
+    private Long updated;
+    private Long errors;
+    private Long completedUnits;
+    private Long totalUnits;
+    private Double throughputPerSecond;
+    private Long etaSeconds;
+}
@@ -0,0 +1,15 @@
+package com.techstore.dto.response;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class SyncLockResponseDto {
+    private String name;
+    private String owner;
+    private LocalDateTime acquiredAt;
+    private LocalDateTime heartbeatAt;
+    private Boolean held;
+    private Integer backendPid;
+}
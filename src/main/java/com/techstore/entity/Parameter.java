@@ -1,5 +1,6 @@
 package com.techstore.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -13,6 +14,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
 
@@ -26,6 +29,8 @@ import java.util.Set;
         uniqueConstraints = @UniqueConstraint(columnNames = {"category_id", "external_id"})
 )
 @Indexed
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entity.parameter")
 @Data
 public class Parameter extends BaseEntity {
 
@@ -51,5 +56,6 @@ public class Parameter extends BaseEntity {
     private Integer order;
 
     @OneToMany(mappedBy = "parameter", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entity.parameter.options")
     private Set<ParameterOption> options = new HashSet<>();
 }
@@ -1,5 +1,6 @@
 package com.techstore.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -8,15 +9,23 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "parameter_options")
+@Table(
+        name = "parameter_options",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"parameter_id", "external_id"})
+)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entity.parameter-option")
 @Getter
 @Setter
 public class ParameterOption extends BaseEntity {
@@ -33,6 +33,7 @@ public class Product extends BaseEntity {
     @Column(name = "tekra_id")
     private String tekraId;
 
+    @Column(unique = true)
     private String sku;
 
     @FullTextField
@@ -107,6 +108,21 @@ public class Product extends BaseEntity {
 
     private Boolean featured = false;
 
+    @Column(length = 20)
+    private String source;
+
+    @Column(name = "last_seen_sync_id")
+    private Long lastSeenSyncId;
+
+    @Column(name = "last_changed_sync_id")
+    private Long lastChangedSyncId;
+
+    @Column(name = "last_seen_feed_category_id")
+    private Long lastSeenFeedCategoryId;
+
+    @Column(name = "deactivated_by_sync", nullable = false)
+    private Boolean deactivatedBySync = false;
+
     @Column(name = "image_url", length = 1000)
     private String primaryImageUrl;
 
@@ -0,0 +1,45 @@
+package com.techstore.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Table(name = "sync_checkpoints")
+@Getter
+@Setter
+public class SyncCheckpoint extends BaseEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sync_log_id", nullable = false)
+    private SyncLog syncLog;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Column(name = "status", nullable = false)
+    private String status; // IN_PROGRESS, COMPLETED
+
+    @Column(name = "chunks_committed", nullable = false)
+    private Integer chunksCommitted = 0;
+
+    @Column(name = "records_processed", nullable = false)
+    private Long recordsProcessed = 0L;
+
+    @Column(name = "records_created", nullable = false)
+    private Long recordsCreated = 0L;
+
+    @Column(name = "records_updated", nullable = false)
+    private Long recordsUpdated = 0L;
+
+    @Column(name = "records_failed", nullable = false)
+    private Long recordsFailed = 0L;
+
+    @Column(name = "resumed_mid_feed", nullable = false)
+    private Boolean resumedMidFeed = false;
+}
@@ -72,6 +72,22 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
     }
 
+    @ExceptionHandler(SyncInProgressException.class)
+    public ResponseEntity<ErrorResponse> handleSyncInProgressException(
+            SyncInProgressException ex, HttpServletRequest request) {
+
+        log.warn("Sync in progress: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = createErrorResponse(
+                HttpStatus.CONFLICT,
+                "Synchronization In Progress",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
     @ExceptionHandler(BusinessLogicException.class)
     public ResponseEntity<ErrorResponse> handleBusinessLogicException(
             BusinessLogicException ex, HttpServletRequest request) {
@@ -0,0 +1,7 @@
+package com.techstore.exception;
+
+public class SyncInProgressException extends RuntimeException {
+    public SyncInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.techstore.exception;
+
+public class SyncLockLostException extends SyncException {
+    public SyncLockLostException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,7 @@
 package com.techstore.repository;
 
 import com.techstore.entity.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,6 +14,7 @@ import java.util.Optional;
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
+    @EntityGraph(attributePaths = "product")
     List<CartItem> findByUserIdOrderByCreatedAtAsc(Long userId);
 
     Optional<CartItem> findByUserIdAndProductId(Long userId, Long productId);
@@ -4,6 +4,7 @@ import com.techstore.entity.Category;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -29,4 +30,10 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByNameEn(String nameEn);
 
     List<Category> findByParentId(Long parentId);
+
+    /**
+     * All categories with two levels of parents initialized, for matching outside a transaction.
+     */
+    @Query("SELECT c FROM Category c LEFT JOIN FETCH c.parent p LEFT JOIN FETCH p.parent ORDER BY c.id")
+    List<Category> findAllWithParents();
 }
\ No newline at end of file
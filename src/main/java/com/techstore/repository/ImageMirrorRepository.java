@@ -0,0 +1,120 @@
+package com.techstore.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JDBC access to {@code image_mirrors}, the supplier image URLs copied to our own storage.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImageMirrorRepository {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Supplier image URLs of synced products without a stored copy: never tried, or failed fewer than
+     * {@code maxAttempts} times and not tried since {@code attemptedBefore}. URLs that already point to a copy are
+     * skipped.
+     */
+    public List<String> findUnmirroredUrls(int limit, int maxAttempts, LocalDateTime attemptedBefore) {
+        return jdbcTemplate.queryForList(
+                "SELECT u.url FROM (" +
+                        "SELECT image_url AS url FROM products WHERE source IS NOT NULL AND image_url LIKE 'http%' " +
+                        "UNION " +
+                        "SELECT ai.additional_urls FROM additional_images ai JOIN products p ON p.id = ai.product_id " +
+                        "WHERE p.source IS NOT NULL AND ai.additional_urls LIKE 'http%') u " +
+                        "LEFT JOIN image_mirrors m ON m.source_url = u.url " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM image_mirrors own WHERE own.mirrored_url = u.url) " +
+                        "AND (m.source_url IS NULL OR " +
+                        "(m.mirrored_url IS NULL AND m.failures < ? AND m.last_attempt_at < ?)) " +
+                        "LIMIT ?",
+                String.class, maxAttempts, Timestamp.valueOf(attemptedBefore), limit);
+    }
+
+    /**
+     * Stored copy of content with the given SHA-256, if any URL serving it was mirrored before.
+     */
+    public String findMirroredUrlByHash(String contentHash) {
+        List<String> urls = jdbcTemplate.queryForList(
+                "SELECT mirrored_url FROM image_mirrors WHERE content_hash = ? AND mirrored_url IS NOT NULL LIMIT 1",
+                String.class, contentHash);
+        return urls.isEmpty() ? null : urls.get(0);
+    }
+
+    /**
+     * Stored copies of the given supplier URLs; URLs without a copy are absent from the map.
+     */
+    public Map<String, String> findMirroredUrls(Collection<String> sourceUrls) {
+        Map<String, String> mirrors = new HashMap<>();
+        if (sourceUrls.isEmpty()) {
+            return mirrors;
+        }
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT source_url, mirrored_url FROM image_mirrors " +
+                            "WHERE source_url = ANY(?) AND mirrored_url IS NOT NULL");
+            ps.setArray(1, con.createArrayOf("varchar", sourceUrls.toArray()));
+            return ps;
+        }, rs -> {
+            mirrors.put(rs.getString("source_url"), rs.getString("mirrored_url"));
+        });
+        return mirrors;
+    }
+
+    public void saveMirror(String sourceUrl, String contentHash, String mirroredUrl, String contentType, long size) {
+        jdbcTemplate.update(
+                "INSERT INTO image_mirrors (source_url, content_hash, mirrored_url, content_type, size_bytes) " +
+                        "VALUES (?, ?, ?, ?, ?) " +
+                        "ON CONFLICT (source_url) DO UPDATE SET content_hash = EXCLUDED.content_hash, " +
+                        "mirrored_url = EXCLUDED.mirrored_url, content_type = EXCLUDED.content_type, " +
+                        "size_bytes = EXCLUDED.size_bytes, failures = 0, last_error = NULL, " +
+                        "last_attempt_at = CURRENT_TIMESTAMP",
+                sourceUrl, contentHash, mirroredUrl, contentType, size);
+    }
+
+    public void recordFailure(String sourceUrl, String error) {
+        String message = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        jdbcTemplate.update(
+                "INSERT INTO image_mirrors (source_url, failures, last_error) VALUES (?, 1, ?) " +
+                        "ON CONFLICT (source_url) DO UPDATE SET failures = image_mirrors.failures + 1, " +
+                        "last_error = EXCLUDED.last_error, last_attempt_at = CURRENT_TIMESTAMP",
+                sourceUrl, message);
+    }
+
+    /**
+     * Points product images that still reference a supplier URL to its stored copy.
+     *
+     * @return ids of the products whose primary or additional images were rewritten
+     */
+    @Transactional
+    public Set<Long> rewriteProductImages() {
+        Set<Long> productIds = new HashSet<>(jdbcTemplate.queryForList(
+                "UPDATE products p SET image_url = m.mirrored_url, updated_at = CURRENT_TIMESTAMP, " +
+                        "last_modified_by = 'system' " +
+                        "FROM image_mirrors m WHERE p.image_url = m.source_url AND m.mirrored_url IS NOT NULL " +
+                        "RETURNING p.id",
+                Long.class));
+        productIds.addAll(jdbcTemplate.queryForList(
+                "UPDATE additional_images ai SET additional_urls = m.mirrored_url " +
+                        "FROM image_mirrors m WHERE ai.additional_urls = m.source_url AND m.mirrored_url IS NOT NULL " +
+                        "RETURNING ai.product_id",
+                Long.class));
+        return productIds;
+    }
+}
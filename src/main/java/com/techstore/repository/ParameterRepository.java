@@ -39,4 +39,8 @@ public interface ParameterRepository extends JpaRepository<Parameter, Long> {
     long countByCategoryId(Long categoryId);
 
     Optional<Parameter> findByTekraKeyAndCategoryId(String tekraKey, Long categoryId);
+
+    @Query("SELECT DISTINCT p FROM Parameter p LEFT JOIN FETCH p.options " +
+            "WHERE p.category.id = :categoryId ORDER BY p.id")
+    List<Parameter> findByCategoryIdWithOptions(@Param("categoryId") Long categoryId);
 }
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.techstore.repository;
+
+import com.techstore.entity.Parameter;
+import com.techstore.entity.ParameterOption;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched JDBC writes for parameters and options written by the syncs. Like {@link ProductSyncWriter}, this exists
+ * because {@code GenerationType.IDENTITY} prevents Hibernate from batching these inserts.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class ParameterSyncWriter {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // ===========================================
+    // VALI PARAMETERS
+    // ===========================================
+
+    /**
+     * Upserts transient Vali parameters keyed by {@code (category_id, external_id)} and their options keyed by
+     * {@code (parameter_id, external_id)} with multi-row statements, and assigns the parameter ids back. Rows whose
+     * names and order did not change are left alone; a missing name keeps the stored one. Later duplicates in the
+     * list win.
+     */
+    @Transactional
+    public ParameterWriteResult writeValiParameters(List<Parameter> parameters) {
+        Map<String, Parameter> byKey = new LinkedHashMap<>();
+        for (Parameter parameter : parameters) {
+            if (parameter.getCategory() != null && parameter.getCategory().getId() != null &&
+                    parameter.getExternalId() != null) {
+                String key = key(parameter.getCategory().getId(), parameter.getExternalId());
+                byKey.remove(key);
+                byKey.put(key, parameter);
+            }
+        }
+
+        ParameterWriteResult result = new ParameterWriteResult();
+        List<Parameter> unique = new ArrayList<>(byKey.values());
+
+        for (List<Parameter> slice : partition(unique, MAX_ROWS_PER_STATEMENT)) {
+            String sql = buildUpsertSql("parameters", "category_id", slice.size(),
+                    "RETURNING id, category_id, external_id, (xmax = 0) AS inserted");
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int index = 1;
+                for (Parameter parameter : slice) {
+                    index = bindRow(ps, index, parameter.getCategory().getId(), parameter.getExternalId(),
+                            parameter.getNameBg(), parameter.getNameEn(), parameter.getOrder());
+                }
+                return ps;
+            }, rs -> {
+                Parameter parameter = byKey.get(key(rs.getLong("category_id"), rs.getLong("external_id")));
+                parameter.setId(rs.getLong("id"));
+                if (rs.getBoolean("inserted")) {
+                    result.parametersCreated++;
+                } else {
+                    result.parametersUpdated++;
+                }
+            });
+        }
+
+        assignUnchangedParameterIds(byKey);
+        writeValiOptions(unique, result);
+        return result;
+    }
+
+    /**
+     * The upsert returns only rows it wrote; ids of unchanged parameters are read in one query.
+     */
+    private void assignUnchangedParameterIds(Map<String, Parameter> byKey) {
+        List<Parameter> unchanged = byKey.values().stream()
+                .filter(parameter -> parameter.getId() == null)
+                .toList();
+        if (unchanged.isEmpty()) {
+            return;
+        }
+
+        Long[] categoryIds = unchanged.stream().map(parameter -> parameter.getCategory().getId()).toArray(Long[]::new);
+        Long[] externalIds = unchanged.stream().map(Parameter::getExternalId).toArray(Long[]::new);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT p.id, p.category_id, p.external_id FROM parameters p " +
+                            "JOIN unnest(?::bigint[], ?::bigint[]) AS k(category_id, external_id) " +
+                            "ON p.category_id = k.category_id AND p.external_id = k.external_id");
+            ps.setArray(1, con.createArrayOf("bigint", categoryIds));
+            ps.setArray(2, con.createArrayOf("bigint", externalIds));
+            return ps;
+        }, rs -> {
+            byKey.get(key(rs.getLong("category_id"), rs.getLong("external_id"))).setId(rs.getLong("id"));
+        });
+    }
+
+    private void writeValiOptions(List<Parameter> parameters, ParameterWriteResult result) {
+        Map<String, ParameterOption> byKey = new LinkedHashMap<>();
+        for (Parameter parameter : parameters) {
+            if (parameter.getId() == null || parameter.getOptions() == null) {
+                continue;
+            }
+            for (ParameterOption option : parameter.getOptions()) {
+                if (option.getExternalId() != null) {
+                    option.setParameter(parameter);
+                    String key = key(parameter.getId(), option.getExternalId());
+                    byKey.remove(key);
+                    byKey.put(key, option);
+                }
+            }
+        }
+
+        for (List<ParameterOption> slice : partition(new ArrayList<>(byKey.values()), MAX_ROWS_PER_STATEMENT)) {
+            String sql = buildUpsertSql("parameter_options", "parameter_id", slice.size(),
+                    "RETURNING (xmax = 0) AS inserted");
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int index = 1;
+                for (ParameterOption option : slice) {
+                    index = bindRow(ps, index, option.getParameter().getId(), option.getExternalId(),
+                            option.getNameBg(), option.getNameEn(), option.getOrder());
+                }
+                return ps;
+            }, rs -> {
+                if (rs.getBoolean("inserted")) {
+                    result.optionsCreated++;
+                } else {
+                    result.optionsUpdated++;
+                }
+            });
+        }
+    }
+
+    // ===========================================
+    // OPTIONS CREATED WHILE MAPPING PRODUCTS
+    // ===========================================
+
+    /**
+     * Inserts new parameter options in one JDBC batch and assigns the generated ids back to the given instances.
+     */
+    @Transactional
+    public void insertOptions(List<ParameterOption> options) {
+        if (options.isEmpty()) {
+            return;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(
+                        "INSERT INTO parameter_options (parameter_id, external_id, name_bg, name_en, sort_order, " +
+                                "created_at, updated_at, created_by, last_modified_by) " +
+                                "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 'system', 'system')",
+                        new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ParameterOption option = options.get(i);
+                        ps.setLong(1, option.getParameter().getId());
+                        ps.setObject(2, option.getExternalId(), Types.BIGINT);
+                        ps.setString(3, option.getNameBg());
+                        ps.setString(4, option.getNameEn());
+                        ps.setObject(5, option.getOrder(), Types.INTEGER);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return options.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < options.size(); i++) {
+            options.get(i).setId(((Number) keys.get(i).get("id")).longValue());
+        }
+
+        log.debug("Inserted {} parameter options", options.size());
+    }
+
+    // ===========================================
+    // SQL HELPERS
+    // ===========================================
+
+    /**
+     * Multi-row upsert into {@code parameters} or {@code parameter_options}, which share their synced columns.
+     */
+    private static String buildUpsertSql(String table, String parentColumn, int rows, String returning) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (").append(parentColumn)
+                .append(", external_id, name_bg, name_en, sort_order, ")
+                .append("created_at, updated_at, created_by, last_modified_by) VALUES ");
+
+        String placeholders = "(?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 'system', 'system')";
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(placeholders);
+        }
+
+        String nameBg = "COALESCE(EXCLUDED.name_bg, " + table + ".name_bg)";
+        String nameEn = "COALESCE(EXCLUDED.name_en, " + table + ".name_en)";
+        sql.append(" ON CONFLICT (").append(parentColumn).append(", external_id) DO UPDATE SET ")
+                .append("name_bg = ").append(nameBg).append(", ")
+                .append("name_en = ").append(nameEn).append(", ")
+                .append("sort_order = EXCLUDED.sort_order, ")
+                .append("updated_at = CURRENT_TIMESTAMP, last_modified_by = 'system' ")
+                .append("WHERE (").append(table).append(".name_bg, ").append(table).append(".name_en, ")
+                .append(table).append(".sort_order) IS DISTINCT FROM (")
+                .append(nameBg).append(", ").append(nameEn).append(", EXCLUDED.sort_order) ")
+                .append(returning);
+        return sql.toString();
+    }
+
+    private static int bindRow(PreparedStatement ps, int index, Long parentId, Long externalId,
+                               String nameBg, String nameEn, Integer order) throws SQLException {
+        ps.setLong(index++, parentId);
+        ps.setLong(index++, externalId);
+        ps.setString(index++, nameBg);
+        ps.setString(index++, nameEn);
+        ps.setObject(index++, order, Types.INTEGER);
+        return index;
+    }
+
+    private static String key(Long parentId, Long externalId) {
+        return parentId + ":" + externalId;
+    }
+
+    private static <T> List<List<T>> partition(List<T> list, int size) {
+        List<List<T>> partitions = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += size) {
+            partitions.add(list.subList(i, Math.min(i + size, list.size())));
+        }
+        return partitions;
+    }
+
+    // ===========================================
+    // RESULT CLASSES
+    // ===========================================
+
+    @Getter
+    public static class ParameterWriteResult {
+        private long parametersCreated;
+        private long parametersUpdated;
+        private long optionsCreated;
+        private long optionsUpdated;
+    }
+}
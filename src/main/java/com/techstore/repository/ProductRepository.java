@@ -4,6 +4,7 @@ import com.techstore.entity.Product;
 import com.techstore.enums.ProductStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
@@ -23,19 +24,25 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
 
     Optional<Product> findByExternalId(Long externalId);
 
+    @EntityGraph(attributePaths = {"category", "manufacturer"})
     Page<Product> findByActiveTrue(Pageable pageable);
 
     List<Product> findByActiveTrueOrderByNameEnAsc();
 
+    @EntityGraph(attributePaths = {"category", "manufacturer"})
     Page<Product> findByActiveTrueAndFeaturedTrue(Pageable pageable);
 
+    @EntityGraph(attributePaths = {"category", "manufacturer"})
     Page<Product> findByActiveTrueAndCategoryId(Long categoryId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"category", "manufacturer"})
     Page<Product> findByActiveTrueAndManufacturerId(Long brandId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"category", "manufacturer"})
     @Query("SELECT p FROM Product p WHERE p.active = true AND p.show = true AND p.discount IS NOT NULL AND p.discount != 0")
     Page<Product> findProductsOnSale(Pageable pageable);
 
+    @EntityGraph(attributePaths = {"category", "manufacturer"})
     @Query("SELECT p FROM Product p WHERE p.active = true AND p.show = true AND " +
             "(" +
             "LOWER(p.nameEn) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
@@ -51,6 +58,7 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
                                    @Param("maxPrice") BigDecimal maxPrice,
                                    Pageable pageable);
 
+    @EntityGraph(attributePaths = {"category", "manufacturer"})
     @Query("SELECT p FROM Product p WHERE p.active = true " +
             "AND p.show = true " +
             "AND (:categoryId IS NULL OR p.category.id = :categoryId) " +
@@ -72,6 +80,7 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
                                           @Param("query") String query,
                                           Pageable pageable);
 
+    @EntityGraph(attributePaths = {"category", "manufacturer"})
     @Query("SELECT p FROM Product p WHERE p.active = true AND p.show = true AND p.id != :productId AND " +
             "(p.category.id = :categoryId OR p.manufacturer.id = :manufacturerId)")
     List<Product> findRelatedProducts(@Param("productId") Long productId,
@@ -87,20 +96,6 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
 
     List<Product> findByCategoryId(Long categoryId);
 
-    @Query("SELECT p.sku, COUNT(p) FROM Product p WHERE p.sku IS NOT NULL GROUP BY p.sku HAVING COUNT(p) > 1")
-    List<Object[]> findDuplicateProductsBySku();
-
-    @Query("SELECT p.externalId, COUNT(p) FROM Product p WHERE p.externalId IS NOT NULL GROUP BY p.externalId HAVING COUNT(p) > 1")
-    List<Object[]> findDuplicateProductsByExternalId();
-
-    ;
-
-    @Query("SELECT p FROM Product p WHERE p.externalId = :externalId")
-    List<Product> findProductsByExternalId(@Param("externalId") Long externalId);
-
-    @Query("SELECT p FROM Product p WHERE p.sku = :sku")
-    List<Product> findProductsBySkuCode(@Param("sku") String sku);
-
     @Modifying
     @Transactional
     @Query("UPDATE Product p SET p.category.id = :newCategoryId WHERE p.category.id = :oldCategoryId")
@@ -0,0 +1,356 @@
+package com.techstore.repository;
+
+import com.techstore.entity.Product;
+import com.techstore.entity.ProductParameter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Staging load and set-based merge for full Vali catalog refreshes.
+ * <p>
+ * Mapped products are streamed with the PgJDBC {@code CopyManager} into the unlogged {@code staging_*} tables
+ * (see V7 migration) and then merged into {@code products}, {@code product_parameters} and
+ * {@code additional_images} in a single short transaction. Column semantics are the same as
+ * {@link ProductSyncWriter#writeValiProducts(List, Long, Long)}.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class ProductStagingRepository {
+
+    private static final String STAGING_PRODUCT_COLUMNS = "external_id, workflow_id, reference_number, model, barcode, " +
+            "manufacturer_id, status, price_client, price_partner, price_promo, price_client_promo, final_price, " +
+            "show_flag, warranty, weight, category_id, image_url, name_bg, name_en, description_bg, description_en, " +
+            "has_parameters, feed_category_id";
+
+    private static final String PRODUCT_COLUMNS = "external_id, workflow_id, reference_number, model, barcode, " +
+            "manufacturer_id, status, price_client, price_partner, price_promo, price_client_promo, final_price, " +
+            "show_flag, warranty, weight, category_id, image_url, name_bg, name_en, description_bg, description_en";
+
+    /**
+     * Column -> merged value, evaluated with {@code p} = current product and {@code s} = latest staged row.
+     */
+    private static final String[][] MERGED_COLUMNS = {
+            {"workflow_id", "s.workflow_id"},
+            {"reference_number", "s.reference_number"},
+            {"model", "s.model"},
+            {"barcode", "s.barcode"},
+            {"manufacturer_id", "s.manufacturer_id"},
+            {"status", "s.status"},
+            {"price_client", "s.price_client"},
+            {"price_partner", "s.price_partner"},
+            {"price_promo", "s.price_promo"},
+            {"price_client_promo", "s.price_client_promo"},
+            {"show_flag", "s.show_flag"},
+            {"warranty", "s.warranty"},
+            {"weight", "s.weight"},
+            {"category_id", "COALESCE(s.category_id, p.category_id)"},
+            {"image_url", "s.image_url"},
+            {"name_bg", "COALESCE(s.name_bg, p.name_bg)"},
+            {"name_en", "COALESCE(s.name_en, p.name_en)"},
+            {"description_bg", "COALESCE(s.description_bg, p.description_bg)"},
+            {"description_en", "COALESCE(s.description_en, p.description_en)"},
+            {"final_price", "CASE WHEN s.price_client IS NOT NULL AND p.markup_percentage IS NOT NULL " +
+                    "THEN s.price_client + s.price_client * (p.markup_percentage / 100) ELSE p.final_price END"},
+            {"source", "'" + ProductSyncWriter.SOURCE_VALI + "'"},
+            {"active", "p.active OR p.deactivated_by_sync"},
+            {"deactivated_by_sync", "false"}
+    };
+
+    private static final String LATEST_STAGED = "(SELECT DISTINCT ON (external_id) * FROM staging_products " +
+            "ORDER BY external_id, row_no DESC)";
+
+    /**
+     * Staged products whose reference number another product already has, or another staged product brings along.
+     * {@code reference_number} is unique, so merging any of them would roll back the whole refresh; they are left
+     * out of the merge (and of the deactivation, since they are still staged) and reported instead.
+     */
+    private static final String CREATE_REFERENCE_CONFLICTS_SQL =
+            "CREATE TEMP TABLE reference_conflicts ON COMMIT DROP AS " +
+                    "WITH s AS " + LATEST_STAGED + " " +
+                    "SELECT s.external_id, s.reference_number FROM s " +
+                    "WHERE s.reference_number IS NOT NULL AND (" +
+                    "EXISTS (SELECT 1 FROM products p WHERE p.reference_number = s.reference_number " +
+                    "AND p.external_id IS DISTINCT FROM s.external_id) " +
+                    "OR EXISTS (SELECT 1 FROM s other WHERE other.reference_number = s.reference_number " +
+                    "AND other.external_id <> s.external_id))";
+
+    private static final String NOT_CONFLICTING = "NOT EXISTS (SELECT 1 FROM reference_conflicts c " +
+            "WHERE c.external_id = s.external_id)";
+
+    private static final int LOGGED_CONFLICTS = 20;
+
+    private static final String STATEMENT_TIMESTAMP = "statement_timestamp()::timestamp";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE staging_products, staging_product_parameters, staging_additional_images");
+    }
+
+    /**
+     * Streams one batch of mapped products, listed in the feed of {@code feedCategoryId}, into the staging tables with
+     * {@code COPY ... FROM STDIN}.
+     */
+    public long copy(List<Product> products, Long feedCategoryId) {
+        if (products.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder productRows = new StringBuilder();
+        StringBuilder parameterRows = new StringBuilder();
+        StringBuilder imageRows = new StringBuilder();
+
+        for (Product product : products) {
+            if (product.getExternalId() == null) {
+                continue;
+            }
+            boolean hasParameters = product.getProductParameters() != null;
+
+            appendRow(productRows,
+                    product.getExternalId(), product.getWorkflowId(), product.getReferenceNumber(),
+                    product.getModel(), product.getBarcode(),
+                    product.getManufacturer() != null ? product.getManufacturer().getId() : null,
+                    product.getStatus() != null ? product.getStatus().name() : null,
+                    product.getPriceClient(), product.getPricePartner(), product.getPricePromo(),
+                    product.getPriceClientPromo(), product.getFinalPrice(), product.getShow(),
+                    product.getWarranty(), product.getWeight(),
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    product.getPrimaryImageUrl(), product.getNameBg(), product.getNameEn(),
+                    product.getDescriptionBg(), product.getDescriptionEn(), hasParameters, feedCategoryId);
+
+            if (hasParameters) {
+                for (ProductParameter pp : product.getProductParameters()) {
+                    if (pp.getParameter() != null && pp.getParameter().getId() != null &&
+                            pp.getParameterOption() != null && pp.getParameterOption().getId() != null) {
+                        appendRow(parameterRows, product.getExternalId(),
+                                pp.getParameter().getId(), pp.getParameterOption().getId());
+                    }
+                }
+            }
+
+            if (product.getAdditionalImages() != null) {
+                for (int i = 0; i < product.getAdditionalImages().size(); i++) {
+                    String url = product.getAdditionalImages().get(i);
+                    if (url != null) {
+                        appendRow(imageRows, product.getExternalId(), i, url);
+                    }
+                }
+            }
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            long copied = pgConnection.getCopyAPI().copyIn(
+                    "COPY staging_products (" + STAGING_PRODUCT_COLUMNS + ") FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(productRows.toString()));
+            pgConnection.getCopyAPI().copyIn(
+                    "COPY staging_product_parameters (external_id, parameter_id, parameter_option_id) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(parameterRows.toString()));
+            pgConnection.getCopyAPI().copyIn(
+                    "COPY staging_additional_images (external_id, position, url) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(imageRows.toString()));
+            return copied;
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Failed to copy products into staging tables", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Merges the staged catalog into the live tables: inserts new products, updates changed ones, syncs parameters
+     * and images, and deactivates products of the given categories that were not staged. Every merged product is
+     * stamped as seen by {@code syncId}; staged products with a conflicting reference number are skipped and counted
+     * in {@link MergeResult#getConflicts()}.
+     *
+     * @param fetchedCategoryIds local ids of categories whose feed was fetched and staged completely; only products
+     *                           last seen in their feeds may be deactivated
+     * @param syncId             sync_logs id stamped as {@code last_changed_sync_id} on every product the merge
+     *                           inserts, changes or deactivates
+     */
+    @Transactional
+    public MergeResult merge(Collection<Long> fetchedCategoryIds, Long syncId) {
+        jdbcTemplate.execute("ANALYZE staging_products");
+        jdbcTemplate.execute("ANALYZE staging_product_parameters");
+
+        MergeResult result = new MergeResult();
+        result.conflicts = findReferenceConflicts();
+
+        Long updated = jdbcTemplate.queryForObject(buildUpdateSql(), Long.class, syncId, syncId);
+        result.updated = updated != null ? updated : 0;
+
+        result.inserted = jdbcTemplate.update(
+                "INSERT INTO products (" + PRODUCT_COLUMNS + ", source, last_seen_sync_id, last_seen_feed_category_id, " +
+                        "last_changed_sync_id, created_at, updated_at, created_by, last_modified_by) " +
+                        "SELECT " + PRODUCT_COLUMNS + ", '" + ProductSyncWriter.SOURCE_VALI + "', ?, s.feed_category_id, ?, " +
+                        "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 'system', 'system' " +
+                        "FROM " + LATEST_STAGED + " s " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM products p WHERE p.external_id = s.external_id) " +
+                        "AND " + NOT_CONFLICTING,
+                syncId, syncId);
+
+        result.parametersRemoved = countAndStampChanged(
+                "DELETE FROM product_parameters pp USING products p, " + LATEST_STAGED + " s " +
+                        "WHERE pp.product_id = p.id AND p.external_id = s.external_id AND s.has_parameters " +
+                        "AND " + NOT_CONFLICTING + " " +
+                        "AND NOT EXISTS (SELECT 1 FROM staging_product_parameters sp " +
+                        "WHERE sp.external_id = s.external_id AND sp.parameter_id = pp.parameter_id " +
+                        "AND sp.parameter_option_id = pp.parameter_option_id) " +
+                        "RETURNING pp.product_id", syncId);
+
+        result.parametersAdded = countAndStampChanged(
+                "INSERT INTO product_parameters (product_id, parameter_id, parameter_option_id, " +
+                        "created_at, updated_at, created_by, last_modified_by) " +
+                        "SELECT DISTINCT p.id, sp.parameter_id, sp.parameter_option_id, " +
+                        "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 'system', 'system' " +
+                        "FROM staging_product_parameters sp JOIN products p ON p.external_id = sp.external_id " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM reference_conflicts c WHERE c.external_id = sp.external_id) " +
+                        "AND NOT EXISTS (SELECT 1 FROM product_parameters pp WHERE pp.product_id = p.id " +
+                        "AND pp.parameter_id = sp.parameter_id AND pp.parameter_option_id = sp.parameter_option_id) " +
+                        "RETURNING product_id", syncId);
+
+        mergeAdditionalImages(syncId);
+
+        result.deactivated = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "UPDATE products p SET active = false, deactivated_by_sync = true, last_changed_sync_id = ?, " +
+                            "updated_at = CURRENT_TIMESTAMP, last_modified_by = 'system' " +
+                            "WHERE p.external_id IS NOT NULL AND p.active = true " +
+                            "AND p.last_seen_feed_category_id = ANY(?) " +
+                            "AND NOT EXISTS (SELECT 1 FROM staging_products s WHERE s.external_id = p.external_id)");
+            ps.setLong(1, syncId);
+            ps.setArray(2, con.createArrayOf("bigint", fetchedCategoryIds.toArray()));
+            return ps;
+        });
+
+        truncate();
+
+        log.info("Staging merge - inserted: {}, updated: {}, deactivated: {}, parameters +{}/-{}, conflicts: {}",
+                result.inserted, result.updated, result.deactivated, result.parametersAdded, result.parametersRemoved,
+                result.conflicts);
+        return result;
+    }
+
+    /**
+     * Collects the staged products with a conflicting reference number into {@code reference_conflicts} and logs
+     * a sample of them.
+     *
+     * @return number of conflicting staged products
+     */
+    private long findReferenceConflicts() {
+        jdbcTemplate.execute(CREATE_REFERENCE_CONFLICTS_SQL);
+
+        List<String> sample = jdbcTemplate.queryForList(
+                "SELECT external_id || ' (' || reference_number || ')' FROM reference_conflicts " +
+                        "ORDER BY external_id LIMIT " + LOGGED_CONFLICTS, String.class);
+        if (sample.isEmpty()) {
+            return 0;
+        }
+
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reference_conflicts", Long.class);
+        log.warn("Skipping {} staged products whose reference number is already taken, e.g. {}", count, sample);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Runs a data-modifying statement returning {@code product_id}, stamps those products as changed by
+     * {@code syncId}, and returns the number of affected rows.
+     */
+    private long countAndStampChanged(String modifyingSql, Long syncId) {
+        Long count = jdbcTemplate.queryForObject(
+                "WITH modified AS (" + modifyingSql + "), " +
+                        "stamped AS (UPDATE products SET last_changed_sync_id = ? " +
+                        "WHERE id IN (SELECT product_id FROM modified) AND last_changed_sync_id IS DISTINCT FROM ?) " +
+                        "SELECT COUNT(*) FROM modified",
+                Long.class, syncId, syncId);
+        return count != null ? count : 0;
+    }
+
+    private void mergeAdditionalImages(Long syncId) {
+        jdbcTemplate.execute("CREATE TEMP TABLE changed_images ON COMMIT DROP AS " +
+                "SELECT p.id AS product_id, s.external_id FROM products p JOIN " + LATEST_STAGED + " s " +
+                "ON p.external_id = s.external_id " +
+                "WHERE " + NOT_CONFLICTING + " AND COALESCE((SELECT array_agg(ai.additional_urls ORDER BY ai.additional_urls) " +
+                "FROM additional_images ai WHERE ai.product_id = p.id), '{}') " +
+                "IS DISTINCT FROM COALESCE((SELECT array_agg(DISTINCT si.url ORDER BY si.url) " +
+                "FROM staging_additional_images si WHERE si.external_id = s.external_id), '{}')");
+
+        jdbcTemplate.update("UPDATE products SET last_changed_sync_id = ? " +
+                "WHERE id IN (SELECT product_id FROM changed_images) AND last_changed_sync_id IS DISTINCT FROM ?",
+                syncId, syncId);
+        jdbcTemplate.update("DELETE FROM additional_images ai USING changed_images c WHERE ai.product_id = c.product_id");
+        jdbcTemplate.update("INSERT INTO additional_images (product_id, additional_urls) " +
+                "SELECT c.product_id, si.url FROM changed_images c " +
+                "JOIN (SELECT DISTINCT ON (external_id, position) external_id, position, url " +
+                "FROM staging_additional_images) si ON si.external_id = c.external_id " +
+                "ORDER BY c.product_id, si.position");
+    }
+
+    /**
+     * Update of every staged product that stamps it as seen, and as changed only when a merged column differs; counts
+     * the changed ones the same way as {@link ProductSyncWriter}, by the {@code updated_at} of this statement.
+     * Parameters: sync id for {@code last_seen_sync_id}, sync id for {@code last_changed_sync_id}.
+     */
+    private static String buildUpdateSql() {
+        StringBuilder set = new StringBuilder();
+        StringBuilder changed = new StringBuilder();
+        for (String[] column : MERGED_COLUMNS) {
+            set.append(column[0]).append(" = ").append(column[1]).append(", ");
+            if (changed.length() > 0) {
+                changed.append(" OR ");
+            }
+            changed.append("p.").append(column[0]).append(" IS DISTINCT FROM ").append(column[1]);
+        }
+
+        return "WITH updated AS (UPDATE products p SET " + set +
+                "last_seen_sync_id = ?, last_seen_feed_category_id = s.feed_category_id, " +
+                "last_changed_sync_id = CASE WHEN " + changed + " THEN ? ELSE p.last_changed_sync_id END, " +
+                "updated_at = CASE WHEN " + changed + " THEN " + STATEMENT_TIMESTAMP + " ELSE p.updated_at END, " +
+                "last_modified_by = CASE WHEN " + changed + " THEN 'system' ELSE p.last_modified_by END " +
+                "FROM " + LATEST_STAGED + " s " +
+                "WHERE p.external_id = s.external_id AND " + NOT_CONFLICTING + " " +
+                "RETURNING p.updated_at = " + STATEMENT_TIMESTAMP + " AS changed) " +
+                "SELECT COUNT(*) FROM updated WHERE changed";
+    }
+
+    private static void appendRow(StringBuilder csv, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            Object value = values[i];
+            if (value != null) {
+                csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+            }
+        }
+        csv.append('\n');
+    }
+
+    @Getter
+    public static class MergeResult {
+        private long inserted;
+        private long updated;
+        private long deactivated;
+        private long parametersAdded;
+        private long parametersRemoved;
+        private long conflicts;
+    }
+}
@@ -0,0 +1,717 @@
+package com.techstore.repository;
+
+import com.techstore.entity.Product;
+import com.techstore.entity.ProductParameter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based writer for products coming from the Vali and Tekra syncs.
+ * <p>
+ * Products are mapped by the sync services onto transient {@link Product} instances and written here with
+ * multi-row statements instead of one {@code productRepository.save()} per row. {@code BaseEntity} uses
+ * {@code GenerationType.IDENTITY}, which disables Hibernate JDBC batching, so the ORM path cannot batch these inserts.
+ * <p>
+ * Column semantics match the previous entity-based code: fields a sync only sets conditionally are kept with
+ * {@code COALESCE}, and user-owned columns (markup, discount, featured, active) are never overwritten on update;
+ * the one exception is {@code active} of a product that {@link #deactivateMissing} deactivated, which is reactivated
+ * when a feed lists it again.
+ * A {@code null} {@code additionalImages} or {@code productParameters} collection means "leave unchanged";
+ * product parameters are written as a diff against the stored rows. Supplier image URLs that were already copied
+ * to our storage are written as the copy's URL.
+ * <p>
+ * Every written product is stamped with {@code last_seen_sync_id} and the feed category it was listed under; only
+ * products whose columns, images or parameters actually changed also get {@code last_changed_sync_id} and a new
+ * {@code updated_at}.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSyncWriter {
+
+    public static final String SOURCE_VALI = "VALI";
+    public static final String SOURCE_TEKRA = "TEKRA";
+
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private static final int LOGGED_CONFLICTS = 20;
+
+    private static final String AUDIT_COLUMNS = "created_at, updated_at, created_by, last_modified_by";
+    private static final String AUDIT_VALUES = "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 'system', 'system'";
+
+    /**
+     * Stamped on every write, so not a change of the product by itself.
+     */
+    private static final Set<String> SYNC_STAMP_COLUMNS = Set.of("last_seen_sync_id", "last_seen_feed_category_id");
+
+    /**
+     * Reactivates products the sweep deactivated; products disabled by an admin stay disabled.
+     */
+    private static final String ACTIVE_ON_CONFLICT = "products.active OR products.deactivated_by_sync";
+
+    /**
+     * Start of the current statement, in the type of {@code updated_at}.
+     */
+    private static final String STATEMENT_TIMESTAMP = "statement_timestamp()::timestamp";
+
+    private static final String FINAL_PRICE_ON_CONFLICT =
+            "CASE WHEN EXCLUDED.price_client IS NOT NULL AND products.markup_percentage IS NOT NULL " +
+                    "THEN EXCLUDED.price_client + EXCLUDED.price_client * (products.markup_percentage / 100) " +
+                    "ELSE products.final_price END";
+
+    private static final List<ProductColumn> VALI_COLUMNS = List.of(
+            new ProductColumn("external_id", Types.BIGINT, Product::getExternalId, null),
+            new ProductColumn("workflow_id", Types.BIGINT, Product::getWorkflowId, "EXCLUDED.workflow_id"),
+            new ProductColumn("reference_number", Types.VARCHAR, Product::getReferenceNumber, "EXCLUDED.reference_number"),
+            new ProductColumn("model", Types.VARCHAR, Product::getModel, "EXCLUDED.model"),
+            new ProductColumn("barcode", Types.VARCHAR, Product::getBarcode, "EXCLUDED.barcode"),
+            new ProductColumn("manufacturer_id", Types.BIGINT, ProductSyncWriter::manufacturerId, "EXCLUDED.manufacturer_id"),
+            new ProductColumn("status", Types.VARCHAR, ProductSyncWriter::status, "EXCLUDED.status"),
+            new ProductColumn("price_client", Types.NUMERIC, Product::getPriceClient, "EXCLUDED.price_client"),
+            new ProductColumn("price_partner", Types.NUMERIC, Product::getPricePartner, "EXCLUDED.price_partner"),
+            new ProductColumn("price_promo", Types.NUMERIC, Product::getPricePromo, "EXCLUDED.price_promo"),
+            new ProductColumn("price_client_promo", Types.NUMERIC, Product::getPriceClientPromo, "EXCLUDED.price_client_promo"),
+            new ProductColumn("show_flag", Types.BOOLEAN, Product::getShow, "EXCLUDED.show_flag"),
+            new ProductColumn("warranty", Types.INTEGER, Product::getWarranty, "EXCLUDED.warranty"),
+            new ProductColumn("weight", Types.NUMERIC, Product::getWeight, "EXCLUDED.weight"),
+            new ProductColumn("category_id", Types.BIGINT, ProductSyncWriter::categoryId, "COALESCE(EXCLUDED.category_id, products.category_id)"),
+            new ProductColumn("image_url", Types.VARCHAR, Product::getPrimaryImageUrl, "EXCLUDED.image_url"),
+            new ProductColumn("name_bg", Types.VARCHAR, Product::getNameBg, "COALESCE(EXCLUDED.name_bg, products.name_bg)"),
+            new ProductColumn("name_en", Types.VARCHAR, Product::getNameEn, "COALESCE(EXCLUDED.name_en, products.name_en)"),
+            new ProductColumn("description_bg", Types.VARCHAR, Product::getDescriptionBg, "COALESCE(EXCLUDED.description_bg, products.description_bg)"),
+            new ProductColumn("description_en", Types.VARCHAR, Product::getDescriptionEn, "COALESCE(EXCLUDED.description_en, products.description_en)"),
+            new ProductColumn("final_price", Types.NUMERIC, Product::getFinalPrice, FINAL_PRICE_ON_CONFLICT),
+            new ProductColumn("source", Types.VARCHAR, Product::getSource, "EXCLUDED.source"),
+            new ProductColumn("last_seen_sync_id", Types.BIGINT, Product::getLastSeenSyncId, "EXCLUDED.last_seen_sync_id"),
+            new ProductColumn("last_seen_feed_category_id", Types.BIGINT, Product::getLastSeenFeedCategoryId,
+                    "EXCLUDED.last_seen_feed_category_id"),
+            new ProductColumn("last_changed_sync_id", Types.BIGINT, Product::getLastSeenSyncId, null),
+            new ProductColumn("markup_percentage", Types.NUMERIC, Product::getMarkupPercentage, null),
+            new ProductColumn("discount", Types.NUMERIC, Product::getDiscount, null),
+            new ProductColumn("active", Types.BOOLEAN, Product::getActive, ACTIVE_ON_CONFLICT),
+            new ProductColumn("deactivated_by_sync", Types.BOOLEAN, Product::getDeactivatedBySync, "false"),
+            new ProductColumn("featured", Types.BOOLEAN, Product::getFeatured, null)
+    );
+
+    private static final String TEKRA_FINAL_PRICE_ON_CONFLICT =
+            "CASE WHEN COALESCE(EXCLUDED.price_client, products.price_client) IS NOT NULL " +
+                    "AND products.markup_percentage IS NOT NULL " +
+                    "THEN COALESCE(EXCLUDED.price_client, products.price_client) + " +
+                    "COALESCE(EXCLUDED.price_client, products.price_client) * (products.markup_percentage / 100) " +
+                    "ELSE products.final_price END";
+
+    private static final List<ProductColumn> TEKRA_COLUMNS = List.of(
+            new ProductColumn("sku", Types.VARCHAR, Product::getSku, null),
+            new ProductColumn("reference_number", Types.VARCHAR, Product::getReferenceNumber, "EXCLUDED.reference_number"),
+            new ProductColumn("name_bg", Types.VARCHAR, Product::getNameBg, "EXCLUDED.name_bg"),
+            new ProductColumn("name_en", Types.VARCHAR, Product::getNameEn, "EXCLUDED.name_en"),
+            new ProductColumn("model", Types.VARCHAR, Product::getModel, "EXCLUDED.model"),
+            new ProductColumn("price_client", Types.NUMERIC, Product::getPriceClient, "COALESCE(EXCLUDED.price_client, products.price_client)"),
+            new ProductColumn("price_partner", Types.NUMERIC, Product::getPricePartner, "COALESCE(EXCLUDED.price_partner, products.price_partner)"),
+            new ProductColumn("show_flag", Types.BOOLEAN, Product::getShow, "EXCLUDED.show_flag"),
+            new ProductColumn("status", Types.VARCHAR, ProductSyncWriter::status, "EXCLUDED.status"),
+            new ProductColumn("description_bg", Types.VARCHAR, Product::getDescriptionBg, "COALESCE(EXCLUDED.description_bg, products.description_bg)"),
+            new ProductColumn("description_en", Types.VARCHAR, Product::getDescriptionEn, "COALESCE(EXCLUDED.description_en, products.description_en)"),
+            new ProductColumn("weight", Types.NUMERIC, Product::getWeight, "COALESCE(EXCLUDED.weight, products.weight)"),
+            new ProductColumn("image_url", Types.VARCHAR, Product::getPrimaryImageUrl, "COALESCE(EXCLUDED.image_url, products.image_url)"),
+            new ProductColumn("category_id", Types.BIGINT, ProductSyncWriter::categoryId, "EXCLUDED.category_id"),
+            new ProductColumn("manufacturer_id", Types.BIGINT, ProductSyncWriter::manufacturerId, "COALESCE(EXCLUDED.manufacturer_id, products.manufacturer_id)"),
+            new ProductColumn("final_price", Types.NUMERIC, Product::getFinalPrice, TEKRA_FINAL_PRICE_ON_CONFLICT),
+            new ProductColumn("source", Types.VARCHAR, Product::getSource, "EXCLUDED.source"),
+            new ProductColumn("last_seen_sync_id", Types.BIGINT, Product::getLastSeenSyncId, "EXCLUDED.last_seen_sync_id"),
+            new ProductColumn("last_seen_feed_category_id", Types.BIGINT, Product::getLastSeenFeedCategoryId,
+                    "EXCLUDED.last_seen_feed_category_id"),
+            new ProductColumn("last_changed_sync_id", Types.BIGINT, Product::getLastSeenSyncId, null),
+            new ProductColumn("markup_percentage", Types.NUMERIC, Product::getMarkupPercentage, null),
+            new ProductColumn("discount", Types.NUMERIC, Product::getDiscount, null),
+            new ProductColumn("active", Types.BOOLEAN, Product::getActive, ACTIVE_ON_CONFLICT),
+            new ProductColumn("deactivated_by_sync", Types.BOOLEAN, Product::getDeactivatedBySync, "false"),
+            new ProductColumn("featured", Types.BOOLEAN, Product::getFeatured, null)
+    );
+
+    /**
+     * Incoming (product, parameter, option) triples, bound as three parallel arrays.
+     */
+    private static final String UNNEST_PARAMETER_PAIRS =
+            "unnest(?::bigint[], ?::bigint[], ?::bigint[]) AS n(product_id, parameter_id, parameter_option_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageMirrorRepository imageMirrorRepository;
+
+    // ===========================================
+    // VALI
+    // ===========================================
+
+    /**
+     * Upserts Vali products keyed by {@code external_id} and stamps them as seen by {@code syncId} in the feed of
+     * {@code feedCategoryId}. Later duplicates in the list win, as they did when products were saved one by one.
+     * Products with a conflicting reference number are skipped and counted in {@link WriteResult#getConflicts()}.
+     */
+    @Transactional
+    public WriteResult writeValiProducts(List<Product> products, Long syncId, Long feedCategoryId) {
+        Map<Long, Product> byExternalId = new LinkedHashMap<>();
+        for (Product product : products) {
+            if (product.getExternalId() != null) {
+                product.setSource(SOURCE_VALI);
+                product.setLastSeenSyncId(syncId);
+                product.setLastSeenFeedCategoryId(feedCategoryId);
+                product.setDeactivatedBySync(false);
+                byExternalId.remove(product.getExternalId());
+                byExternalId.put(product.getExternalId(), product);
+            }
+        }
+
+        WriteResult result = new WriteResult();
+        List<Product> unique = withoutReferenceConflicts(byExternalId.values(), "external_id",
+                Product::getExternalId, result);
+        applyImageMirrors(unique);
+
+        for (List<Product> slice : partition(unique, MAX_ROWS_PER_STATEMENT)) {
+            String sql = buildUpsertSql(VALI_COLUMNS, slice.size(), "external_id",
+                    "RETURNING id, external_id, (xmax = 0) AS inserted");
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                bindRows(ps, VALI_COLUMNS, slice, 1);
+                return ps;
+            }, rs -> {
+                Product product = byExternalId.get(rs.getLong("external_id"));
+                product.setId(rs.getLong("id"));
+                result.record(product.getId(), rs.getBoolean("inserted"), rs.getBoolean("changed"));
+            });
+        }
+
+        writeChildRows(unique, result);
+        return result;
+    }
+
+    // ===========================================
+    // TEKRA
+    // ===========================================
+
+    /**
+     * Upserts Tekra products keyed by SKU ({@code uq_products_sku}) and stamps them as seen by {@code syncId} in the
+     * feed of {@code feedCategoryId}. Later duplicates in the list win. Products with a conflicting reference number
+     * are skipped and counted in {@link WriteResult#getConflicts()}.
+     */
+    @Transactional
+    public WriteResult writeTekraProducts(List<Product> products, Long syncId, Long feedCategoryId) {
+        Map<String, Product> bySku = new LinkedHashMap<>();
+        for (Product product : products) {
+            if (product.getSku() != null) {
+                product.setSource(SOURCE_TEKRA);
+                product.setLastSeenSyncId(syncId);
+                product.setLastSeenFeedCategoryId(feedCategoryId);
+                product.setDeactivatedBySync(false);
+                bySku.remove(product.getSku());
+                bySku.put(product.getSku(), product);
+            }
+        }
+
+        WriteResult result = new WriteResult();
+        List<Product> unique = withoutReferenceConflicts(bySku.values(), "sku", Product::getSku, result);
+        applyImageMirrors(unique);
+
+        for (List<Product> slice : partition(unique, MAX_ROWS_PER_STATEMENT)) {
+            String sql = buildUpsertSql(TEKRA_COLUMNS, slice.size(), "sku",
+                    "RETURNING id, sku, (xmax = 0) AS inserted");
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                bindRows(ps, TEKRA_COLUMNS, slice, 1);
+                return ps;
+            }, rs -> {
+                Product product = bySku.get(rs.getString("sku"));
+                product.setId(rs.getLong("id"));
+                result.record(product.getId(), rs.getBoolean("inserted"), rs.getBoolean("changed"));
+            });
+        }
+
+        writeChildRows(unique, result);
+        return result;
+    }
+
+    // ===========================================
+    // SWEEP
+    // ===========================================
+
+    /**
+     * Deactivates products of {@code source} that were last seen in the feed of one of the given categories but not
+     * written by the sync {@code syncId}. Matching on the feed category rather than the mapped {@code category_id}
+     * keeps products listed under a category that did not complete out of the sweep. Callers pass only categories
+     * whose feed was read and written completely, so a failed fetch or chunk never deactivates anything.
+     * Deactivated products are marked {@code deactivated_by_sync} and reactivated when a feed lists them again.
+     *
+     * @return number of deactivated products
+     */
+    @Transactional
+    public int deactivateMissing(String source, Long syncId, Collection<Long> feedCategoryIds) {
+        return deactivateMissing(source, syncId, feedCategoryIds, List.of());
+    }
+
+    /**
+     * As {@link #deactivateMissing(String, Long, Collection)}, but products whose SKU is in {@code listedSkus} are
+     * kept. A sync that writes a SKU listed under several categories only once stamps it with the category that got
+     * to it first; if that category's write failed, the product was still listed and must not be swept under the
+     * category it was stamped with last time.
+     *
+     * @return number of deactivated products
+     */
+    @Transactional
+    public int deactivateMissing(String source, Long syncId, Collection<Long> feedCategoryIds,
+                                 Collection<String> listedSkus) {
+        if (feedCategoryIds.isEmpty()) {
+            return 0;
+        }
+
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "UPDATE products SET active = false, deactivated_by_sync = true, last_changed_sync_id = ?, " +
+                            "updated_at = CURRENT_TIMESTAMP, last_modified_by = 'system' " +
+                            "WHERE source = ? AND active = true AND last_seen_feed_category_id = ANY(?) " +
+                            "AND last_seen_sync_id IS DISTINCT FROM ? " +
+                            "AND (sku IS NULL OR sku <> ALL(?))");
+            ps.setLong(1, syncId);
+            ps.setString(2, source);
+            ps.setArray(3, con.createArrayOf("bigint", feedCategoryIds.toArray()));
+            ps.setLong(4, syncId);
+            ps.setArray(5, con.createArrayOf("varchar", listedSkus.stream().filter(Objects::nonNull).toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Ids of the products that the sync {@code syncId} inserted, changed or deactivated.
+     */
+    public List<Long> findChangedProductIds(Long syncId) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE last_changed_sync_id = ? ORDER BY id", Long.class, syncId);
+    }
+
+    // ===========================================
+    // CHILD ROWS
+    // ===========================================
+
+    /**
+     * Replaces supplier image URLs that {@code ImageMirrorService} already copied with the copies, so a sync does not
+     * point products back at the supplier until the next mirroring run. The staged full refresh calls it before its
+     * COPY, since staged rows never pass through this writer.
+     */
+    public void applyImageMirrors(List<Product> products) {
+        Set<String> urls = new HashSet<>();
+        for (Product product : products) {
+            if (product.getPrimaryImageUrl() != null) {
+                urls.add(product.getPrimaryImageUrl());
+            }
+            if (product.getAdditionalImages() != null) {
+                urls.addAll(product.getAdditionalImages());
+            }
+        }
+        if (urls.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> mirrors = imageMirrorRepository.findMirroredUrls(urls);
+        if (mirrors.isEmpty()) {
+            return;
+        }
+
+        for (Product product : products) {
+            if (product.getPrimaryImageUrl() != null) {
+                product.setPrimaryImageUrl(mirrors.getOrDefault(product.getPrimaryImageUrl(), product.getPrimaryImageUrl()));
+            }
+            if (product.getAdditionalImages() != null) {
+                product.setAdditionalImages(product.getAdditionalImages().stream()
+                        .map(url -> mirrors.getOrDefault(url, url))
+                        .collect(Collectors.toCollection(ArrayList::new)));
+            }
+        }
+    }
+
+    /**
+     * Writes additional images and parameters, and stamps products whose only change is there as changed.
+     */
+    private void writeChildRows(List<Product> products, WriteResult result) {
+        List<Product> withImages = products.stream()
+                .filter(p -> p.getId() != null && p.getAdditionalImages() != null)
+                .toList();
+        List<Product> withParameters = products.stream()
+                .filter(p -> p.getId() != null && p.getProductParameters() != null)
+                .toList();
+
+        Set<Long> changedProductIds = new HashSet<>();
+        if (!withImages.isEmpty()) {
+            changedProductIds.addAll(writeAdditionalImages(withImages));
+        }
+        if (!withParameters.isEmpty()) {
+            changedProductIds.addAll(writeProductParameters(withParameters));
+        }
+
+        if (!changedProductIds.isEmpty()) {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "UPDATE products SET last_changed_sync_id = last_seen_sync_id, " +
+                                "updated_at = CURRENT_TIMESTAMP, last_modified_by = 'system' " +
+                                "WHERE id = ANY(?) AND last_changed_sync_id IS DISTINCT FROM last_seen_sync_id");
+                ps.setArray(1, con.createArrayOf("bigint", changedProductIds.toArray()));
+                return ps;
+            });
+            result.recordChildChanges(changedProductIds);
+        }
+    }
+
+    /**
+     * Rewrites {@code additional_images} of the products whose image set differs from the stored one (compared
+     * ignoring order, like the staging merge).
+     *
+     * @return ids of the products whose images were rewritten
+     */
+    private Set<Long> writeAdditionalImages(List<Product> products) {
+        Long[] productIds = products.stream().map(Product::getId).toArray(Long[]::new);
+        Map<Long, List<String>> stored = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT product_id, additional_urls FROM additional_images WHERE product_id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("bigint", productIds));
+            return ps;
+        }, rs -> {
+            stored.computeIfAbsent(rs.getLong("product_id"), id -> new ArrayList<>())
+                    .add(rs.getString("additional_urls"));
+        });
+
+        List<Product> changed = products.stream()
+                .filter(p -> !sorted(p.getAdditionalImages()).equals(sorted(stored.getOrDefault(p.getId(), List.of()))))
+                .toList();
+        if (changed.isEmpty()) {
+            return Set.of();
+        }
+
+        deleteByProductIds("additional_images", changed);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Product product : changed) {
+            for (String url : product.getAdditionalImages()) {
+                rows.add(new Object[]{product.getId(), url});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO additional_images (product_id, additional_urls) VALUES (?, ?)",
+                    rows, new int[]{Types.BIGINT, Types.VARCHAR});
+        }
+
+        return changed.stream().map(Product::getId).collect(Collectors.toSet());
+    }
+
+    /**
+     * Brings {@code product_parameters} of the given products in line with their mapped parameters by deleting the
+     * pairs that are gone and inserting the new ones, one statement each for the whole chunk. Unchanged products
+     * cause no writes, so nightly syncs no longer churn every row (and {@code idx_product_parameters_lookup}).
+     *
+     * @return ids of the products whose parameters changed
+     */
+    private Set<Long> writeProductParameters(List<Product> products) {
+        Long[] productIds = products.stream().map(Product::getId).toArray(Long[]::new);
+
+        List<Long> pairProductIds = new ArrayList<>();
+        List<Long> pairParameterIds = new ArrayList<>();
+        List<Long> pairOptionIds = new ArrayList<>();
+        for (Product product : products) {
+            for (ProductParameter pp : product.getProductParameters()) {
+                if (pp.getParameter() == null || pp.getParameter().getId() == null ||
+                        pp.getParameterOption() == null || pp.getParameterOption().getId() == null) {
+                    log.debug("Skipping unsaved product parameter for product {}", product.getId());
+                    continue;
+                }
+                pairProductIds.add(product.getId());
+                pairParameterIds.add(pp.getParameter().getId());
+                pairOptionIds.add(pp.getParameterOption().getId());
+            }
+        }
+        Long[][] pairs = {
+                pairProductIds.toArray(Long[]::new),
+                pairParameterIds.toArray(Long[]::new),
+                pairOptionIds.toArray(Long[]::new)
+        };
+
+        Set<Long> changedProductIds = new HashSet<>();
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "WITH removed AS (DELETE FROM product_parameters pp WHERE pp.product_id = ANY(?) " +
+                            "AND NOT EXISTS (SELECT 1 FROM " + UNNEST_PARAMETER_PAIRS + " " +
+                            "WHERE n.product_id = pp.product_id AND n.parameter_id = pp.parameter_id " +
+                            "AND n.parameter_option_id = pp.parameter_option_id) RETURNING pp.product_id) " +
+                            "SELECT DISTINCT product_id FROM removed");
+            ps.setArray(1, con.createArrayOf("bigint", productIds));
+            bindPairs(ps, con, pairs, 2);
+            return ps;
+        }, rs -> {
+            changedProductIds.add(rs.getLong("product_id"));
+        });
+
+        if (pairs[0].length > 0) {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "WITH added AS (INSERT INTO product_parameters (product_id, parameter_id, parameter_option_id, " +
+                                AUDIT_COLUMNS + ") " +
+                                "SELECT DISTINCT n.product_id, n.parameter_id, n.parameter_option_id, " + AUDIT_VALUES + " " +
+                                "FROM " + UNNEST_PARAMETER_PAIRS + " " +
+                                "WHERE NOT EXISTS (SELECT 1 FROM product_parameters pp " +
+                                "WHERE pp.product_id = n.product_id AND pp.parameter_id = n.parameter_id " +
+                                "AND pp.parameter_option_id = n.parameter_option_id) RETURNING product_id) " +
+                                "SELECT DISTINCT product_id FROM added");
+                bindPairs(ps, con, pairs, 1);
+                return ps;
+            }, rs -> {
+                changedProductIds.add(rs.getLong("product_id"));
+            });
+        }
+
+        log.debug("Product parameters of {} products: {} changed", productIds.length, changedProductIds.size());
+        return changedProductIds;
+    }
+
+    private static void bindPairs(PreparedStatement ps, Connection con, Long[][] pairs, int index) throws SQLException {
+        for (Long[] column : pairs) {
+            ps.setArray(index++, con.createArrayOf("bigint", column));
+        }
+    }
+
+    private void deleteByProductIds(String table, List<Product> products) {
+        Long[] ids = products.stream().map(Product::getId).toArray(Long[]::new);
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("DELETE FROM " + table + " WHERE product_id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        });
+    }
+
+    /**
+     * Leaves out products whose reference number ({@code UNIQUE}) belongs to a stored product with another key or
+     * to another product of the same write, as the staging merge does; a single such row would fail the whole
+     * statement and with it the chunk.
+     */
+    private List<Product> withoutReferenceConflicts(Collection<Product> products, String keyColumn,
+                                                    Function<Product, Object> key, WriteResult result) {
+        Map<String, List<Product>> byReference = new HashMap<>();
+        for (Product product : products) {
+            if (product.getReferenceNumber() != null) {
+                byReference.computeIfAbsent(product.getReferenceNumber(), reference -> new ArrayList<>()).add(product);
+            }
+        }
+        if (byReference.isEmpty()) {
+            return new ArrayList<>(products);
+        }
+
+        Set<Product> conflicting = Collections.newSetFromMap(new IdentityHashMap<>());
+        byReference.values().stream()
+                .filter(sameReference -> sameReference.size() > 1)
+                .forEach(conflicting::addAll);
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT reference_number, " + keyColumn + " FROM products WHERE reference_number = ANY(?)");
+            ps.setArray(1, con.createArrayOf("varchar", byReference.keySet().toArray()));
+            return ps;
+        }, rs -> {
+            Object storedKey = rs.getObject(keyColumn);
+            for (Product product : byReference.get(rs.getString("reference_number"))) {
+                if (!Objects.equals(key.apply(product), storedKey)) {
+                    conflicting.add(product);
+                }
+            }
+        });
+
+        if (conflicting.isEmpty()) {
+            return new ArrayList<>(products);
+        }
+
+        result.conflicts = conflicting.size();
+        log.warn("Skipped {} products with a conflicting reference number: {}", conflicting.size(),
+                conflicting.stream().limit(LOGGED_CONFLICTS)
+                        .map(product -> key.apply(product) + " (" + product.getReferenceNumber() + ")")
+                        .collect(Collectors.joining(", ")));
+        return products.stream().filter(product -> !conflicting.contains(product)).toList();
+    }
+
+    // ===========================================
+    // SQL HELPERS
+    // ===========================================
+
+    private static String buildInsertSql(List<ProductColumn> columns, int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO products (");
+        for (ProductColumn column : columns) {
+            sql.append(column.name).append(", ");
+        }
+        sql.append(AUDIT_COLUMNS).append(") VALUES ");
+
+        String placeholders = "(" + "?, ".repeat(columns.size()) + AUDIT_VALUES + ")";
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Upsert whose update stamps {@code last_changed_sync_id}, {@code updated_at} and {@code last_modified_by} only
+     * when a synced column actually changes. {@code returning} gets an extra {@code changed} column, which is also
+     * true for inserted rows.
+     * <p>
+     * {@code RETURNING} only sees the new row, so {@code changed} cannot be read off {@code last_changed_sync_id}: a
+     * product written twice in one sync would keep the stamp of the first write. Instead a changed row gets this
+     * statement's {@code statement_timestamp()} as {@code updated_at}, which no earlier statement can have set.
+     */
+    private static String buildUpsertSql(List<ProductColumn> columns, int rows, String conflictColumn, String returning) {
+        StringBuilder sql = new StringBuilder(buildInsertSql(columns, rows));
+        StringBuilder current = new StringBuilder();
+        StringBuilder merged = new StringBuilder();
+
+        sql.append(" ON CONFLICT (").append(conflictColumn).append(") DO UPDATE SET ");
+        for (ProductColumn column : columns) {
+            if (column.onConflict != null) {
+                sql.append(column.name).append(" = ").append(column.onConflict).append(", ");
+                if (!SYNC_STAMP_COLUMNS.contains(column.name)) {
+                    current.append(current.length() > 0 ? ", " : "").append("products.").append(column.name);
+                    merged.append(merged.length() > 0 ? ", " : "").append(column.onConflict);
+                }
+            }
+        }
+
+        String changed = "ROW(" + current + ") IS DISTINCT FROM ROW(" + merged + ")";
+        sql.append("last_changed_sync_id = CASE WHEN ").append(changed)
+                .append(" THEN EXCLUDED.last_seen_sync_id ELSE products.last_changed_sync_id END, ");
+        sql.append("updated_at = CASE WHEN ").append(changed)
+                .append(" THEN ").append(STATEMENT_TIMESTAMP).append(" ELSE products.updated_at END, ");
+        sql.append("last_modified_by = CASE WHEN ").append(changed)
+                .append(" THEN 'system' ELSE products.last_modified_by END ");
+        sql.append(returning)
+                .append(", (xmax = 0 OR products.updated_at = ").append(STATEMENT_TIMESTAMP).append(") AS changed");
+        return sql.toString();
+    }
+
+    private static int bindRows(PreparedStatement ps, List<ProductColumn> columns, List<Product> rows, int index)
+            throws SQLException {
+        for (Product product : rows) {
+            for (ProductColumn column : columns) {
+                bind(ps, index++, column.value.apply(product), column.sqlType);
+            }
+        }
+        return index;
+    }
+
+    private static void bind(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            ps.setObject(index, value, sqlType);
+        }
+    }
+
+    private static List<String> sorted(Collection<String> urls) {
+        List<String> sorted = new ArrayList<>(urls);
+        sorted.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+        return sorted;
+    }
+
+    private static <T> List<List<T>> partition(List<T> list, int size) {
+        List<List<T>> partitions = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += size) {
+            partitions.add(list.subList(i, Math.min(i + size, list.size())));
+        }
+        return partitions;
+    }
+
+    private static Object manufacturerId(Product product) {
+        return product.getManufacturer() != null ? product.getManufacturer().getId() : null;
+    }
+
+    private static Object categoryId(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
+
+    private static Object status(Product product) {
+        return product.getStatus() != null ? product.getStatus().name() : null;
+    }
+
+    // ===========================================
+    // RESULT CLASSES
+    // ===========================================
+
+    private static class ProductColumn {
+        final String name;
+        final int sqlType;
+        final Function<Product, Object> value;
+        final String onConflict;
+
+        ProductColumn(String name, int sqlType, Function<Product, Object> value, String onConflict) {
+            this.name = name;
+            this.sqlType = sqlType;
+            this.value = value;
+            this.onConflict = onConflict;
+        }
+    }
+
+    /**
+     * Outcome of one write: {@code updated} counts only products that actually changed, including changes limited to
+     * their images or parameters; {@code conflicts} counts products skipped for a conflicting reference number.
+     */
+    @Getter
+    public static class WriteResult {
+        private long created;
+        private long updated;
+        private long conflicts;
+        private final List<Long> productIds = new ArrayList<>();
+        private final Set<Long> changedProductIds = new HashSet<>();
+
+        void record(Long productId, boolean inserted, boolean changed) {
+            productIds.add(productId);
+            if (inserted) {
+                created++;
+            } else if (changed) {
+                updated++;
+            }
+            if (inserted || changed) {
+                changedProductIds.add(productId);
+            }
+        }
+
+        void recordChildChanges(Collection<Long> productIds) {
+            for (Long productId : productIds) {
+                if (changedProductIds.add(productId)) {
+                    updated++;
+                }
+            }
+        }
+
+        public long getUnchanged() {
+            return productIds.size() - created - updated;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.techstore.repository;
+
+import com.techstore.entity.SyncCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyncCheckpointRepository extends JpaRepository<SyncCheckpoint, Long> {
+
+    List<SyncCheckpoint> findBySyncLogId(Long syncLogId);
+}
@@ -0,0 +1,123 @@
+package com.techstore.repository;
+
+import com.techstore.dto.response.SyncJobResponseDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rows of {@code sync_jobs}, the admin-triggered sync jobs of all nodes. Only the owning node writes a job's state;
+ * any node may request its cancellation.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SyncJobRepository {
+
+    private static final String COLUMNS = "id, source, type, status, submitted_at, started_at, finished_at, " +
+            "error_message, processed, created, updated, errors, completed_units, total_units, " +
+            "throughput_per_second, eta_seconds";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(SyncJobResponseDto job, String owner) {
+        jdbcTemplate.update(
+                "INSERT INTO sync_jobs (id, source, type, status, owner, submitted_at) VALUES (?, ?, ?, ?, ?, ?)",
+                job.getId(), job.getSource(), job.getType(), job.getStatus(), owner,
+                toTimestamp(job.getSubmittedAt()));
+    }
+
+    /**
+     * Writes the current state of a job owned by this node.
+     *
+     * @return whether cancellation of the job was requested
+     */
+    public boolean save(SyncJobResponseDto job) {
+        List<Boolean> cancelRequested = jdbcTemplate.queryForList(
+                "UPDATE sync_jobs SET status = ?, started_at = ?, finished_at = ?, error_message = ?, " +
+                        "processed = ?, created = ?, updated = ?, errors = ?, completed_units = ?, " +
+                        "total_units = ?, throughput_per_second = ?, eta_seconds = ?, " +
+                        "updated_at = CURRENT_TIMESTAMP WHERE id = ? RETURNING cancel_requested",
+                Boolean.class,
+                job.getStatus(), toTimestamp(job.getStartedAt()), toTimestamp(job.getFinishedAt()),
+                job.getErrorMessage(), job.getProcessed(), job.getCreated(), job.getUpdated(), job.getErrors(),
+                job.getCompletedUnits(), job.getTotalUnits(), job.getThroughputPerSecond(), job.getEtaSeconds(),
+                job.getId());
+        return !cancelRequested.isEmpty() && Boolean.TRUE.equals(cancelRequested.get(0));
+    }
+
+    /**
+     * @return whether the job exists
+     */
+    public boolean requestCancel(String id) {
+        return jdbcTemplate.update("UPDATE sync_jobs SET cancel_requested = true WHERE id = ?", id) > 0;
+    }
+
+    public SyncJobResponseDto findById(String id) {
+        List<SyncJobResponseDto> jobs = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM sync_jobs WHERE id = ?", (rs, rowNum) -> toJob(rs), id);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    public List<SyncJobResponseDto> findRecent(int limit) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM sync_jobs ORDER BY submitted_at DESC LIMIT ?",
+                (rs, rowNum) -> toJob(rs), limit);
+    }
+
+    /**
+     * Fails unfinished jobs whose owner has not written them for {@code staleAfterMs}; the node is presumed dead.
+     */
+    public int failAbandoned(long staleAfterMs, String errorMessage) {
+        return jdbcTemplate.update(
+                "UPDATE sync_jobs SET status = 'FAILED', error_message = ?, finished_at = CURRENT_TIMESTAMP, " +
+                        "updated_at = CURRENT_TIMESTAMP " +
+                        "WHERE finished_at IS NULL AND updated_at < CURRENT_TIMESTAMP - " +
+                        "CAST(? AS DOUBLE PRECISION) * INTERVAL '1 millisecond'",
+                errorMessage, staleAfterMs);
+    }
+
+    /**
+     * Deletes finished jobs beyond the latest {@code keep}.
+     */
+    public int deleteFinishedBeyond(int keep) {
+        return jdbcTemplate.update(
+                "DELETE FROM sync_jobs WHERE finished_at IS NOT NULL AND id NOT IN (" +
+                        "SELECT id FROM sync_jobs WHERE finished_at IS NOT NULL ORDER BY finished_at DESC LIMIT ?)",
+                keep);
+    }
+
+    private static SyncJobResponseDto toJob(ResultSet rs) throws SQLException {
+        SyncJobResponseDto job = new SyncJobResponseDto();
+        job.setId(rs.getString("id"));
+        job.setSource(rs.getString("source"));
+        job.setType(rs.getString("type"));
+        job.setStatus(rs.getString("status"));
+        job.setSubmittedAt(toLocalDateTime(rs.getTimestamp("submitted_at")));
+        job.setStartedAt(toLocalDateTime(rs.getTimestamp("started_at")));
+        job.setFinishedAt(toLocalDateTime(rs.getTimestamp("finished_at")));
+        job.setErrorMessage(rs.getString("error_message"));
+        job.setProcessed(rs.getObject("processed", Long.class));
+        job.setCreated(rs.getObject("created", Long.class));
+        job.setUpdated(rs.getObject("updated", Long.class));
+        job.setErrors(rs.getObject("errors", Long.class));
+        job.setCompletedUnits(rs.getObject("completed_units", Long.class));
+        job.setTotalUnits(rs.getObject("total_units", Long.class));
+        job.setThroughputPerSecond(rs.getObject("throughput_per_second", Double.class));
+        job.setEtaSeconds(rs.getObject("eta_seconds", Long.class));
+        return job;
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
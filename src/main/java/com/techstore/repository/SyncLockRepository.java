@@ -0,0 +1,67 @@
+package com.techstore.repository;
+
+import com.techstore.dto.response.SyncLockResponseDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bookkeeping rows of {@code sync_locks}. The advisory locks themselves are taken by
+ * {@link com.techstore.service.sync.SyncLockService} on its own connections.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SyncLockRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void upsert(String name, int lockKey, String owner) {
+        jdbcTemplate.update(
+                "INSERT INTO sync_locks (name, lock_key, owner, acquired_at, heartbeat_at) " +
+                        "VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+                        "ON CONFLICT (name) DO UPDATE SET lock_key = EXCLUDED.lock_key, owner = EXCLUDED.owner, " +
+                        "acquired_at = EXCLUDED.acquired_at, heartbeat_at = EXCLUDED.heartbeat_at",
+                name, lockKey, owner);
+    }
+
+    public void heartbeat(String name, String owner) {
+        jdbcTemplate.update("UPDATE sync_locks SET heartbeat_at = CURRENT_TIMESTAMP WHERE name = ? AND owner = ?",
+                name, owner);
+    }
+
+    public void delete(String name, String owner) {
+        jdbcTemplate.update("DELETE FROM sync_locks WHERE name = ? AND owner = ?", name, owner);
+    }
+
+    /**
+     * All known locks, with {@code held} taken from {@code pg_locks} so that rows left behind by a dead owner show
+     * up as not held.
+     */
+    public List<SyncLockResponseDto> findAll(int lockClassId) {
+        return jdbcTemplate.query(
+                "SELECT s.name, s.owner, s.acquired_at, s.heartbeat_at, l.pid " +
+                        "FROM sync_locks s LEFT JOIN pg_locks l ON l.locktype = 'advisory' AND l.granted " +
+                        "AND l.classid = ?::oid AND l.objid = s.lock_key::oid AND l.objsubid = 2 " +
+                        "ORDER BY s.name",
+                (rs, rowNum) -> {
+                    SyncLockResponseDto lock = new SyncLockResponseDto();
+                    lock.setName(rs.getString("name"));
+                    lock.setOwner(rs.getString("owner"));
+                    lock.setAcquiredAt(toLocalDateTime(rs.getTimestamp("acquired_at")));
+                    lock.setHeartbeatAt(toLocalDateTime(rs.getTimestamp("heartbeat_at")));
+                    Integer pid = (Integer) rs.getObject("pid");
+                    lock.setHeld(pid != null);
+                    lock.setBackendPid(pid);
+                    return lock;
+                },
+                lockClassId);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
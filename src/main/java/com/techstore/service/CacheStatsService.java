@@ -0,0 +1,77 @@
+package com.techstore.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.techstore.dto.response.CacheStatsResponseDto;
+import com.techstore.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Live statistics and current bounds of the Caffeine caches; the numbers count since the application started.
+ */
+@Service
+@RequiredArgsConstructor
+public class CacheStatsService {
+
+    private final CacheManager cacheManager;
+
+    public List<CacheStatsResponseDto> getAllStats() {
+        List<CacheStatsResponseDto> stats = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames().stream().sorted().toList()) {
+            nativeCache(name).ifPresent(cache -> stats.add(toStats(name, cache)));
+        }
+        return stats;
+    }
+
+    public CacheStatsResponseDto getStats(String name) {
+        return nativeCache(name)
+                .map(cache -> toStats(name, cache))
+                .orElseThrow(() -> new ResourceNotFoundException("Cache not found: " + name));
+    }
+
+    private Optional<Cache<?, ?>> nativeCache(String name) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(name);
+        if (cache != null && cache.getNativeCache() instanceof Cache<?, ?> nativeCache) {
+            return Optional.of(nativeCache);
+        }
+        return Optional.empty();
+    }
+
+    private static CacheStatsResponseDto toStats(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Policy<?, ?> policy = cache.policy();
+
+        CacheStatsResponseDto dto = new CacheStatsResponseDto();
+        dto.setName(name);
+        dto.setEstimatedSize(cache.estimatedSize());
+        policy.eviction().ifPresent(eviction -> {
+            if (eviction.isWeighted()) {
+                dto.setMaximumWeight(eviction.getMaximum());
+                eviction.weightedSize().ifPresent(dto::setWeightedSize);
+            } else {
+                dto.setMaximumSize(eviction.getMaximum());
+            }
+        });
+        policy.expireAfterWrite().ifPresent(expiration ->
+                dto.setExpireAfterWrite(expiration.getExpiresAfter().toString()));
+        policy.expireAfterAccess().ifPresent(expiration ->
+                dto.setExpireAfterAccess(expiration.getExpiresAfter().toString()));
+
+        dto.setHitCount(stats.hitCount());
+        dto.setMissCount(stats.missCount());
+        dto.setHitRate(stats.hitRate());
+        dto.setEvictionCount(stats.evictionCount());
+        dto.setEvictionWeight(stats.evictionWeight());
+        dto.setLoadSuccessCount(stats.loadSuccessCount());
+        dto.setLoadFailureCount(stats.loadFailureCount());
+        dto.setAverageLoadPenaltyMs(stats.averageLoadPenalty() / 1_000_000.0);
+        return dto;
+    }
+}
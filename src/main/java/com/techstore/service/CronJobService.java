@@ -1,5 +1,9 @@
 package com.techstore.service;
 
+import com.techstore.config.WorkloadRoutingDataSource;
+import com.techstore.service.sync.ImageMirrorService;
+import com.techstore.service.sync.SyncLockService;
+import com.techstore.service.sync.TekraFeedSnapshot;
 import com.techstore.service.sync.TekraSyncService;
 import com.techstore.service.sync.ValiSyncService;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +13,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -21,8 +26,17 @@ public class CronJobService {
     @Value("${app.sync.tekra.enabled:true}")
     private boolean tekraSyncEnabled;
 
+    @Value("${app.sync.resume-interrupted:true}")
+    private boolean resumeInterrupted;
+
+    @Value("${app.sync.vali.full-refresh:false}")
+    private boolean valiFullRefresh;
+
     private final ValiSyncService valiSyncService;
     private final TekraSyncService tekraSyncService;
+    private final SyncLockService syncLockService;
+    private final TekraFeedSnapshot tekraFeedSnapshot;
+    private final ImageMirrorService imageMirrorService;
 
     @Scheduled(cron = "${app.sync.cron}")
     public void syncVali() {
@@ -31,8 +45,15 @@ public class CronJobService {
             return;
         }
 
+        Optional<SyncLockService.SyncLock> lock = syncLockService.tryAcquire(SyncLockService.VALI);
+        if (lock.isEmpty()) {
+            log.info("Vali synchronization is already running, skipping scheduled run");
+            return;
+        }
+
         log.info("Starting scheduled Vali synchronization at {}", LocalDateTime.now());
-        try {
+        try (SyncLockService.SyncLock ignored = lock.get().bind();
+             WorkloadRoutingDataSource.Scope syncPool = WorkloadRoutingDataSource.useSyncPool()) {
             valiSyncService.syncCategories();
             log.info("Scheduled category synchronization completed at {}", LocalDateTime.now());
 
@@ -42,9 +63,15 @@ public class CronJobService {
             valiSyncService.syncParameters();
             log.info("Scheduled parameters synchronization completed at {}", LocalDateTime.now());
 
-            valiSyncService.syncProducts();
+            if (valiFullRefresh) {
+                valiSyncService.syncProductsFull();
+            } else {
+                valiSyncService.syncProducts(resumeInterrupted);
+            }
             log.info("Scheduled products synchronization completed at {}", LocalDateTime.now());
 
+            imageMirrorService.mirrorPendingAsync();
+
         } catch (Exception e) {
             log.error("CRITICAL: Scheduled Vali synchronization failed", e);
         }
@@ -57,8 +84,16 @@ public class CronJobService {
             return;
         }
 
+        Optional<SyncLockService.SyncLock> lock = syncLockService.tryAcquire(SyncLockService.TEKRA);
+        if (lock.isEmpty()) {
+            log.info("Tekra synchronization is already running, skipping scheduled run");
+            return;
+        }
+
         log.info("Starting scheduled Tekra synchronization at {}", LocalDateTime.now());
-        try {
+        tekraFeedSnapshot.begin();
+        try (SyncLockService.SyncLock ignored = lock.get().bind();
+             WorkloadRoutingDataSource.Scope syncPool = WorkloadRoutingDataSource.useSyncPool()) {
             tekraSyncService.syncTekraCategories();
             log.info("Scheduled Tekra category synchronization completed at {}", LocalDateTime.now());
 
@@ -68,11 +103,15 @@ public class CronJobService {
             tekraSyncService.syncTekraParameters();
             log.info("Scheduled Tekra parameters synchronization completed at {}", LocalDateTime.now());
 
-            tekraSyncService.syncTekraProducts();
+            tekraSyncService.syncTekraProducts(resumeInterrupted);
             log.info("Scheduled Tekra products synchronization completed at {}", LocalDateTime.now());
 
+            imageMirrorService.mirrorPendingAsync();
+
         } catch (Exception e) {
             log.error("CRITICAL: Scheduled Tekra synchronization failed", e);
+        } finally {
+            tekraFeedSnapshot.end();
         }
     }
 }
@@ -154,6 +154,46 @@ public class FileUploadService {
         }, context);
     }
 
+    /**
+     * Writes content under a caller-chosen file name, replacing an existing file of that name, and returns its
+     * relative path. Meant for content-addressed names, where the same name always means the same content.
+     */
+    public String storeFile(String subfolder, String filename, byte[] content) {
+        validateSubfolder(subfolder);
+        if (filename == null || !SAFE_FILENAME_PATTERN.matcher(filename).matches()) {
+            throw new ValidationException("Invalid file name: " + filename);
+        }
+
+        try {
+            Path uploadPath = createUploadDirectory(subfolder);
+            Path filePath = uploadPath.resolve(filename);
+            validateFileWithinUploadDirectory(filePath.normalize());
+
+            Path temp = Files.createTempFile(uploadPath, filename, ".tmp");
+            try {
+                Files.write(temp, content);
+                Files.move(temp, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return "/" + subfolder + "/" + filename;
+
+        } catch (IOException e) {
+            log.error("Error storing file {}/{}: {}", subfolder, filename, e.getMessage());
+            throw new BusinessLogicException("Failed to store file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Absolute path of a stored file given its relative path, or {@code null} if there is no such file.
+     */
+    public Path resolveFile(String filePath) {
+        validateFilePath(filePath);
+        Path absolutePath = resolveSecurePath(filePath);
+        validateFileWithinUploadDirectory(absolutePath);
+        return Files.isRegularFile(absolutePath) ? absolutePath : null;
+    }
+
     // ============ UTILITY METHODS ============
 
     public boolean fileExists(String filePath) {
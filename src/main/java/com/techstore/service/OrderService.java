@@ -263,7 +263,7 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public OrderResponseDTO getOrderById(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
         return mapToResponseDTO(order);
     }
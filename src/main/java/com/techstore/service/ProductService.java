@@ -374,8 +374,9 @@ public class ProductService {
             // Collect images for cleanup
             List<String> allImages = collectAllProductImages(product);
 
-            // Soft delete
+            // Soft delete; the next sync must not reactivate it
             product.setActive(false);
+            product.setDeactivatedBySync(false);
             productRepository.save(product);
 
             // Cleanup images
@@ -1124,6 +1125,8 @@ public class ProductService {
         product.setWarranty(dto.getWarranty());
         product.setWeight(dto.getWeight());
         product.setActive(dto.getActive());
+        // set by an admin from here on, so syncs leave it as it is
+        product.setDeactivatedBySync(false);
         product.setFeatured(dto.getFeatured());
 
         product.calculateFinalPrice();
@@ -53,7 +53,7 @@ public class S3Service {
             s3Client.putObject(putObjectRequest,
                     RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
 
-            String imageUrl = String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, region, key);
+            String imageUrl = getObjectUrl(key);
 
             log.info("Successfully uploaded image to S3: {}", imageUrl);
             return imageUrl;
@@ -64,6 +64,32 @@ public class S3Service {
         }
     }
 
+    /**
+     * Stores content under a fixed key, replacing any object with that key, and returns its public URL.
+     */
+    public String uploadObject(String key, byte[] content, String contentType) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength((long) content.length)
+                .build();
+
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(content));
+        return getObjectUrl(key);
+    }
+
+    /**
+     * Whether {@code url} points into our bucket.
+     */
+    public boolean isBucketUrl(String url) {
+        return url != null && url.startsWith(getObjectUrl(""));
+    }
+
+    private String getObjectUrl(String key) {
+        return String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, region, key);
+    }
+
     public void deleteImage(String imageUrl) {
         try {
             String key = extractKeyFromUrl(imageUrl);
@@ -1,8 +1,14 @@
 package com.techstore.service;
 
+import com.techstore.service.sync.UpstreamResponseCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -14,12 +20,19 @@ import org.w3c.dom.NodeList;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 @Service
 @RequiredArgsConstructor
@@ -27,6 +40,7 @@ import java.util.Set;
 public class TekraApiService {
 
     private final RestTemplate restTemplate;
+    private final UpstreamResponseCache upstreamResponseCache;
 
     @Value("${tekra.api.base-url:https://tekra.bg/shop/api}")
     private String baseUrl;
@@ -37,10 +51,6 @@ public class TekraApiService {
     @Value("${tekra.api.enabled:false}")
     private boolean tekraApiEnabled;
 
-    private final Map<String, List<Map<String, Object>>> productsCache = new HashMap<>();
-    private long cacheTimestamp = 0;
-    private static final long CACHE_DURATION_MS = 5 * 60 * 1000;
-
     /**
      * Get categories using JSON parsing (categories return JSON)
      */
@@ -122,14 +132,12 @@ public class TekraApiService {
     }
 
     /**
-     * Extract all unique parameters from Tekra products XML
+     * Extract all unique parameters from Tekra products
      */
-    public Map<String, Set<String>> extractTekraParametersFromProducts(String categorySlug) {
+    public Map<String, Set<String>> extractTekraParametersFromProducts(List<Map<String, Object>> products) {
         Map<String, Set<String>> parametersMap = new HashMap<>();
 
         try {
-            List<Map<String, Object>> products = getProductsRaw(categorySlug);
-
             for (Map<String, Object> product : products) {
                 // Extract all prop_* fields as parameters
                 for (Map.Entry<String, Object> entry : product.entrySet()) {
@@ -159,12 +167,10 @@ public class TekraApiService {
     /**
      * Extract all unique manufacturers from Tekra products
      */
-    public Set<String> extractTekraManufacturersFromProducts(String categorySlug) {
+    public Set<String> extractTekraManufacturersFromProducts(List<Map<String, Object>> products) {
         Set<String> manufacturers = new HashSet<>();
 
         try {
-            List<Map<String, Object>> products = getProductsRaw(categorySlug);
-
             for (Map<String, Object> product : products) {
                 String manufacturer = getStringValue(product, "manufacturer");
                 if (manufacturer != null && !manufacturer.isEmpty()) {
@@ -362,10 +368,6 @@ public class TekraApiService {
 
             log.info("Fetched {} products for category: {}", products.size(), categorySlug);
 
-            // Update cache
-            productsCache.put(categorySlug, products);
-            cacheTimestamp = System.currentTimeMillis();
-
             return products;
 
         } catch (Exception e) {
@@ -375,23 +377,8 @@ public class TekraApiService {
     }
 
     /**
-     * Clear the products cache (call this before starting a full sync)
-     */
-    public void clearCache() {
-        productsCache.clear();
-        cacheTimestamp = 0;
-        log.info("Cleared Tekra API products cache");
-    }
-
-    /**
-     * Check if cache is still valid
-     */
-    private boolean isCacheValid() {
-        return (System.currentTimeMillis() - cacheTimestamp) < CACHE_DURATION_MS;
-    }
-
-    /**
-     * Get products with caching support (updated version)
+     * Get products of a category. Syncs read feeds through {@code TekraFeedSnapshot} instead, so they are downloaded
+     * once per sync run.
      */
     public List<Map<String, Object>> getProductsRaw(String categorySlug) {
         if (!tekraApiEnabled) {
@@ -399,42 +386,19 @@ public class TekraApiService {
             return new ArrayList<>();
         }
 
-        // Check cache first
-        if (isCacheValid() && productsCache.containsKey(categorySlug)) {
-            log.debug("Returning cached products for category: {}", categorySlug);
-            return productsCache.get(categorySlug);
-        }
-
         try {
             log.info("Fetching products for category: {} (XML parsing)", categorySlug);
 
-            String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
-                    .queryParam("action", "browse")
-                    .queryParam("catSlug", categorySlug)
-                    .queryParam("page", 1)
-                    .queryParam("perPage", 100)
-                    .queryParam("allProducts", 0)
-                    .queryParam("in_stock", 1)
-                    .queryParam("out_of_stock", 1)
-                    .queryParam("order", "bestsellers")
-                    .queryParam("feed", 1)
-                    .queryParam("access_token_feed", accessToken)
-                    .toUriString();
-
-            String xmlResponse = restTemplate.getForObject(url, String.class);
+            String xmlResponse = fetchProductsXml(categorySlug);
 
             if (xmlResponse == null) {
                 log.error("Received null XML response from Tekra API for products");
                 return new ArrayList<>();
             }
 
-            List<Map<String, Object>> products = parseProductsFromXML(xmlResponse);
-
-            // Update cache
-            productsCache.put(categorySlug, products);
-            cacheTimestamp = System.currentTimeMillis();
+            List<Map<String, Object>> products = parseProducts(xmlResponse);
 
-            log.info("Extracted {} products from Tekra XML response (cached)", products.size());
+            log.info("Extracted {} products from Tekra XML response", products.size());
             return products;
 
         } catch (Exception e) {
@@ -442,4 +406,102 @@ public class TekraApiService {
             return new ArrayList<>();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Network half of {@link #getProductsRaw(String)}: downloads the products feed of a category without parsing it.
+     * Errors are thrown, not swallowed.
+     */
+    public String fetchProductsXml(String categorySlug) {
+        String url = productsFeedUrl(categorySlug);
+        return restTemplate.execute(url, HttpMethod.GET,
+                request -> {
+                    request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+                    upstreamResponseCache.addConditionalHeaders(url, request.getHeaders());
+                },
+                response -> readFeed(categorySlug, url, response));
+    }
+
+    /**
+     * Products feed of a category as last downloaded by {@link #fetchProductsXml(String)}, without a request, if it
+     * was stored at or after {@code storedSince}; {@code null} otherwise.
+     */
+    public String readCachedProductsXml(String categorySlug, Instant storedSince) {
+        String url = productsFeedUrl(categorySlug);
+        Instant storedAt = upstreamResponseCache.storedAt(url);
+        if (storedAt == null || storedAt.isBefore(storedSince)) {
+            return null;
+        }
+        try (InputStream in = upstreamResponseCache.open(url)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable cached products feed of category {}: {}", categorySlug, e.getMessage());
+            upstreamResponseCache.evict(url);
+            return null;
+        }
+    }
+
+    private String productsFeedUrl(String categorySlug) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .queryParam("action", "browse")
+                .queryParam("catSlug", categorySlug)
+                .queryParam("page", 1)
+                .queryParam("perPage", 100)
+                .queryParam("allProducts", 0)
+                .queryParam("in_stock", 1)
+                .queryParam("out_of_stock", 1)
+                .queryParam("order", "bestsellers")
+                .queryParam("feed", 1)
+                .queryParam("access_token_feed", accessToken)
+                .toUriString();
+    }
+
+    /**
+     * Decodes a (possibly gzip-encoded) feed response; {@code 304 Not Modified} is answered from the upstream cache.
+     */
+    private String readFeed(String categorySlug, String url, ClientHttpResponse response) throws IOException {
+        if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            log.info("Products feed of category {} not modified, using cached copy", categorySlug);
+            String xml;
+            try (InputStream in = upstreamResponseCache.open(url)) {
+                xml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                upstreamResponseCache.evict(url);
+                throw e;
+            }
+            upstreamResponseCache.markRevalidated(url);
+            return xml;
+        }
+
+        HttpHeaders headers = response.getHeaders();
+        InputStream body = response.getBody();
+        if ("gzip".equalsIgnoreCase(headers.getFirst(HttpHeaders.CONTENT_ENCODING))) {
+            body = new GZIPInputStream(body);
+        }
+
+        Charset charset = Optional.ofNullable(headers.getContentType())
+                .map(MediaType::getCharset)
+                .orElse(StandardCharsets.UTF_8);
+        String xml = new String(body.readAllBytes(), charset);
+
+        // stored even without validators: the phases of a sync run read it back through readCachedProductsXml
+        if (upstreamResponseCache.isEnabled()) {
+            try {
+                upstreamResponseCache.store(url, headers, new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                log.warn("Failed to cache products feed of category {}: {}", categorySlug, e.getMessage());
+            }
+        }
+        return xml;
+    }
+
+    /**
+     * CPU half of {@link #getProductsRaw(String)}: parses a feed returned by {@link #fetchProductsXml(String)}.
+     */
+    public List<Map<String, Object>> parseProducts(String xmlResponse) {
+        return parseProductsFromXML(xmlResponse);
+    }
+
+    public boolean isEnabled() {
+        return tekraApiEnabled;
+    }
+}
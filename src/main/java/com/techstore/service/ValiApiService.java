@@ -1,26 +1,37 @@
 package com.techstore.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.techstore.dto.request.CategoryRequestFromExternalDto;
 import com.techstore.dto.request.DocumentRequestDto;
 import com.techstore.dto.request.ManufacturerRequestDto;
 import com.techstore.dto.request.ParameterRequestDto;
 import com.techstore.dto.request.ProductRequestDto;
+import com.techstore.service.sync.UpstreamResponseCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
@@ -29,6 +40,8 @@ public class ValiApiService {
 
     @Qualifier("largeResponseWebClient")
     private final WebClient webClient;
+    private final UpstreamResponseCache upstreamResponseCache;
+    private final ObjectMapper objectMapper;
 
     @Value("${vali.api.base-url}")
     private String baseUrl;
@@ -39,6 +52,9 @@ public class ValiApiService {
     @Value("${vali.api.timeout}")
     private int timeout;
 
+    @Value("${vali.api.stream-deadline:600000}")
+    private long streamDeadline;
+
     @Value("${vali.api.retry-attempts}")
     private int retryAttempts;
 
@@ -80,22 +96,8 @@ public class ValiApiService {
     }
 
     public List<ParameterRequestDto> getParametersByCategory(Long categoryId) {
-        log.debug("Fetching parameters for category: {}", categoryId);
-
         try {
-            List<ParameterRequestDto> parameters = webClient.get()
-                    .uri(baseUrl + "/parameters/" + categoryId)
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiToken)
-                    .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<List<ParameterRequestDto>>() {
-                    })
-                    .timeout(Duration.ofMillis(timeout))
-                    .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelay)))
-                    .onErrorResume(DataBufferLimitException.class, ex -> {
-                        log.error("Response too large for category {}: {}", categoryId, ex.getMessage());
-                        return Mono.just(List.of());
-                    })
+            List<ParameterRequestDto> parameters = fetchParametersByCategory(categoryId)
                     .onErrorResume(WebClientResponseException.class, ex -> {
                         log.warn("Error fetching parameters for category {}: {} - {}",
                                 categoryId, ex.getStatusCode(), ex.getResponseBodyAsString());
@@ -111,18 +113,23 @@ public class ValiApiService {
         }
     }
 
-    public List<ProductRequestDto> getProductsByCategory(Long categoryId) {
-        log.debug("Fetching products for category: {}", categoryId);
+    /**
+     * Non-blocking variant of {@link #getParametersByCategory(Long)}. A 404 yields an empty list; every other
+     * failure is signalled to the subscriber so callers can isolate it per category.
+     */
+    public Mono<List<ParameterRequestDto>> fetchParametersByCategory(Long categoryId) {
+        log.debug("Fetching parameters for category: {}", categoryId);
 
-        List<ProductRequestDto> products = webClient.get()
-                .uri(baseUrl + "/products/by_category/" + categoryId + "/full")
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiToken)
-                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<ProductRequestDto>>() {
-                })
-                .timeout(Duration.ofMillis(timeout))
-                .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelay)))
+        return exchangeConditional(baseUrl + "/parameters/" + categoryId, ParameterRequestDto.class)
+                .collectList()
+                .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelay))
+                        .filter(ex -> !(ex instanceof WebClientResponseException.NotFound)))
+                .onErrorResume(WebClientResponseException.NotFound.class, ex -> Mono.just(List.of()));
+    }
+
+    public List<ProductRequestDto> getProductsByCategory(Long categoryId) {
+        List<ProductRequestDto> products = streamProductsByCategory(categoryId)
+                .collectList()
                 .onErrorResume(WebClientResponseException.class, ex -> {
                     log.warn("Error fetching products for category {}: {} - {}",
                             categoryId, ex.getStatusCode(), ex.getResponseBodyAsString());
@@ -139,6 +146,101 @@ public class ValiApiService {
         return products;
     }
 
+    /**
+     * Streams the products of a category as the response array is decoded, one element at a time, so memory use
+     * does not grow with the size of the category and {@code maxInMemorySize} applies per product rather than to
+     * the whole body. The timeout is the maximum gap between two products (or body chunks while a revalidatable
+     * response is written to the upstream cache); {@code vali.api.stream-deadline} bounds the whole request,
+     * retries included, so a server that keeps trickling products cannot hold the sync indefinitely. Hitting it
+     * fails the stream with a {@link TimeoutException} rather than completing it, so a cut-off category never
+     * counts as fully fetched.
+     * <p>
+     * Only failures before the body starts (connection errors, error statuses) are retried; a 404 completes empty.
+     */
+    public Flux<ProductRequestDto> streamProductsByCategory(Long categoryId) {
+        log.debug("Streaming products for category: {}", categoryId);
+
+        return exchangeConditional(baseUrl + "/products/by_category/" + categoryId + "/full", ProductRequestDto.class)
+                .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelay))
+                        .filter(ValiApiService::isRetryableBeforeBody))
+                .takeUntilOther(Mono.delay(Duration.ofMillis(streamDeadline))
+                        .flatMap(tick -> Mono.error(new TimeoutException("Products of category " + categoryId +
+                                " not received within " + streamDeadline + "ms"))))
+                .onErrorResume(WebClientResponseException.NotFound.class, ex -> Flux.empty());
+    }
+
+    /**
+     * GETs a JSON array as a conditional request against the {@link UpstreamResponseCache}. A {@code 304} is decoded
+     * from the cached body; a response with validators is spooled into the cache and decoded from there; anything
+     * else is decoded straight from the connection as before. Error statuses are signalled as
+     * {@link WebClientResponseException}.
+     */
+    private <T> Flux<T> exchangeConditional(String url, Class<T> type) {
+        return webClient.get()
+                .uri(url)
+                .headers(headers -> {
+                    headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + apiToken);
+                    headers.set(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+                    upstreamResponseCache.addConditionalHeaders(url, headers);
+                })
+                .exchangeToFlux(response -> {
+                    if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                        log.debug("Not modified, decoding cached response of {}", url);
+                        return response.releaseBody().thenMany(readCached(url, type));
+                    }
+                    if (response.statusCode().isError()) {
+                        return response.createException().flatMapMany(Flux::error);
+                    }
+
+                    HttpHeaders responseHeaders = response.headers().asHttpHeaders();
+                    if (!upstreamResponseCache.isCacheable(responseHeaders)) {
+                        return response.bodyToFlux(type).timeout(Duration.ofMillis(timeout));
+                    }
+
+                    return Mono.fromCallable(upstreamResponseCache::createTempFile)
+                            .flatMap(spool -> DataBufferUtils.write(
+                                            response.bodyToFlux(DataBuffer.class).timeout(Duration.ofMillis(timeout)),
+                                            spool)
+                                    .then(Mono.fromCallable(() -> {
+                                        upstreamResponseCache.store(url, responseHeaders, spool);
+                                        return spool;
+                                    }).subscribeOn(Schedulers.boundedElastic()))
+                                    .doOnError(ex -> deleteQuietly(spool)))
+                            .thenMany(readCached(url, type));
+                });
+    }
+
+    private <T> Flux<T> readCached(String url, Class<T> type) {
+        return Flux.using(
+                        () -> objectMapper.readerFor(type).<T>readValues(upstreamResponseCache.open(url)),
+                        values -> Flux.fromIterable(() -> values),
+                        values -> {
+                            try {
+                                values.close();
+                            } catch (IOException e) {
+                                log.debug("Error closing cached response of {}: {}", url, e.getMessage());
+                            }
+                        })
+                .doOnError(IOException.class, ex -> upstreamResponseCache.evict(url))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete spooled response {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static boolean isRetryableBeforeBody(Throwable ex) {
+        if (ex instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError() ||
+                    responseException.getStatusCode().value() == 429;
+        }
+        return ex instanceof WebClientRequestException;
+    }
+
     public List<DocumentRequestDto> getDocumentsByProduct(Long productId) {
         log.debug("Fetching documents for product: {}", productId);
 
@@ -182,14 +284,10 @@ public class ValiApiService {
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiToken)
                     .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
                     .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<List<DocumentRequestDto>>() {
-                    })
+                    .bodyToFlux(DocumentRequestDto.class)
+                    .collectList()
                     .timeout(Duration.ofMillis(timeout))
                     .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelay)))
-                    .onErrorResume(DataBufferLimitException.class, ex -> {
-                        log.error("Response too large for documents: {}", ex.getMessage());
-                        return Mono.just(List.of());
-                    })
                     .onErrorResume(WebClientResponseException.class, ex -> {
                         log.warn("Error fetching all documents: {} - {}",
                                 ex.getStatusCode(), ex.getResponseBodyAsString());
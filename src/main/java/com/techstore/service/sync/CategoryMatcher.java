@@ -0,0 +1,185 @@
+package com.techstore.service.sync;
+
+import com.techstore.entity.Category;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable in-memory index over categories, built once per sync and used instead of scanning
+ * {@code categoryRepository.findAll()} for every lookup.
+ * <p>
+ * Every lookup returns candidates in the order of the list the matcher was built from, so callers that apply
+ * further filters and take the first element get the same result as the previous stream-over-findAll code.
+ * Case-insensitive lookups mirror the {@code equalsIgnoreCase} comparisons they replace.
+ */
+public final class CategoryMatcher {
+
+    private final List<Category> categories;
+    private final PathNode pathRoot = new PathNode();
+    private final Map<String, List<Category>> byName = new HashMap<>();
+    private final Map<String, List<Category>> byNameAndParentName = new HashMap<>();
+    private final Map<String, List<Category>> byTekraSlug = new HashMap<>();
+    private final Map<String, List<Category>> byTekraId = new HashMap<>();
+    private final Map<String, List<Category>> bySlug = new HashMap<>();
+    private final Map<String, List<Category>> byNormalizedName = new HashMap<>();
+
+    private CategoryMatcher(List<Category> categories) {
+        this.categories = List.copyOf(categories);
+
+        for (Category category : this.categories) {
+            if (category.getCategoryPath() != null) {
+                pathRoot.insert(lower(category.getCategoryPath()).split("/", -1), category);
+            }
+            if (category.getNameBg() != null) {
+                index(byName, lower(category.getNameBg()), category);
+
+                Category parent = category.getParent();
+                if (parent != null && parent.getNameBg() != null) {
+                    index(byNameAndParentName, nameAndParentKey(category.getNameBg(), parent.getNameBg()), category);
+                }
+            }
+            if (category.getTekraSlug() != null) {
+                index(byTekraSlug, lower(category.getTekraSlug()), category);
+            }
+            if (category.getTekraId() != null) {
+                index(byTekraId, category.getTekraId(), category);
+            }
+            if (category.getSlug() != null) {
+                index(bySlug, category.getSlug(), category);
+            }
+
+            String normalizedBg = normalizeName(category.getNameBg());
+            String normalizedEn = normalizeName(category.getNameEn());
+            index(byNormalizedName, normalizedBg, category);
+            if (!normalizedEn.equals(normalizedBg)) {
+                index(byNormalizedName, normalizedEn, category);
+            }
+        }
+    }
+
+    public static CategoryMatcher of(Collection<Category> categories) {
+        return new CategoryMatcher(new ArrayList<>(categories));
+    }
+
+    /**
+     * Returns a new matcher in which {@code category} replaces the entry with the same id, or is appended if it is
+     * new. Used while categories are being created or re-parented during the categories sync.
+     */
+    public CategoryMatcher with(Category category) {
+        List<Category> updated = new ArrayList<>(categories.size() + 1);
+        boolean replaced = false;
+
+        for (Category existing : categories) {
+            if (existing == category ||
+                    (existing.getId() != null && Objects.equals(existing.getId(), category.getId()))) {
+                updated.add(category);
+                replaced = true;
+            } else {
+                updated.add(existing);
+            }
+        }
+        if (!replaced) {
+            updated.add(category);
+        }
+
+        return new CategoryMatcher(updated);
+    }
+
+    public List<Category> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Case-insensitive exact match on {@code categoryPath}, resolved by walking the path segment trie.
+     */
+    public List<Category> findByPath(String path) {
+        if (path == null) {
+            return List.of();
+        }
+
+        PathNode node = pathRoot;
+        for (String segment : lower(path).split("/", -1)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return List.of();
+            }
+        }
+        return Collections.unmodifiableList(node.categories);
+    }
+
+    public List<Category> findByName(String nameBg) {
+        return nameBg == null ? List.of() : lookup(byName, lower(nameBg));
+    }
+
+    public List<Category> findByNameAndParentName(String nameBg, String parentNameBg) {
+        if (nameBg == null || parentNameBg == null) {
+            return List.of();
+        }
+        return lookup(byNameAndParentName, nameAndParentKey(nameBg, parentNameBg));
+    }
+
+    public List<Category> findByTekraSlugIgnoreCase(String tekraSlug) {
+        return tekraSlug == null ? List.of() : lookup(byTekraSlug, lower(tekraSlug));
+    }
+
+    public List<Category> findByTekraId(String tekraId) {
+        return tekraId == null ? List.of() : lookup(byTekraId, tekraId);
+    }
+
+    public List<Category> findBySlug(String slug) {
+        return slug == null ? List.of() : lookup(bySlug, slug);
+    }
+
+    /**
+     * Categories whose Bulgarian or English name equals {@code name} after {@link #normalizeName(String)}.
+     */
+    public List<Category> findByNormalizedName(String name) {
+        return lookup(byNormalizedName, normalizeName(name));
+    }
+
+    public static String normalizeName(String name) {
+        if (name == null) return "";
+
+        return name.toLowerCase()
+                .trim()
+                .replaceAll("[^a-zа-я0-9]+", "")
+                .replaceAll("\\s+", "");
+    }
+
+    private static String nameAndParentKey(String nameBg, String parentNameBg) {
+        return lower(nameBg) + '\u0000' + lower(parentNameBg);
+    }
+
+    private static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static void index(Map<String, List<Category>> index, String key, Category category) {
+        index.computeIfAbsent(key, k -> new ArrayList<>()).add(category);
+    }
+
+    private static List<Category> lookup(Map<String, List<Category>> index, String key) {
+        List<Category> result = index.get(key);
+        return result == null ? List.of() : Collections.unmodifiableList(result);
+    }
+
+    private static class PathNode {
+        final Map<String, PathNode> children = new HashMap<>();
+        final List<Category> categories = new ArrayList<>();
+
+        void insert(String[] segments, Category category) {
+            PathNode node = this;
+            for (String segment : segments) {
+                node = node.children.computeIfAbsent(segment, s -> new PathNode());
+            }
+            node.categories.add(category);
+        }
+    }
+}
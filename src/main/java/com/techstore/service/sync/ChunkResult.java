@@ -0,0 +1,18 @@
+package com.techstore.service.sync;
+
+/**
+ * Counters of one written chunk of products.
+ */
+class ChunkResult {
+    long processed;
+    long created;
+    long updated;
+    long errors;
+
+    ChunkResult(long processed, long created, long updated, long errors) {
+        this.processed = processed;
+        this.created = created;
+        this.updated = updated;
+        this.errors = errors;
+    }
+}
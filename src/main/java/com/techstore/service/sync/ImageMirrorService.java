@@ -0,0 +1,317 @@
+package com.techstore.service.sync;
+
+import com.techstore.config.WorkloadRoutingDataSource;
+import com.techstore.repository.ImageMirrorRepository;
+import com.techstore.service.FileUploadService;
+import com.techstore.service.S3Service;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copies supplier product images to our own storage, so serving a product page never waits on a supplier host.
+ * <p>
+ * Runs after each product sync and on a fixed delay. Every supplier URL is downloaded once: the result is kept in
+ * {@code image_mirrors}, and URLs serving identical content (by SHA-256) share one stored copy. Products are then
+ * pointed at the copies; the sync writers do the same for URLs mirrored earlier, so later syncs keep them. Failed
+ * downloads are retried on later runs up to {@code max-attempts} times, and the supplier URL stays in use meanwhile.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageMirrorService {
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif",
+            "image/webp", "webp"
+    );
+
+    @Value("${app.images.mirror.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.images.mirror.storage:s3}")
+    private String storage;
+
+    @Value("${app.images.mirror.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.images.mirror.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.images.mirror.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.images.mirror.max-bytes:10485760}")
+    private long maxBytes;
+
+    @Value("${app.images.mirror.timeout-seconds:20}")
+    private int timeoutSeconds;
+
+    private final ImageMirrorRepository imageMirrorRepository;
+    private final S3Service s3Service;
+    private final FileUploadService fileUploadService;
+    private final ProductChangeRefresher productChangeRefresher;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile HttpClient httpClient;
+
+    @Async
+    public void mirrorPendingAsync() {
+        mirrorPending();
+    }
+
+    @Scheduled(fixedDelayString = "${app.images.mirror.interval-ms:900000}",
+            initialDelayString = "${app.images.mirror.initial-delay-ms:300000}")
+    public void mirrorPending() {
+        if (!enabled) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.debug("Image mirroring is already running, skipping");
+            return;
+        }
+
+        try (WorkloadRoutingDataSource.Scope syncPool = WorkloadRoutingDataSource.useSyncPool()) {
+            MirrorResult result = mirrorAll();
+            if (result.attempted > 0 || result.rewritten > 0) {
+                log.info("Image mirroring: {} URLs, {} stored, {} reused, {} failed, images of {} products rewritten",
+                        result.attempted, result.stored, result.reused, result.failed, result.rewritten);
+            }
+        } catch (Exception e) {
+            log.error("Image mirroring failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // ===========================================
+    // RUN
+    // ===========================================
+
+    private MirrorResult mirrorAll() throws InterruptedException {
+        MirrorResult result = new MirrorResult();
+        LocalDateTime started = LocalDateTime.now();
+        Set<String> attempted = new HashSet<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "Image-Mirror");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                List<String> urls = imageMirrorRepository.findUnmirroredUrls(batchSize, maxAttempts, started);
+                // failures are stamped with the database clock; don't rely on it being behind ours
+                urls.removeIf(url -> !attempted.add(url));
+                if (urls.isEmpty()) {
+                    break;
+                }
+
+                List<Callable<Outcome>> tasks = new ArrayList<>();
+                for (String url : urls) {
+                    tasks.add(() -> {
+                        try (WorkloadRoutingDataSource.Scope syncPool = WorkloadRoutingDataSource.useSyncPool()) {
+                            return mirror(url);
+                        }
+                    });
+                }
+                for (Future<Outcome> future : executor.invokeAll(tasks)) {
+                    result.record(outcome(future));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<Long> rewrittenProductIds = imageMirrorRepository.rewriteProductImages();
+        // the rewrite goes through JDBC, so cached product pages would keep serving the supplier URLs
+        productChangeRefresher.evictProducts(rewrittenProductIds);
+        result.rewritten = rewrittenProductIds.size();
+        return result;
+    }
+
+    private static Outcome outcome(Future<Outcome> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return Outcome.FAILED;
+        }
+    }
+
+    private Outcome mirror(String url) {
+        try {
+            Download download = download(url);
+            String hash = sha256(download.content);
+
+            String mirroredUrl = imageMirrorRepository.findMirroredUrlByHash(hash);
+            Outcome outcome = Outcome.REUSED;
+            if (mirroredUrl == null) {
+                mirroredUrl = store(hash, download);
+                outcome = Outcome.STORED;
+            }
+
+            imageMirrorRepository.saveMirror(url, hash, mirroredUrl, download.contentType, download.content.length);
+            return outcome;
+
+        } catch (Exception e) {
+            log.debug("Could not mirror image {}: {}", url, e.getMessage());
+            imageMirrorRepository.recordFailure(url, e.getClass().getSimpleName() + ": " + e.getMessage());
+            return Outcome.FAILED;
+        }
+    }
+
+    // ===========================================
+    // DOWNLOAD AND STORE
+    // ===========================================
+
+    private Download download(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .header("Accept", "image/*")
+                .GET()
+                .build();
+
+        HttpResponse<InputStream> response = httpClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+
+            long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (length > maxBytes) {
+                throw new IOException("Image is " + length + " bytes, limit is " + maxBytes);
+            }
+            byte[] content = body.readNBytes((int) Math.min(maxBytes + 1, Integer.MAX_VALUE));
+            if (content.length > maxBytes) {
+                throw new IOException("Image exceeds " + maxBytes + " bytes");
+            }
+            if (content.length == 0) {
+                throw new IOException("Empty response");
+            }
+
+            String contentType = response.headers().firstValue("Content-Type")
+                    .map(value -> value.split(";")[0].trim().toLowerCase(Locale.ROOT))
+                    .filter(EXTENSIONS::containsKey)
+                    .orElseGet(() -> guessContentType(content));
+            if (contentType == null) {
+                throw new IOException("Unsupported content type "
+                        + response.headers().firstValue("Content-Type").orElse("(none)"));
+            }
+
+            return new Download(content, contentType);
+        }
+    }
+
+    private static String guessContentType(byte[] content) {
+        try {
+            String guessed = URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(content));
+            return guessed != null && EXTENSIONS.containsKey(guessed) ? guessed : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores content under a name derived from its hash, so storing the same image twice overwrites one object.
+     */
+    private String store(String hash, Download download) {
+        String extension = EXTENSIONS.get(download.contentType);
+        if ("local".equalsIgnoreCase(storage)) {
+            return fileUploadService.storeFile("products", "mirror_" + hash + "." + extension, download.content);
+        }
+        return s3Service.uploadObject("products/mirror/" + hash + "." + extension, download.content,
+                download.contentType);
+    }
+
+    private HttpClient httpClient() {
+        HttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    client = HttpClient.newBuilder()
+                            .connectTimeout(Duration.ofSeconds(timeoutSeconds))
+                            .followRedirects(HttpClient.Redirect.NORMAL)
+                            .build();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ===========================================
+    // RESULT
+    // ===========================================
+
+    private enum Outcome {
+        STORED, REUSED, FAILED
+    }
+
+    private static class Download {
+        private final byte[] content;
+        private final String contentType;
+
+        Download(byte[] content, String contentType) {
+            this.content = content;
+            this.contentType = contentType;
+        }
+    }
+
+    private static class MirrorResult {
+        private int attempted;
+        private int stored;
+        private int reused;
+        private int failed;
+        private int rewritten;
+
+        void record(Outcome outcome) {
+            attempted++;
+            switch (outcome) {
+                case STORED -> stored++;
+                case REUSED -> reused++;
+                case FAILED -> failed++;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.techstore.service.sync;
+
+import com.techstore.entity.Manufacturer;
+import com.techstore.repository.ManufacturerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Sync-scoped manufacturer lookup, indexed by external id, exact name and normalized name.
+ * <p>
+ * Every sync creates its own resolver, so syncs running at the same time never share the index or the queue of
+ * manufacturers to insert. The index is loaded on first use. Manufacturers created on a miss are queued and persisted
+ * together by {@link #flushPending()}, which has to run before the products referencing them are written.
+ */
+@Slf4j
+public class ManufacturerResolver {
+
+    private final ManufacturerRepository manufacturerRepository;
+
+    private Index index;
+    private final List<Manufacturer> pending = new ArrayList<>();
+
+    public ManufacturerResolver(ManufacturerRepository manufacturerRepository) {
+        this.manufacturerRepository = manufacturerRepository;
+    }
+
+    public Optional<Manufacturer> findByExternalId(Long externalId) {
+        if (externalId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(index().byExternalId.get(externalId));
+    }
+
+    public Optional<Manufacturer> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(index().byName.get(name));
+    }
+
+    /**
+     * Exact name, then normalized name; otherwise a manufacturer built by {@code factory} is queued for insert and
+     * returned. Later calls for the same normalized name receive the same instance.
+     */
+    public Manufacturer resolveOrCreate(String name, Function<String, Manufacturer> factory) {
+        Index current = index();
+
+        Manufacturer manufacturer = current.byName.get(name);
+        if (manufacturer != null) {
+            return manufacturer;
+        }
+
+        manufacturer = current.byNormalizedName.get(normalizeName(name));
+        if (manufacturer != null) {
+            return manufacturer;
+        }
+
+        Manufacturer created = factory.apply(name);
+        current.add(created);
+        pending.add(created);
+        log.info("Queued new manufacturer: {}", name);
+        return created;
+    }
+
+    /**
+     * Persists manufacturers queued by {@link #resolveOrCreate} so that they have ids.
+     *
+     * @return number of created manufacturers
+     */
+    public int flushPending() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Manufacturer> toSave = new ArrayList<>(pending);
+        manufacturerRepository.saveAll(toSave);
+        pending.clear();
+        resetOnRollback();
+
+        log.info("Created {} new manufacturers", toSave.size());
+        return toSave.size();
+    }
+
+    /**
+     * Drops the index, which is reloaded on next use. Manufacturers queued but not yet flushed stay queued and are
+     * indexed again on reload, since products being mapped may already reference them.
+     */
+    public void reset() {
+        index = null;
+    }
+
+    public static String normalizeName(String name) {
+        if (name == null) return "";
+
+        return name.toLowerCase()
+                .trim()
+                .replaceAll("\\s+", " ")
+                .replaceAll("[^a-zа-я0-9\\s]+", "");
+    }
+
+    private Index index() {
+        if (index == null) {
+            index = new Index(manufacturerRepository.findAll());
+            pending.forEach(index::add);
+            log.debug("Loaded {} manufacturers into resolver", index.byName.size());
+        }
+        return index;
+    }
+
+    private void resetOnRollback() {
+        // a rolled back flush leaves ids in the index that were never committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        reset();
+                    }
+                }
+            });
+        }
+    }
+
+    private static class Index {
+        final Map<Long, Manufacturer> byExternalId = new HashMap<>();
+        final Map<String, Manufacturer> byName = new HashMap<>();
+        final Map<String, Manufacturer> byNormalizedName = new HashMap<>();
+
+        Index(List<Manufacturer> manufacturers) {
+            manufacturers.forEach(this::add);
+        }
+
+        void add(Manufacturer manufacturer) {
+            if (manufacturer.getExternalId() != null) {
+                byExternalId.putIfAbsent(manufacturer.getExternalId(), manufacturer);
+            }
+            if (manufacturer.getName() != null && !manufacturer.getName().isEmpty()) {
+                byName.putIfAbsent(manufacturer.getName(), manufacturer);
+                byNormalizedName.putIfAbsent(normalizeName(manufacturer.getName()), manufacturer);
+            }
+        }
+    }
+}
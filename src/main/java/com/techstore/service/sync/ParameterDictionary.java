@@ -0,0 +1,174 @@
+package com.techstore.service.sync;
+
+import com.techstore.entity.Parameter;
+import com.techstore.entity.ParameterOption;
+import com.techstore.repository.ParameterRepository;
+import com.techstore.repository.ParameterSyncWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Sync-scoped dictionary of parameters and their options, used while mapping product parameters.
+ * <p>
+ * Parameters of a category are loaded together with their options in one query the first time the category is
+ * seen. Options created while mapping products are only assigned an id on {@link #flushPendingOptions()}, which has
+ * to run before the products referencing them are written.
+ */
+@Slf4j
+public class ParameterDictionary {
+
+    private final ParameterRepository parameterRepository;
+    private final ParameterSyncWriter parameterSyncWriter;
+
+    private final Map<Long, CategoryParameters> categories = new HashMap<>();
+    private final List<ParameterOption> pendingOptions = new ArrayList<>();
+
+    public ParameterDictionary(ParameterRepository parameterRepository, ParameterSyncWriter parameterSyncWriter) {
+        this.parameterRepository = parameterRepository;
+        this.parameterSyncWriter = parameterSyncWriter;
+    }
+
+    public Optional<Parameter> findByTekraKey(Long categoryId, String tekraKey) {
+        return Optional.ofNullable(category(categoryId).byTekraKey.get(tekraKey));
+    }
+
+    public Optional<Parameter> findByNameBg(Long categoryId, String nameBg) {
+        return Optional.ofNullable(category(categoryId).byNameBg.get(nameBg));
+    }
+
+    public Optional<Parameter> findByExternalId(Long categoryId, Long externalId) {
+        return Optional.ofNullable(category(categoryId).byExternalId.get(externalId));
+    }
+
+    public Optional<ParameterOption> findOptionByExternalId(Parameter parameter, Long externalId) {
+        return Optional.ofNullable(options(parameter).byExternalId.get(externalId));
+    }
+
+    /**
+     * Same resolution order as the per-product repository lookups it replaces: exact Bulgarian name, then
+     * normalized Bulgarian or English name in option order, otherwise a new option queued for insert.
+     */
+    public ParameterOption findOrCreateOption(Parameter parameter, String value) {
+        ParameterOptions options = options(parameter);
+
+        ParameterOption option = options.byNameBg.get(value);
+        if (option != null) {
+            return option;
+        }
+
+        option = options.byNormalizedValue.get(normalizeValue(value));
+        if (option != null) {
+            log.debug("Found existing parameter option by normalized value: {} ≈ {}", value, option.getNameBg());
+            return option;
+        }
+
+        ParameterOption newOption = new ParameterOption();
+        newOption.setParameter(parameter);
+        newOption.setNameBg(value);
+        newOption.setNameEn(value);
+        newOption.setOrder(options.size);
+
+        options.add(newOption);
+        pendingOptions.add(newOption);
+        return newOption;
+    }
+
+    /**
+     * Inserts options created since the last flush in one batch.
+     *
+     * @return number of inserted options
+     */
+    public int flushPendingOptions() {
+        if (pendingOptions.isEmpty()) {
+            return 0;
+        }
+
+        int count = pendingOptions.size();
+        parameterSyncWriter.insertOptions(pendingOptions);
+        pendingOptions.clear();
+
+        log.debug("Created {} new parameter options", count);
+        return count;
+    }
+
+    public static String normalizeValue(String value) {
+        if (value == null) return "";
+
+        return value.toLowerCase()
+                .trim()
+                .replaceAll("\\s+", " ");
+    }
+
+    private CategoryParameters category(Long categoryId) {
+        return categories.computeIfAbsent(categoryId,
+                id -> new CategoryParameters(parameterRepository.findByCategoryIdWithOptions(id)));
+    }
+
+    private ParameterOptions options(Parameter parameter) {
+        Long categoryId = parameter.getCategory() != null ? parameter.getCategory().getId() : null;
+        CategoryParameters categoryParameters = category(categoryId);
+
+        ParameterOptions options = categoryParameters.options.get(parameter.getId());
+        if (options == null) {
+            // parameter not known to this dictionary yet (e.g. created after the category was loaded)
+            options = new ParameterOptions(parameter.getOptions());
+            categoryParameters.options.put(parameter.getId(), options);
+        }
+        return options;
+    }
+
+    private static class CategoryParameters {
+        final Map<String, Parameter> byTekraKey = new HashMap<>();
+        final Map<String, Parameter> byNameBg = new HashMap<>();
+        final Map<Long, Parameter> byExternalId = new HashMap<>();
+        final Map<Long, ParameterOptions> options = new HashMap<>();
+
+        CategoryParameters(List<Parameter> parameters) {
+            for (Parameter parameter : parameters) {
+                if (parameter.getTekraKey() != null) {
+                    byTekraKey.putIfAbsent(parameter.getTekraKey(), parameter);
+                }
+                if (parameter.getNameBg() != null) {
+                    byNameBg.putIfAbsent(parameter.getNameBg(), parameter);
+                }
+                if (parameter.getExternalId() != null) {
+                    byExternalId.putIfAbsent(parameter.getExternalId(), parameter);
+                }
+                options.put(parameter.getId(), new ParameterOptions(parameter.getOptions()));
+            }
+        }
+    }
+
+    private static class ParameterOptions {
+        final Map<String, ParameterOption> byNameBg = new HashMap<>();
+        final Map<String, ParameterOption> byNormalizedValue = new HashMap<>();
+        final Map<Long, ParameterOption> byExternalId = new HashMap<>();
+        int size;
+
+        ParameterOptions(Iterable<ParameterOption> options) {
+            List<ParameterOption> sorted = new ArrayList<>();
+            options.forEach(sorted::add);
+            sorted.sort(Comparator.comparing(ParameterOption::getOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(ParameterOption::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+            sorted.forEach(this::add);
+        }
+
+        void add(ParameterOption option) {
+            size++;
+            if (option.getNameBg() != null) {
+                byNameBg.putIfAbsent(option.getNameBg(), option);
+            }
+            byNormalizedValue.putIfAbsent(normalizeValue(option.getNameBg()), option);
+            byNormalizedValue.putIfAbsent(normalizeValue(option.getNameEn()), option);
+            if (option.getExternalId() != null) {
+                byExternalId.putIfAbsent(option.getExternalId(), option);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.techstore.service.sync;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.techstore.entity.Product;
+import com.techstore.repository.ProductRepository;
+import com.techstore.repository.ProductSyncWriter;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.work.SearchIndexingPlan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Post-sync stage that refreshes what depends on product data, limited to the products a sync actually changed.
+ * <p>
+ * The sync writers go through JDBC, so neither the Hibernate Search (Lucene) index nor the {@code products} cache see
+ * their writes. After a product sync, the products stamped with its {@code last_changed_sync_id} are reindexed by id,
+ * their cache entries and the cached product lists are evicted, and {@code ANALYZE} runs only when the changed share
+ * of the catalog reaches {@code app.sync.refresh.analyze-threshold}. A quiet sync costs one indexed query.
+ */
+@Slf4j
+@Service
+public class ProductChangeRefresher {
+
+    private static final String PRODUCTS_CACHE = "products";
+    private static final String PRODUCT_LIST_KEY_PREFIX = "all_";
+
+    private final ProductSyncWriter productSyncWriter;
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final CacheManager cacheManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate indexTransaction;
+
+    @Value("${app.sync.refresh.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.sync.refresh.reindex-batch-size:200}")
+    private int reindexBatchSize;
+
+    @Value("${app.sync.refresh.analyze-threshold:0.1}")
+    private double analyzeThreshold;
+
+    public ProductChangeRefresher(ProductSyncWriter productSyncWriter,
+                                  ProductRepository productRepository,
+                                  EntityManager entityManager,
+                                  CacheManager cacheManager,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager) {
+        this.productSyncWriter = productSyncWriter;
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.cacheManager = cacheManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.indexTransaction = new TransactionTemplate(transactionManager);
+        this.indexTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Refreshes search index, cache and statistics for the products changed by the sync {@code syncId}. Failures are
+     * logged and do not fail the sync; the data itself is already committed.
+     */
+    public void refresh(String source, Long syncId) {
+        if (!enabled || syncId == null) {
+            return;
+        }
+
+        try {
+            long startTime = System.currentTimeMillis();
+            List<Long> changedIds = productSyncWriter.findChangedProductIds(syncId);
+            if (changedIds.isEmpty()) {
+                log.info("{} sync {} changed no products, nothing to refresh", source, syncId);
+                return;
+            }
+
+            reindex(changedIds);
+            evictCachedProducts(changedIds);
+            boolean analyzed = analyzeIfNeeded(changedIds.size());
+
+            log.info("Refreshed {} products changed by {} sync {} in {}ms{}", changedIds.size(), source, syncId,
+                    System.currentTimeMillis() - startTime, analyzed ? " (statistics updated)" : "");
+
+        } catch (Exception e) {
+            log.error("Post-sync refresh of {} sync {} failed: {}", source, syncId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Evicts the cached entries of products rewritten outside a sync, such as image URLs pointed at their mirrored
+     * copies. Such writes stamp no sync, and none of them touch indexed fields.
+     */
+    public void evictProducts(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        try {
+            evictCachedProducts(productIds);
+        } catch (Exception e) {
+            log.error("Evicting {} cached products failed: {}", productIds.size(), e.getMessage(), e);
+        }
+    }
+
+    // ===========================================
+    // SEARCH INDEX
+    // ===========================================
+
+    private void reindex(List<Long> productIds) {
+        for (int from = 0; from < productIds.size(); from += reindexBatchSize) {
+            List<Long> batch = productIds.subList(from, Math.min(from + reindexBatchSize, productIds.size()));
+            // the plan is executed on commit, and each batch's persistence context ends with its transaction
+            indexTransaction.executeWithoutResult(status -> {
+                SearchIndexingPlan indexingPlan = Search.session(entityManager).indexingPlan();
+                for (Product product : productRepository.findAllById(batch)) {
+                    indexingPlan.addOrUpdate(product);
+                }
+            });
+        }
+    }
+
+    // ===========================================
+    // CACHE
+    // ===========================================
+
+    /**
+     * Evicts the cached products ({@code id_lang} keys) of the changed ids and every cached product page; entries of
+     * other products stay.
+     */
+    private void evictCachedProducts(Collection<Long> productIds) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(PRODUCTS_CACHE);
+        if (cache == null) {
+            return;
+        }
+        if (!(cache.getNativeCache() instanceof Cache<?, ?> nativeCache)) {
+            cache.clear();
+            return;
+        }
+
+        Set<String> idPrefixes = new HashSet<>();
+        for (Long productId : productIds) {
+            idPrefixes.add(productId + "_");
+        }
+        nativeCache.asMap().keySet().removeIf(key -> {
+            String value = String.valueOf(key);
+            int separator = value.indexOf('_');
+            return value.startsWith(PRODUCT_LIST_KEY_PREFIX)
+                    || (separator > 0 && idPrefixes.contains(value.substring(0, separator + 1)));
+        });
+    }
+
+    // ===========================================
+    // STATISTICS
+    // ===========================================
+
+    private boolean analyzeIfNeeded(int changedCount) {
+        Long estimatedRows = jdbcTemplate.queryForObject(
+                "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = 'products'::regclass", Long.class);
+        // reltuples is -1 (clamped to 0) until the table was analyzed for the first time
+        if (estimatedRows != null && estimatedRows > 0 && (double) changedCount / estimatedRows < analyzeThreshold) {
+            return false;
+        }
+
+        jdbcTemplate.execute("ANALYZE products");
+        jdbcTemplate.execute("ANALYZE product_parameters");
+        jdbcTemplate.execute("ANALYZE additional_images");
+        return true;
+    }
+}
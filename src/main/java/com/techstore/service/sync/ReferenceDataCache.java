@@ -0,0 +1,68 @@
+package com.techstore.service.sync;
+
+import com.techstore.entity.Category;
+import com.techstore.entity.Manufacturer;
+import com.techstore.entity.Parameter;
+import com.techstore.entity.ParameterOption;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Evicts the Hibernate second-level cache regions of the reference entities after a sync has written them.
+ * <p>
+ * Categories, manufacturers, parameters and their options are cached read-write, which keeps the cache right for
+ * writes made through JPA. The sync writers mostly use JDBC, so after each sync the affected regions are emptied as a
+ * whole and refill on the next product requests. Inside a transaction the eviction waits until it has completed, so a
+ * concurrent request cannot cache the rows the sync is still writing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public void evictCategories() {
+        evict(cache -> {
+            cache.evictEntityData(Category.class);
+            cache.evictCollectionData(Category.class.getName() + ".children");
+        }, "categories");
+    }
+
+    public void evictManufacturers() {
+        evict(cache -> cache.evictEntityData(Manufacturer.class), "manufacturers");
+    }
+
+    public void evictParameters() {
+        evict(cache -> {
+            cache.evictEntityData(Parameter.class);
+            cache.evictCollectionData(Parameter.class.getName() + ".options");
+            cache.evictEntityData(ParameterOption.class);
+        }, "parameters");
+    }
+
+    private void evict(Consumer<Cache> eviction, String what) {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.accept(cache);
+            log.debug("Evicted cached {}", what);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                eviction.accept(cache);
+                log.debug("Evicted cached {}", what);
+            }
+        });
+    }
+}
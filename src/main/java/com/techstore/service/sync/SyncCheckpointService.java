@@ -0,0 +1,224 @@
+package com.techstore.service.sync;
+
+import com.techstore.entity.SyncCheckpoint;
+import com.techstore.entity.SyncLog;
+import com.techstore.repository.SyncCheckpointRepository;
+import com.techstore.repository.SyncLogRepository;
+import com.techstore.util.LogHelper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.techstore.util.LogHelper.LOG_STATUS_IN_PROGRESS;
+import static com.techstore.util.LogHelper.LOG_STATUS_SUCCESS;
+
+/**
+ * Per-category checkpoints for the product syncs.
+ * <p>
+ * Every chunk of products is written in its own short transaction together with the checkpoint of its category,
+ * so after a crash the {@code sync_checkpoints} rows describe exactly what was committed. A run started with
+ * {@code resume = true} continues the latest unfinished run of the same sync type: completed categories are
+ * skipped, and categories that were in progress skip the chunks they already committed. Chunks are skipped by their
+ * position in the re-fetched feed, so categories resumed that way are left out of the end-of-run sweep.
+ */
+@Service
+@Slf4j
+public class SyncCheckpointService {
+
+    public static final String CHECKPOINT_IN_PROGRESS = "IN_PROGRESS";
+    public static final String CHECKPOINT_COMPLETED = "COMPLETED";
+
+    private final SyncCheckpointRepository syncCheckpointRepository;
+    private final SyncLogRepository syncLogRepository;
+    private final LogHelper logHelper;
+    private final TransactionTemplate chunkTransaction;
+
+    @Value("${app.sync.resume-max-age-hours:24}")
+    private long resumeMaxAgeHours;
+
+    public SyncCheckpointService(SyncCheckpointRepository syncCheckpointRepository,
+                                 SyncLogRepository syncLogRepository,
+                                 LogHelper logHelper,
+                                 PlatformTransactionManager transactionManager) {
+        this.syncCheckpointRepository = syncCheckpointRepository;
+        this.syncLogRepository = syncLogRepository;
+        this.logHelper = logHelper;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Starts a run of {@code syncType}. With {@code resume}, the latest run of that type is continued if it did not
+     * succeed and is younger than {@code app.sync.resume-max-age-hours}; otherwise a new run is started.
+     */
+    public SyncRun start(String syncType, boolean resume) {
+        if (resume) {
+            LocalDateTime oldestResumable = LocalDateTime.now().minusHours(resumeMaxAgeHours);
+            Optional<SyncLog> interrupted = syncLogRepository.findTopBySyncTypeOrderByCreatedAtDesc(syncType)
+                    .filter(syncLog -> !LOG_STATUS_SUCCESS.equals(syncLog.getStatus()))
+                    .filter(syncLog -> syncLog.getCreatedAt() != null && syncLog.getCreatedAt().isAfter(oldestResumable));
+
+            if (interrupted.isPresent()) {
+                SyncLog syncLog = interrupted.get();
+                syncLog.setStatus(LOG_STATUS_IN_PROGRESS);
+                syncLog = syncLogRepository.save(syncLog);
+
+                SyncRun run = new SyncRun(syncLog, syncCheckpointRepository.findBySyncLogId(syncLog.getId()), true);
+                log.info("Resuming {} run {} - {} categories completed, {} in progress",
+                        syncType, syncLog.getId(), run.completedCategories(),
+                        run.checkpoints.size() - run.completedCategories());
+                return run;
+            }
+
+            log.info("No interrupted {} run to resume, starting a new one", syncType);
+        }
+
+        return new SyncRun(logHelper.createSyncLogSimple(syncType), List.of(), false);
+    }
+
+    /**
+     * Runs {@code chunk} in a new transaction and records it in the checkpoint of {@code categoryId} before commit.
+     * If the chunk fails, or the sync lock was lost meanwhile, nothing of it is committed and the checkpoint is left
+     * as it was.
+     */
+    public ChunkResult commitChunk(SyncRun run, Long categoryId, Supplier<ChunkResult> chunk) {
+        SyncCheckpoint[] saved = new SyncCheckpoint[1];
+
+        ChunkResult result = chunkTransaction.execute(status -> {
+            ChunkResult chunkResult = chunk.get();
+            SyncLockService.checkLease();
+
+            SyncCheckpoint checkpoint = copyOf(run.checkpoint(categoryId));
+            checkpoint.setChunksCommitted(checkpoint.getChunksCommitted() + 1);
+            checkpoint.setRecordsProcessed(checkpoint.getRecordsProcessed() + chunkResult.processed);
+            checkpoint.setRecordsCreated(checkpoint.getRecordsCreated() + chunkResult.created);
+            checkpoint.setRecordsUpdated(checkpoint.getRecordsUpdated() + chunkResult.updated);
+            checkpoint.setRecordsFailed(checkpoint.getRecordsFailed() + chunkResult.errors);
+            saved[0] = syncCheckpointRepository.save(checkpoint);
+
+            return chunkResult;
+        });
+
+        run.checkpoints.put(categoryId, saved[0]);
+        return result;
+    }
+
+    /**
+     * Marks a category as fully synced, so that a resumed run skips it.
+     */
+    public void completeCategory(SyncRun run, Long categoryId) {
+        SyncLockService.checkLease();
+        SyncCheckpoint checkpoint = copyOf(run.checkpoint(categoryId));
+        checkpoint.setStatus(CHECKPOINT_COMPLETED);
+        run.checkpoints.put(categoryId, chunkTransaction.execute(status -> syncCheckpointRepository.save(checkpoint)));
+    }
+
+    private static SyncCheckpoint copyOf(SyncCheckpoint source) {
+        SyncCheckpoint copy = new SyncCheckpoint();
+        copy.setId(source.getId());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setSyncLog(source.getSyncLog());
+        copy.setCategoryId(source.getCategoryId());
+        copy.setStatus(source.getStatus());
+        copy.setChunksCommitted(source.getChunksCommitted());
+        copy.setRecordsProcessed(source.getRecordsProcessed());
+        copy.setRecordsCreated(source.getRecordsCreated());
+        copy.setRecordsUpdated(source.getRecordsUpdated());
+        copy.setRecordsFailed(source.getRecordsFailed());
+        copy.setResumedMidFeed(source.getResumedMidFeed());
+        return copy;
+    }
+
+    /**
+     * State of one (possibly resumed) product sync run. Only used from the thread running the sync.
+     */
+    static class SyncRun {
+        @Getter
+        private final SyncLog syncLog;
+        @Getter
+        private final boolean resumed;
+        private final Map<Long, SyncCheckpoint> checkpoints = new HashMap<>();
+
+        SyncRun(SyncLog syncLog, List<SyncCheckpoint> checkpoints, boolean resumed) {
+            this.syncLog = syncLog;
+            this.resumed = resumed;
+            checkpoints.forEach(checkpoint -> {
+                if (resumed && CHECKPOINT_IN_PROGRESS.equals(checkpoint.getStatus())
+                        && checkpoint.getChunksCommitted() > 0) {
+                    // saved with the next chunk or completion of the category
+                    checkpoint.setResumedMidFeed(true);
+                }
+                this.checkpoints.put(checkpoint.getCategoryId(), checkpoint);
+            });
+        }
+
+        boolean isCompleted(Long categoryId) {
+            SyncCheckpoint checkpoint = checkpoints.get(categoryId);
+            return checkpoint != null && CHECKPOINT_COMPLETED.equals(checkpoint.getStatus());
+        }
+
+        int committedChunks(Long categoryId) {
+            SyncCheckpoint checkpoint = checkpoints.get(categoryId);
+            return checkpoint != null ? checkpoint.getChunksCommitted() : 0;
+        }
+
+        /**
+         * Categories completed by this run, including attempts before a resume, in which every listed product was
+         * written. Only their feeds are complete enough for the end-of-run sweep; a product that failed to map or
+         * write was not stamped as seen and would be deactivated. Categories resumed mid-feed are left out as well:
+         * a product that moved into the chunks skipped on resume was not stamped either.
+         */
+        Set<Long> sweepableCategoryIds() {
+            return checkpoints.values().stream()
+                    .filter(checkpoint -> CHECKPOINT_COMPLETED.equals(checkpoint.getStatus()))
+                    .filter(checkpoint -> checkpoint.getRecordsFailed() == 0)
+                    .filter(checkpoint -> !Boolean.TRUE.equals(checkpoint.getResumedMidFeed()))
+                    .map(SyncCheckpoint::getCategoryId)
+                    .collect(Collectors.toSet());
+        }
+
+        long completedCategories() {
+            return checkpoints.values().stream()
+                    .filter(checkpoint -> CHECKPOINT_COMPLETED.equals(checkpoint.getStatus()))
+                    .count();
+        }
+
+        /**
+         * Totals committed so far by this run, including attempts before a resume.
+         */
+        ChunkResult committedTotals() {
+            ChunkResult totals = new ChunkResult(0, 0, 0, 0);
+            for (SyncCheckpoint checkpoint : checkpoints.values()) {
+                totals.processed += checkpoint.getRecordsProcessed();
+                totals.created += checkpoint.getRecordsCreated();
+                totals.updated += checkpoint.getRecordsUpdated();
+                totals.errors += checkpoint.getRecordsFailed();
+            }
+            return totals;
+        }
+
+        private SyncCheckpoint checkpoint(Long categoryId) {
+            SyncCheckpoint checkpoint = checkpoints.get(categoryId);
+            if (checkpoint == null) {
+                checkpoint = new SyncCheckpoint();
+                checkpoint.setSyncLog(syncLog);
+                checkpoint.setCategoryId(categoryId);
+                checkpoint.setStatus(CHECKPOINT_IN_PROGRESS);
+            }
+            return checkpoint;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.techstore.service.sync;
+
+import com.techstore.dto.response.SyncJobResponseDto;
+import com.techstore.exception.ResourceNotFoundException;
+import com.techstore.exception.SyncInProgressException;
+import com.techstore.repository.SyncJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs admin-triggered syncs on the {@code syncTaskExecutor} instead of the request thread and keeps their state
+ * for the jobs API.
+ * <p>
+ * The sync lock of the job's source is taken on submit, so a conflicting request fails right away with 409, and is
+ * released when the job ends. Job state lives in {@code sync_jobs}, so any node can report and cancel any job: the
+ * node running a job writes its progress there every {@code app.sync.jobs.publish-interval-ms} and picks up
+ * cancellation requests on the same write. Its own jobs are reported live. Unfinished jobs not written for
+ * {@code app.sync.jobs.stale-after-ms} are failed, and only the latest {@value #MAX_FINISHED_JOBS} finished jobs are
+ * retained.
+ */
+@Service
+@Slf4j
+public class SyncJobService {
+
+    public static final String JOB_QUEUED = "QUEUED";
+    public static final String JOB_RUNNING = "RUNNING";
+    public static final String JOB_SUCCEEDED = "SUCCEEDED";
+    public static final String JOB_FAILED = "FAILED";
+    public static final String JOB_CANCELLED = "CANCELLED";
+
+    private static final int MAX_FINISHED_JOBS = 50;
+
+    private final TaskExecutor syncTaskExecutor;
+    private final SyncLockService syncLockService;
+    private final SyncJobRepository syncJobRepository;
+    private final Map<String, SyncJob> localJobs = new ConcurrentHashMap<>();
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Value("${app.sync.jobs.publish-interval-ms:5000}")
+    private long publishIntervalMs;
+
+    @Value("${app.sync.jobs.stale-after-ms:120000}")
+    private long staleAfterMs;
+
+    private ScheduledExecutorService publishExecutor;
+
+    public SyncJobService(@Qualifier("syncTaskExecutor") TaskExecutor syncTaskExecutor,
+                          SyncLockService syncLockService,
+                          SyncJobRepository syncJobRepository) {
+        this.syncTaskExecutor = syncTaskExecutor;
+        this.syncLockService = syncLockService;
+        this.syncJobRepository = syncJobRepository;
+    }
+
+    @PostConstruct
+    void startPublishing() {
+        // not on the shared scheduler, which the scheduled syncs occupy for as long as they run
+        publishExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Sync-Job-Publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publishExecutor.scheduleWithFixedDelay(this::publish, publishIntervalMs, publishIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopPublishing() {
+        if (publishExecutor != null) {
+            publishExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues {@code work} as a job of {@code source} (one of the {@link SyncLockService} lock names).
+     *
+     * @throws SyncInProgressException if a sync of the same source is already running
+     */
+    public SyncJobResponseDto submit(String source, String type, Runnable work) {
+        SyncLockService.SyncLock lock = syncLockService.acquire(source);
+
+        SyncJob job = new SyncJob(UUID.randomUUID().toString(), source, type);
+        try {
+            syncJobRepository.insert(toResponse(job), owner);
+        } catch (RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+        localJobs.put(job.id, job);
+
+        try {
+            syncTaskExecutor.execute(() -> run(job, lock, work));
+        } catch (TaskRejectedException e) {
+            job.finish(JOB_FAILED, "Too many synchronization jobs are queued");
+            persist(job);
+            localJobs.remove(job.id);
+            lock.close();
+            throw new SyncInProgressException("Too many synchronization jobs are queued");
+        }
+
+        log.info("Submitted sync job {} ({} {})", job.id, source, type);
+        return toResponse(job);
+    }
+
+    public SyncJobResponseDto getJob(String id) {
+        SyncJob job = localJobs.get(id);
+        if (job != null) {
+            return toResponse(job);
+        }
+        SyncJobResponseDto persisted = syncJobRepository.findById(id);
+        if (persisted == null) {
+            throw new ResourceNotFoundException("Sync job not found: " + id);
+        }
+        return persisted;
+    }
+
+    public List<SyncJobResponseDto> getJobs() {
+        return syncJobRepository.findRecent(MAX_FINISHED_JOBS + localJobs.size()).stream()
+                .map(persisted -> {
+                    SyncJob job = localJobs.get(persisted.getId());
+                    return job != null ? toResponse(job) : persisted;
+                })
+                .toList();
+    }
+
+    /**
+     * Requests cancellation. A queued job does not start; a running job stops after its current chunk. A job running
+     * on another node sees the request on its next progress write.
+     */
+    public SyncJobResponseDto cancel(String id) {
+        if (!syncJobRepository.requestCancel(id)) {
+            throw new ResourceNotFoundException("Sync job not found: " + id);
+        }
+        SyncJob job = localJobs.get(id);
+        if (job != null) {
+            job.cancel();
+        }
+        log.info("Cancellation requested for sync job {}", id);
+        return getJob(id);
+    }
+
+    private void run(SyncJob job, SyncLockService.SyncLock lock, Runnable work) {
+        try (lock) {
+            lock.bind();
+            SyncProgress progress = new SyncProgress();
+            if (!job.start(progress)) {
+                job.finish(JOB_CANCELLED, null);
+                return;
+            }
+            persist(job);
+
+            SyncProgress.bind(progress);
+            log.info("Sync job {} ({} {}) started", job.id, job.source, job.type);
+
+            work.run();
+
+            job.finish(JOB_SUCCEEDED, null);
+            log.info("Sync job {} completed", job.id);
+
+        } catch (Exception e) {
+            boolean cancelled = job.isCancelRequested();
+            job.finish(cancelled ? JOB_CANCELLED : JOB_FAILED, e.getMessage());
+            if (cancelled) {
+                log.info("Sync job {} cancelled", job.id);
+            } else {
+                log.error("Sync job {} failed", job.id, e);
+            }
+        } finally {
+            SyncProgress.unbind();
+            persist(job);
+            localJobs.remove(job.id);
+        }
+    }
+
+    // ===========================================
+    // SHARED STATE
+    // ===========================================
+
+    /**
+     * Writes the state of this node's jobs and applies cancellations requested through other nodes, then fails
+     * jobs of nodes that stopped reporting and trims the finished ones.
+     */
+    void publish() {
+        for (SyncJob job : localJobs.values()) {
+            if (persist(job) && !job.isCancelRequested()) {
+                job.cancel();
+                log.info("Cancellation requested for sync job {} through another node", job.id);
+            }
+        }
+
+        try {
+            int abandoned = syncJobRepository.failAbandoned(staleAfterMs, "Node running the job stopped reporting");
+            if (abandoned > 0) {
+                log.warn("Failed {} sync jobs whose node stopped reporting", abandoned);
+            }
+            syncJobRepository.deleteFinishedBeyond(MAX_FINISHED_JOBS);
+        } catch (Exception e) {
+            log.warn("Failed to maintain sync jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return whether cancellation of the job was requested in {@code sync_jobs}
+     */
+    private boolean persist(SyncJob job) {
+        try {
+            return syncJobRepository.save(toResponse(job));
+        } catch (Exception e) {
+            log.warn("Failed to record state of sync job {}: {}", job.id, e.getMessage());
+            return false;
+        }
+    }
+
+    private SyncJobResponseDto toResponse(SyncJob job) {
+        SyncJobResponseDto response = new SyncJobResponseDto();
+        response.setId(job.id);
+        response.setSource(job.source);
+        response.setType(job.type);
+        response.setStatus(job.status);
+        response.setSubmittedAt(job.submittedAt);
+        response.setStartedAt(job.startedAt);
+        response.setFinishedAt(job.finishedAt);
+        response.setErrorMessage(job.errorMessage);
+
+        SyncProgress progress = job.progress;
+        if (progress != null) {
+            response.setProcessed(progress.getProcessed());
+            response.setCreated(progress.getCreated());
+            response.setUpdated(progress.getUpdated());
+            response.setErrors(progress.getErrors());
+            response.setCompletedUnits(progress.getCompletedUnits());
+            response.setTotalUnits(progress.getTotalUnits());
+            response.setThroughputPerSecond(progress.getThroughputPerSecond());
+            if (job.finishedAt == null) {
+                response.setEtaSeconds(progress.getEtaSeconds());
+            }
+        }
+        return response;
+    }
+
+    private static class SyncJob {
+        final String id;
+        final String source;
+        final String type;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        volatile String status = JOB_QUEUED;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile String errorMessage;
+        volatile SyncProgress progress;
+        private boolean cancelRequested;
+
+        SyncJob(String id, String source, String type) {
+            this.id = id;
+            this.source = source;
+            this.type = type;
+        }
+
+        synchronized boolean start(SyncProgress progress) {
+            if (cancelRequested) {
+                return false;
+            }
+            this.progress = progress;
+            this.startedAt = LocalDateTime.now();
+            this.status = JOB_RUNNING;
+            return true;
+        }
+
+        synchronized void cancel() {
+            cancelRequested = true;
+            if (progress != null) {
+                progress.cancel();
+            }
+        }
+
+        synchronized boolean isCancelRequested() {
+            return cancelRequested;
+        }
+
+        void finish(String status, String errorMessage) {
+            this.errorMessage = errorMessage;
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+    }
+}
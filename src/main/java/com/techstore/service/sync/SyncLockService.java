@@ -0,0 +1,326 @@
+package com.techstore.service.sync;
+
+import com.techstore.dto.response.SyncLockResponseDto;
+import com.techstore.exception.SyncInProgressException;
+import com.techstore.exception.SyncLockLostException;
+import com.techstore.repository.SyncLockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster-wide mutual exclusion for sync jobs, built on PostgreSQL session-level advisory locks.
+ * <p>
+ * Each lock is held on a dedicated connection opened outside the Hikari pool, so a sync that runs for an hour does
+ * not take one of the pool's few connections. PostgreSQL releases the lock when that connection ends, which is what
+ * makes it a lease: the connection runs with {@code idle_session_timeout = app.sync.lock.lease-ms}, and only the
+ * heartbeat keeps it alive. A node that dies or stops heartbeating loses its locks after at most one lease. The
+ * heartbeat runs on its own thread: the scheduled syncs occupy the shared scheduler for as long as they run.
+ * <p>
+ * A sync binds its lock to its thread with {@link SyncLock#bind()}; {@link #checkLease()} before each chunk commit
+ * and {@link #verifyLease()} before deactivating or merging abort a run whose lock was lost, since another node may
+ * already be running the same sync.
+ * <p>
+ * Owners are recorded in {@code sync_locks} for the admin API; that table is informational and never consulted when
+ * acquiring.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SyncLockService {
+
+    public static final String VALI = "VALI";
+    public static final String TEKRA = "TEKRA";
+
+    /**
+     * First key of the two-key advisory lock ("SYNC"), so these locks cannot collide with other advisory lock users.
+     */
+    private static final int LOCK_CLASS_ID = 0x53594e43;
+
+    private static final ThreadLocal<SyncLock> CURRENT = new ThreadLocal<>();
+
+    private final DataSourceProperties dataSourceProperties;
+    private final SyncLockRepository syncLockRepository;
+
+    private final Map<String, SyncLock> heldLocks = new ConcurrentHashMap<>();
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Value("${app.sync.lock.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${app.sync.lock.heartbeat-interval-ms:30000}")
+    private long heartbeatIntervalMs;
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    @PostConstruct
+    void startHeartbeat() {
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Sync-Lock-Heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fails if the lock bound to the current thread has been lost. Only reads the state the heartbeat left, so it is
+     * cheap enough for every chunk; threads without a bound lock pass.
+     *
+     * @throws SyncLockLostException if the lock was lost
+     */
+    public static void checkLease() {
+        SyncLock lock = CURRENT.get();
+        if (lock != null && lock.isLost()) {
+            throw new SyncLockLostException("Lost sync lock " + lock.name + ", aborting");
+        }
+    }
+
+    /**
+     * Like {@link #checkLease()}, but first asks the database whether the lock session still holds the advisory lock.
+     * For the steps a second node must never repeat concurrently, such as deactivating missing products.
+     *
+     * @throws SyncLockLostException if the lock was lost
+     */
+    public static void verifyLease() {
+        SyncLock lock = CURRENT.get();
+        if (lock != null) {
+            lock.verify();
+        }
+        checkLease();
+    }
+
+    /**
+     * The lock bound to the current thread, or {@code null}.
+     */
+    static SyncLock current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Acquires the lock {@code name} or fails immediately.
+     *
+     * @throws SyncInProgressException if this or another node already holds it
+     */
+    public SyncLock acquire(String name) {
+        return tryAcquire(name).orElseThrow(() ->
+                new SyncInProgressException("Synchronization " + name + " is already running"));
+    }
+
+    public synchronized Optional<SyncLock> tryAcquire(String name) {
+        if (heldLocks.containsKey(name)) {
+            log.info("Sync lock {} is already held by this node", name);
+            return Optional.empty();
+        }
+
+        Connection connection = null;
+        try {
+            connection = openConnection();
+            boolean locked;
+            try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+                ps.setInt(1, LOCK_CLASS_ID);
+                ps.setInt(2, lockKey(name));
+                try (ResultSet rs = ps.executeQuery()) {
+                    locked = rs.next() && rs.getBoolean(1);
+                }
+            }
+
+            if (!locked) {
+                closeQuietly(connection);
+                log.info("Sync lock {} is held by another node", name);
+                return Optional.empty();
+            }
+
+            SyncLock lock = new SyncLock(name, connection);
+            heldLocks.put(name, lock);
+            try {
+                syncLockRepository.upsert(name, lockKey(name), owner);
+            } catch (Exception e) {
+                log.warn("Failed to record owner of sync lock {}: {}", name, e.getMessage());
+            }
+
+            log.info("Acquired sync lock {} as {}", name, owner);
+            return Optional.of(lock);
+
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new IllegalStateException("Failed to acquire sync lock " + name, e);
+        }
+    }
+
+    public void release(SyncLock lock) {
+        if (!heldLocks.remove(lock.name, lock)) {
+            return;
+        }
+
+        try {
+            syncLockRepository.delete(lock.name, owner);
+        } catch (Exception e) {
+            log.warn("Failed to clear owner of sync lock {}: {}", lock.name, e.getMessage());
+        }
+        // ending the session releases the advisory lock
+        closeQuietly(lock.connection);
+
+        log.info("Released sync lock {}", lock.name);
+    }
+
+    public List<SyncLockResponseDto> getLocks() {
+        return syncLockRepository.findAll(LOCK_CLASS_ID);
+    }
+
+    /**
+     * Keeps the lock sessions from hitting {@code idle_session_timeout} and refreshes {@code heartbeat_at}. A lock
+     * whose connection is gone is dropped; the sync holding it can see that through {@link SyncLock#isLost()}.
+     */
+    void heartbeat() {
+        for (SyncLock lock : heldLocks.values()) {
+            boolean alive;
+            try (Statement statement = lock.connection.createStatement()) {
+                statement.execute("SELECT 1");
+                alive = true;
+            } catch (SQLException e) {
+                alive = false;
+            }
+
+            if (alive) {
+                try {
+                    syncLockRepository.heartbeat(lock.name, owner);
+                } catch (Exception e) {
+                    log.warn("Failed to record heartbeat of sync lock {}: {}", lock.name, e.getMessage());
+                }
+            } else {
+                markLost(lock);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+        heldLocks.values().forEach(this::release);
+    }
+
+    private void markLost(SyncLock lock) {
+        if (lock.lost) {
+            return;
+        }
+        log.error("Lost the connection holding sync lock {}; another node may start the same sync", lock.name);
+        lock.lost = true;
+        heldLocks.remove(lock.name, lock);
+        closeQuietly(lock.connection);
+    }
+
+    private Connection openConnection() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", dataSourceProperties.determineUsername());
+        properties.setProperty("password", dataSourceProperties.determinePassword());
+        properties.setProperty("tcpKeepAlive", "true");
+        properties.setProperty("ApplicationName", "techstore-sync-lock");
+
+        Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET idle_session_timeout = " + leaseMs);
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    private static int lockKey(String name) {
+        return name.hashCode() & 0x7fffffff;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Error closing sync lock connection: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A held sync lock; closing it releases the lock and unbinds it from the thread that closes it.
+     */
+    public final class SyncLock implements AutoCloseable {
+        private final String name;
+        private final Connection connection;
+        private volatile boolean lost;
+
+        private SyncLock(String name, Connection connection) {
+            this.name = name;
+            this.connection = connection;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isLost() {
+            return lost;
+        }
+
+        /**
+         * Binds this lock to the current thread for {@link #checkLease()} and {@link #verifyLease()}.
+         */
+        public SyncLock bind() {
+            CURRENT.set(this);
+            return this;
+        }
+
+        private void verify() {
+            if (lost) {
+                return;
+            }
+            boolean held;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT EXISTS (SELECT 1 FROM pg_locks WHERE locktype = 'advisory' AND granted " +
+                            "AND classid = ? AND objid = ? AND objsubid = 2 AND pid = pg_backend_pid())")) {
+                ps.setInt(1, LOCK_CLASS_ID);
+                ps.setInt(2, lockKey(name));
+                try (ResultSet rs = ps.executeQuery()) {
+                    held = rs.next() && rs.getBoolean(1);
+                }
+            } catch (SQLException e) {
+                held = false;
+            }
+            if (!held) {
+                markLost(this);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                CURRENT.remove();
+            }
+            release(this);
+        }
+    }
+}
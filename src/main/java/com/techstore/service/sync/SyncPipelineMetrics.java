@@ -0,0 +1,61 @@
+package com.techstore.service.sync;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Micrometer meters of the staged sync pipelines, available under {@code /actuator/metrics}:
+ * <ul>
+ *     <li>{@code sync.pipeline.stage.duration} - time per item, tagged {@code pipeline} and {@code stage}</li>
+ *     <li>{@code sync.pipeline.stage.items} - items completed per stage</li>
+ *     <li>{@code sync.pipeline.queue.depth} - items waiting between stages, tagged {@code queue}</li>
+ * </ul>
+ * Pipelines are created per run, so queue gauges read whichever queue is currently registered under their name and
+ * report 0 between runs.
+ */
+@Component
+@RequiredArgsConstructor
+public class SyncPipelineMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, BlockingQueue<?>> queues = new ConcurrentHashMap<>();
+
+    Timer stageTimer(String pipeline, String stage) {
+        return Timer.builder("sync.pipeline.stage.duration")
+                .tag("pipeline", pipeline)
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    Counter stageItems(String pipeline, String stage) {
+        return Counter.builder("sync.pipeline.stage.items")
+                .tag("pipeline", pipeline)
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    void registerQueue(String pipeline, String queue, BlockingQueue<?> instance) {
+        String key = pipeline + '/' + queue;
+        if (queues.put(key, instance) == null) {
+            Gauge.builder("sync.pipeline.queue.depth", queues, registered -> {
+                        BlockingQueue<?> current = registered.get(key);
+                        return current != null ? current.size() : 0;
+                    })
+                    .tag("pipeline", pipeline)
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+        }
+    }
+
+    void unregisterQueue(String pipeline, String queue, BlockingQueue<?> instance) {
+        queues.remove(pipeline + '/' + queue, instance);
+    }
+}
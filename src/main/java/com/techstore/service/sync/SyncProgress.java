@@ -0,0 +1,120 @@
+package com.techstore.service.sync;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of the sync running on the current thread, read by {@link SyncJobService} for the jobs API.
+ * <p>
+ * Sync services report through {@link #current()}, which returns a detached instance when the sync was not started
+ * as a job (scheduled runs), so reporting never needs a null check. Cancellation is cooperative: syncs call
+ * {@link #checkCancelled()} between chunks, so a cancelled run stops on a committed checkpoint and can be resumed.
+ */
+public final class SyncProgress {
+
+    private static final ThreadLocal<SyncProgress> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong completedUnits = new AtomicLong();
+    private volatile long totalUnits;
+    private volatile boolean cancelRequested;
+
+    public static SyncProgress current() {
+        SyncProgress progress = CURRENT.get();
+        return progress != null ? progress : new SyncProgress();
+    }
+
+    static void bind(SyncProgress progress) {
+        CURRENT.set(progress);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Number of work units (categories) the sync is going to process; ETA is estimated from it.
+     */
+    public void setTotalUnits(long totalUnits) {
+        this.totalUnits = totalUnits;
+    }
+
+    public void unitCompleted() {
+        completedUnits.incrementAndGet();
+    }
+
+    void record(ChunkResult result) {
+        processed.addAndGet(result.processed);
+        created.addAndGet(result.created);
+        updated.addAndGet(result.updated);
+        errors.addAndGet(result.errors);
+    }
+
+    public void recordProcessed(long count) {
+        processed.addAndGet(count);
+    }
+
+    public void recordErrors(long count) {
+        errors.addAndGet(count);
+    }
+
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    public void checkCancelled() {
+        if (cancelRequested) {
+            throw new CancellationException("Synchronization cancelled");
+        }
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    public long getUpdated() {
+        return updated.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getCompletedUnits() {
+        return completedUnits.get();
+    }
+
+    public long getTotalUnits() {
+        return totalUnits;
+    }
+
+    public double getThroughputPerSecond() {
+        long elapsed = System.currentTimeMillis() - startedAt;
+        return elapsed > 0 ? processed.get() * 1000.0 / elapsed : 0;
+    }
+
+    /**
+     * Remaining time extrapolated from the share of completed units, or {@code null} before the first unit is done.
+     */
+    public Long getEtaSeconds() {
+        long done = completedUnits.get();
+        long total = totalUnits;
+        if (done == 0 || total == 0) {
+            return null;
+        }
+        long elapsed = System.currentTimeMillis() - startedAt;
+        return Math.max(0, (elapsed * (total - done) / done) / 1000);
+    }
+}
@@ -0,0 +1,78 @@
+package com.techstore.service.sync;
+
+import com.techstore.service.TekraApiService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Run-scoped snapshot of the Tekra category feeds, shared by the manufacturers, parameters and products phases.
+ * <p>
+ * Feeds are kept in one place, the {@link UpstreamResponseCache}. A scheduled sync brackets its phases with
+ * {@link #begin()} and {@link #end()}; in between, a feed already downloaded during the run is read back from the
+ * cache without calling Tekra again. Outside a run, phases started on their own through the admin API always send
+ * the conditional request, and a {@code 304} is answered from the same cache.
+ * <p>
+ * Only the raw XML is kept; every phase parses it again, so nothing feed-sized stays on the heap between phases. With
+ * {@code app.sync.upstream-cache} disabled every phase downloads the feeds again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TekraFeedSnapshot {
+
+    private final TekraApiService tekraApiService;
+
+    private volatile Instant startedAt;
+
+    /**
+     * Starts a new snapshot: feeds downloaded from now on are reused until {@link #end()}.
+     */
+    public void begin() {
+        startedAt = Instant.now();
+        log.info("Started new Tekra feed snapshot");
+    }
+
+    public void end() {
+        startedAt = null;
+    }
+
+    /**
+     * Raw products feed of a category: the copy downloaded earlier in this snapshot if there is one, otherwise
+     * fetched with a conditional request. Returns {@code null} when the Tekra API is disabled; download errors are
+     * thrown.
+     */
+    public String getFeed(String categorySlug) {
+        Instant snapshotStartedAt = startedAt;
+        if (snapshotStartedAt != null) {
+            String xml = tekraApiService.readCachedProductsXml(categorySlug, snapshotStartedAt);
+            if (xml != null) {
+                log.debug("Using Tekra feed of this snapshot for category: {}", categorySlug);
+                return xml;
+            }
+        }
+
+        if (!tekraApiService.isEnabled()) {
+            log.warn("Tekra API is disabled");
+            return null;
+        }
+
+        log.info("Fetching products for category: {} (XML feed)", categorySlug);
+        return tekraApiService.fetchProductsXml(categorySlug);
+    }
+
+    /**
+     * Parsed products of a category from this snapshot; an empty list when there is no feed.
+     */
+    public List<Map<String, Object>> getProducts(String categorySlug) {
+        return parse(getFeed(categorySlug));
+    }
+
+    public List<Map<String, Object>> parse(String xml) {
+        return xml != null ? tekraApiService.parseProducts(xml) : List.of();
+    }
+}
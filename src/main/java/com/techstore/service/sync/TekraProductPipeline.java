@@ -0,0 +1,308 @@
+package com.techstore.service.sync;
+
+import com.techstore.config.WorkloadRoutingDataSource;
+import com.techstore.entity.Category;
+import com.techstore.entity.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Staged pipeline of the Tekra products sync, so that network, CPU and database work overlap:
+ * <pre>
+ *   fetchers (n) -> [fetched] -> parsers (n) -> [parsed] -> mapper (1) -> [mapped] -> writer (caller thread)
+ * </pre>
+ * Queues between stages are bounded, so a slow stage throttles the ones before it instead of buffering whole feeds.
+ * Mapping runs on a single thread because the sync-scoped lookups it uses are not thread-safe; the writer is the
+ * thread that calls {@link #take()}, which keeps transactions and checkpoints on the sync thread.
+ * <p>
+ * Stage timings, item counts and queue depths are published through {@link SyncPipelineMetrics}.
+ */
+@Slf4j
+class TekraProductPipeline implements AutoCloseable {
+
+    private static final String PIPELINE = "tekra-products";
+    private static final Feed END_OF_FEEDS = new Feed(null, null, null, null);
+    private static final Item END_OF_ITEMS = new Item(null, null, 0, false, null);
+
+    /**
+     * Maps the parsed feed of one category into product chunks. Called on the mapper thread only.
+     */
+    interface Mapper {
+        void map(Category category, List<Map<String, Object>> products, Consumer<Item> emit);
+    }
+
+    private final TekraFeedSnapshot feedSnapshot;
+    private final Mapper mapper;
+    private final SyncPipelineMetrics metrics;
+    private final int fetchers;
+    private final int parsers;
+
+    private final Queue<Category> pendingCategories = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Feed> fetched;
+    private final BlockingQueue<Feed> parsed;
+    private final BlockingQueue<Item> mapped;
+    private final AtomicInteger activeFetchers = new AtomicInteger();
+    private final AtomicInteger activeParsers = new AtomicInteger();
+
+    private final ExecutorService fetchExecutor;
+    private final ExecutorService parseExecutor;
+    private final ExecutorService mapExecutor;
+    private volatile boolean stopped;
+
+    TekraProductPipeline(TekraFeedSnapshot feedSnapshot, Mapper mapper, SyncPipelineMetrics metrics,
+                         int fetchers, int parsers, int queueCapacity) {
+        this.feedSnapshot = feedSnapshot;
+        this.mapper = mapper;
+        this.metrics = metrics;
+        this.fetchers = fetchers;
+        this.parsers = parsers;
+
+        this.fetched = new ArrayBlockingQueue<>(queueCapacity);
+        this.parsed = new ArrayBlockingQueue<>(queueCapacity);
+        this.mapped = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.fetchExecutor = Executors.newFixedThreadPool(fetchers, new CustomizableThreadFactory("Tekra-Fetch-"));
+        this.parseExecutor = Executors.newFixedThreadPool(parsers, new CustomizableThreadFactory("Tekra-Parse-"));
+        this.mapExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("Tekra-Map-"));
+    }
+
+    void start(List<Category> categories) {
+        pendingCategories.addAll(categories);
+
+        metrics.registerQueue(PIPELINE, "fetched", fetched);
+        metrics.registerQueue(PIPELINE, "parsed", parsed);
+        metrics.registerQueue(PIPELINE, "mapped", mapped);
+
+        activeFetchers.set(fetchers);
+        activeParsers.set(parsers);
+        for (int i = 0; i < fetchers; i++) {
+            fetchExecutor.execute(this::fetchLoop);
+        }
+        for (int i = 0; i < parsers; i++) {
+            parseExecutor.execute(this::parseLoop);
+        }
+        // the mapper writes parameter options and manufacturers, so it uses the caller's (sync) connection pool
+        mapExecutor.execute(WorkloadRoutingDataSource.onCurrentPool(this::mapLoop));
+
+        log.info("Started Tekra products pipeline for {} categories ({} fetchers, {} parsers)",
+                categories.size(), fetchers, parsers);
+    }
+
+    /**
+     * Next item for the writer, or {@code null} once every category has gone through the pipeline.
+     */
+    Item take() throws InterruptedException {
+        Item item = mapped.take();
+        return item == END_OF_ITEMS ? null : item;
+    }
+
+    /**
+     * Runs a write on the caller thread, timed as the {@code write} stage.
+     */
+    <T> T write(Supplier<T> write) {
+        T result = metrics.stageTimer(PIPELINE, "write").record(write);
+        metrics.stageItems(PIPELINE, "write").increment();
+        return result;
+    }
+
+    @Override
+    public void close() {
+        stopped = true;
+        fetchExecutor.shutdownNow();
+        parseExecutor.shutdownNow();
+        mapExecutor.shutdownNow();
+        try {
+            mapExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        metrics.unregisterQueue(PIPELINE, "fetched", fetched);
+        metrics.unregisterQueue(PIPELINE, "parsed", parsed);
+        metrics.unregisterQueue(PIPELINE, "mapped", mapped);
+    }
+
+    // ===========================================
+    // STAGES
+    // ===========================================
+
+    private void fetchLoop() {
+        Timer timer = metrics.stageTimer(PIPELINE, "fetch");
+        Counter items = metrics.stageItems(PIPELINE, "fetch");
+        try {
+            Category category;
+            while (!stopped && (category = pendingCategories.poll()) != null) {
+                long start = System.nanoTime();
+                Feed feed = fetch(category);
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                items.increment();
+
+                fetched.put(feed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (activeFetchers.decrementAndGet() == 0) {
+                for (int i = 0; i < parsers; i++) {
+                    putQuietly(fetched, END_OF_FEEDS);
+                }
+            }
+        }
+    }
+
+    private Feed fetch(Category category) {
+        try {
+            String xml = feedSnapshot.getFeed(category.getTekraSlug());
+            return new Feed(category, xml, xml == null ? List.of() : null, null);
+        } catch (Exception e) {
+            return new Feed(category, null, null, e);
+        }
+    }
+
+    private void parseLoop() {
+        Timer timer = metrics.stageTimer(PIPELINE, "parse");
+        Counter items = metrics.stageItems(PIPELINE, "parse");
+        try {
+            while (!stopped) {
+                Feed feed = fetched.take();
+                if (feed == END_OF_FEEDS) {
+                    break;
+                }
+
+                if (feed.xml != null) {
+                    long start = System.nanoTime();
+                    try {
+                        feed = new Feed(feed.category, null, feedSnapshot.parse(feed.xml), null);
+                    } catch (Exception e) {
+                        feed = new Feed(feed.category, null, null, e);
+                    }
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                items.increment();
+
+                parsed.put(feed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (activeParsers.decrementAndGet() == 0) {
+                putQuietly(parsed, END_OF_FEEDS);
+            }
+        }
+    }
+
+    private void mapLoop() {
+        Timer timer = metrics.stageTimer(PIPELINE, "map");
+        Counter items = metrics.stageItems(PIPELINE, "map");
+        Consumer<Item> emit = item -> {
+            try {
+                mapped.put(item);
+                items.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Tekra products pipeline stopped");
+            }
+        };
+
+        try {
+            while (!stopped) {
+                Feed feed = parsed.take();
+                if (feed == END_OF_FEEDS) {
+                    break;
+                }
+
+                if (feed.error != null) {
+                    mapped.put(new Item(feed.category, null, 0, false, feed.error));
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                Item last;
+                try {
+                    mapper.map(feed.category, feed.products, emit);
+                    last = new Item(feed.category, null, 0, true, null);
+                } catch (CancellationException e) {
+                    break;
+                } catch (Exception e) {
+                    last = new Item(feed.category, null, 0, false, e);
+                }
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                mapped.put(last);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putQuietly(mapped, END_OF_ITEMS);
+        }
+    }
+
+    private <T> void putQuietly(BlockingQueue<T> queue, T item) {
+        // a stopped pipeline has nobody left to read the end marker
+        if (!stopped) {
+            try {
+                queue.put(item);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ===========================================
+    // STAGE ITEMS
+    // ===========================================
+
+    private static class Feed {
+        final Category category;
+        final String xml;
+        final List<Map<String, Object>> products;
+        final Throwable error;
+
+        Feed(Category category, String xml, List<Map<String, Object>> products, Throwable error) {
+            this.category = category;
+            this.xml = xml;
+            this.products = products;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Output of the mapper: a chunk of products of a category, the end of a category ({@code categoryDone}), or a
+     * category whose feed could not be fetched, parsed or mapped ({@code error}).
+     */
+    static class Item {
+        final Category category;
+        final List<Product> products;
+        final long mappingErrors;
+        final boolean categoryDone;
+        final Throwable error;
+
+        Item(Category category, List<Product> products, long mappingErrors, boolean categoryDone, Throwable error) {
+            this.category = category;
+            this.products = products;
+            this.mappingErrors = mappingErrors;
+            this.categoryDone = categoryDone;
+            this.error = error;
+        }
+
+        static Item chunk(Category category, List<Product> products, long mappingErrors) {
+            return new Item(category, products, mappingErrors, false, null);
+        }
+    }
+}
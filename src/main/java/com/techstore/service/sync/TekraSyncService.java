@@ -8,17 +8,21 @@ import com.techstore.entity.Product;
 import com.techstore.entity.ProductParameter;
 import com.techstore.entity.SyncLog;
 import com.techstore.enums.ProductStatus;
+import com.techstore.exception.SyncLockLostException;
 import com.techstore.repository.CategoryRepository;
 import com.techstore.repository.ManufacturerRepository;
 import com.techstore.repository.ParameterOptionRepository;
 import com.techstore.repository.ParameterRepository;
+import com.techstore.repository.ParameterSyncWriter;
 import com.techstore.repository.ProductRepository;
+import com.techstore.repository.ProductSyncWriter;
 import com.techstore.service.TekraApiService;
 import com.techstore.util.LogHelper;
 import com.techstore.util.SyncHelper;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,6 +34,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.techstore.util.LogHelper.LOG_STATUS_FAILED;
@@ -42,14 +48,33 @@ public class TekraSyncService {
 
 
     private final CategoryRepository categoryRepository;
-    private final ManufacturerRepository manufacturerRepository;
     private final ProductRepository productRepository;
+    private final ProductSyncWriter productSyncWriter;
+    private final ParameterSyncWriter parameterSyncWriter;
+    private final ManufacturerRepository manufacturerRepository;
     private final ParameterRepository parameterRepository;
     private final ParameterOptionRepository parameterOptionRepository;
     private final EntityManager entityManager;
     private final TekraApiService tekraApiService;
+    private final TekraFeedSnapshot tekraFeedSnapshot;
     private final LogHelper logHelper;
     private final SyncHelper syncHelper;
+    private final SyncCheckpointService syncCheckpointService;
+    private final SyncPipelineMetrics syncPipelineMetrics;
+    private final ProductChangeRefresher productChangeRefresher;
+    private final ReferenceDataCache referenceDataCache;
+
+    @Value("${app.sync.batch-size:30}")
+    private int batchSize;
+
+    @Value("${app.sync.tekra.fetch-concurrency:4}")
+    private int fetchConcurrency;
+
+    @Value("${app.sync.tekra.parse-threads:2}")
+    private int parseThreads;
+
+    @Value("${app.sync.tekra.pipeline-queue-capacity:8}")
+    private int pipelineQueueCapacity;
 
     @Transactional
     public void syncTekraCategories() {
@@ -87,12 +112,15 @@ public class TekraSyncService {
                             (existing, duplicate) -> existing
                     ));
 
+            CategoryMatcher categoryMatcher = CategoryMatcher.of(categoryRepository.findAll());
+
             long created = 0, updated = 0, skipped = 0;
 
             // СТЪПКА 1: Създай главната категория
             log.info("=== STEP 1: Creating main category ===");
-            Category mainCat = createOrUpdateTekraCategory(mainCategory, existingCategories, null);
+            Category mainCat = createOrUpdateTekraCategory(mainCategory, existingCategories, categoryMatcher, null);
             if (mainCat != null) {
+                categoryMatcher = categoryMatcher.with(mainCat);
                 if (existingCategories.containsKey(mainCat.getSlug())) {
                     updated++;
                 } else {
@@ -135,8 +163,9 @@ public class TekraSyncService {
                         continue;
                     }
 
-                    Category level2Cat = createOrUpdateTekraCategory(subCat, existingCategories, mainCat);
+                    Category level2Cat = createOrUpdateTekraCategory(subCat, existingCategories, categoryMatcher, mainCat);
                     if (level2Cat != null) {
+                        categoryMatcher = categoryMatcher.with(level2Cat);
                         String level2Key = level2Cat.getSlug();
 
                         if (existingCategories.containsKey(level2Key)) {
@@ -206,9 +235,10 @@ public class TekraSyncService {
                             }
 
                             Category level3Cat = createOrUpdateTekraCategory(
-                                    subSubCat, existingCategories, parentCategory);
+                                    subSubCat, existingCategories, categoryMatcher, parentCategory);
 
                             if (level3Cat != null) {
+                                categoryMatcher = categoryMatcher.with(level3Cat);
                                 String level3Key = level3Cat.getSlug();
 
                                 if (existingCategories.containsKey(level3Key)) {
@@ -255,6 +285,8 @@ public class TekraSyncService {
             log.error("=== SYNC FAILED ===", e);
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, 0, 0, 0, 0, e.getMessage(), startTime);
             throw e;
+        } finally {
+            referenceDataCache.evictCategories();
         }
     }
 
@@ -280,7 +312,7 @@ public class TekraSyncService {
             for (Category category : tekraCategories) {
                 try {
                     Set<String> categoryManufacturers = tekraApiService
-                            .extractTekraManufacturersFromProducts(category.getTekraSlug());
+                            .extractTekraManufacturersFromProducts(tekraFeedSnapshot.getProducts(category.getTekraSlug()));
                     allTekraManufacturers.addAll(categoryManufacturers);
                 } catch (Exception e) {
                     log.error("Error extracting manufacturers: {}", e.getMessage());
@@ -292,44 +324,21 @@ public class TekraSyncService {
                 return;
             }
 
-            // ✅ FIXED: Added null filter and merge function
-            Map<String, Manufacturer> existingManufacturers = manufacturerRepository.findAll()
-                    .stream()
-                    .filter(m -> m.getName() != null && !m.getName().isEmpty())
-                    .collect(Collectors.toMap(
-                            Manufacturer::getName,
-                            m -> m,
-                            (existing, duplicate) -> {
-                                log.warn("Duplicate manufacturer name: {}, IDs: {} and {}, keeping first",
-                                        existing.getName(), existing.getId(), duplicate.getId());
-                                return existing;
-                            }
-                    ));
-
-            long created = 0, updated = 0, errors = 0;
+            long errors = 0;
+            ManufacturerResolver manufacturerResolver = new ManufacturerResolver(manufacturerRepository);
 
             for (String manufacturerName : allTekraManufacturers) {
                 try {
-                    Manufacturer manufacturer = existingManufacturers.get(manufacturerName);
-
-                    if (manufacturer == null) {
-                        manufacturer = createTekraManufacturer(manufacturerName);
-                        if (manufacturer != null) {
-                            manufacturer = manufacturerRepository.save(manufacturer);
-                            existingManufacturers.put(manufacturer.getName(), manufacturer);
-                            created++;
-                        } else {
-                            errors++;
-                        }
-                    } else {
-                        updated++;
-                    }
+                    manufacturerResolver.resolveOrCreate(manufacturerName, this::createTekraManufacturer);
                 } catch (Exception e) {
                     errors++;
                     log.error("Error processing manufacturer {}: {}", manufacturerName, e.getMessage());
                 }
             }
 
+            long created = manufacturerResolver.flushPending();
+            long updated = allTekraManufacturers.size() - created - errors;
+
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_SUCCESS, (long) allTekraManufacturers.size(),
                     created, updated, errors,
                     errors > 0 ? String.format("Completed with %d errors", errors) : null, startTime);
@@ -337,6 +346,8 @@ public class TekraSyncService {
         } catch (Exception e) {
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, 0, 0, 0, 0, e.getMessage(), startTime);
             throw e;
+        } finally {
+            referenceDataCache.evictManufacturers();
         }
     }
 
@@ -360,22 +371,7 @@ public class TekraSyncService {
 
             log.info("Found {} Tekra categories", tekraCategories.size());
 
-            // Подготовка на category maps за бързо търсене
-            Map<String, Category> categoriesByName = new HashMap<>();
-            Map<String, Category> categoriesBySlug = new HashMap<>();
-            Map<String, Category> categoriesByTekraSlug = new HashMap<>();
-
-            for (Category cat : tekraCategories) {
-                if (cat.getNameBg() != null) {
-                    categoriesByName.put(cat.getNameBg().toLowerCase(), cat);
-                }
-                if (cat.getSlug() != null) {
-                    categoriesBySlug.put(cat.getSlug().toLowerCase(), cat);
-                }
-                if (cat.getTekraSlug() != null) {
-                    categoriesByTekraSlug.put(cat.getTekraSlug().toLowerCase(), cat);
-                }
-            }
+            CategoryMatcher categoryMatcher = CategoryMatcher.of(categoryRepository.findAll());
 
             // ✅ Step 1: Събираме ВСИЧКИ продукти и мапваме ги към правилната категория
             log.info("Step 1: Collecting all products and mapping to correct categories...");
@@ -393,7 +389,7 @@ public class TekraSyncService {
 
             for (Category category : tekraCategories) {
                 try {
-                    List<Map<String, Object>> products = tekraApiService.getProductsRaw(category.getTekraSlug());
+                    List<Map<String, Object>> products = tekraFeedSnapshot.getProducts(category.getTekraSlug());
 
                     for (Map<String, Object> product : products) {
                         String sku = getString(product, "sku");
@@ -402,8 +398,7 @@ public class TekraSyncService {
                             totalProducts++;
 
                             // ✅ КРИТИЧНО: Използваме СЪЩАТА логика като в syncTekraProducts
-                            Category productCategory = findMostSpecificCategory(product,
-                                    categoriesByName, categoriesBySlug, categoriesByTekraSlug, matchTypeStats);
+                            Category productCategory = findMostSpecificCategory(product, categoryMatcher, matchTypeStats);
 
                             if (productCategory != null && isValidCategory(productCategory)) {
                                 // ✅ ВАЖНО: Игнорираме root категории (без parent)
@@ -613,274 +608,261 @@ public class TekraSyncService {
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, 0, 0, 0, 0, e.getMessage(), startTime);
             log.error("Tekra parameters sync failed", e);
             throw e;
+        } finally {
+            referenceDataCache.evictParameters();
         }
     }
 
-    @Transactional
     public void syncTekraProducts() {
-        SyncLog syncLog = logHelper.createSyncLogSimple("TEKRA_PRODUCTS");
+        syncTekraProducts(false);
+    }
+
+    /**
+     * Fetches, parses, maps and writes products through a {@link TekraProductPipeline}, so downloads, XML parsing and
+     * database writes overlap. Every chunk of a category's feed is committed on its own together with the category's
+     * checkpoint; with {@code resume} an interrupted run continues from its last committed chunk. Tekra products of
+     * completed categories that the run did not see are deactivated at the end.
+     */
+    public void syncTekraProducts(boolean resume) {
+        SyncCheckpointService.SyncRun run = syncCheckpointService.start("TEKRA_PRODUCTS", resume);
+        SyncLog syncLog = run.getSyncLog();
+        SyncProgress progress = SyncProgress.current();
         long startTime = System.currentTimeMillis();
 
-        try {
-            log.info("=== STARTING Tekra products synchronization ===");
+        ChunkResult committed = run.committedTotals();
+        long totalProcessed = committed.processed, totalCreated = committed.created,
+                totalUpdated = committed.updated, totalErrors = committed.errors;
+        ProductMappingContext mapping = null;
 
-            fixDuplicateProducts();
+        try {
+            log.info("=== STARTING Tekra products synchronization{} ===", resume ? " (resume)" : "");
 
-            // STEP 1: Fetch products from all categories
-            log.info("STEP 1: Fetching products from all Tekra categories...");
-            List<Map<String, Object>> allProducts = new ArrayList<>();
-            Set<String> processedSkus = new HashSet<>();
+            // STEP 1: Prepare category matcher
+            List<Category> allCategories = categoryRepository.findAllWithParents();
+            CategoryMatcher categoryMatcher = CategoryMatcher.of(allCategories);
+            log.info("Category matcher created for {} categories", categoryMatcher.getCategories().size());
 
-            List<Category> allCategories = categoryRepository.findAll().stream()
+            List<Category> tekraCategories = allCategories.stream()
                     .filter(cat -> cat.getTekraSlug() != null && !cat.getTekraSlug().isEmpty())
+                    .filter(cat -> !run.isCompleted(cat.getId()))
                     .toList();
 
-            log.info("Found {} categories with Tekra slugs", allCategories.size());
+            log.info("Found {} categories with Tekra slugs to process", tekraCategories.size());
+            progress.setTotalUnits(tekraCategories.size());
 
-            for (Category category : allCategories) {
-                try {
-                    String categorySlug = category.getTekraSlug();
-                    List<Map<String, Object>> categoryProducts = tekraApiService.getProductsRaw(categorySlug);
+            // STEP 2: Fetch, parse and map in the pipeline; write on this thread
+            mapping = new ProductMappingContext(run, categoryMatcher,
+                    new ParameterDictionary(parameterRepository, parameterSyncWriter),
+                    new ManufacturerResolver(manufacturerRepository));
+            ProductMappingContext mappingContext = mapping;
+            Set<Long> failedCategoryIds = new HashSet<>();
 
-                    for (Map<String, Object> product : categoryProducts) {
-                        String sku = getString(product, "sku");
-                        if (sku != null && !processedSkus.contains(sku)) {
-                            allProducts.add(product);
-                            processedSkus.add(sku);
+            try (TekraProductPipeline pipeline = new TekraProductPipeline(tekraFeedSnapshot,
+                    (category, products, emit) -> mapCategoryProducts(category, products, emit, mappingContext),
+                    syncPipelineMetrics, fetchConcurrency, parseThreads, pipelineQueueCapacity)) {
+
+                pipeline.start(tekraCategories);
+
+                TekraProductPipeline.Item item;
+                while ((item = takeFromPipeline(pipeline)) != null) {
+                    progress.checkCancelled();
+                    SyncLockService.checkLease();
+                    Category sourceCategory = item.category;
+
+                    if (item.error != null) {
+                        log.error("Error processing products for category {}: {}",
+                                sourceCategory.getTekraSlug(), item.error.getMessage());
+                        totalErrors++;
+                        progress.recordErrors(1);
+                        progress.unitCompleted();
+                        continue;
+                    }
+
+                    if (item.categoryDone) {
+                        if (!failedCategoryIds.contains(sourceCategory.getId())) {
+                            syncCheckpointService.completeCategory(run, sourceCategory.getId());
                         }
+                        progress.unitCompleted();
+
+                        log.info("Progress: {} (created: {}, updated: {}, errors: {}, skipped: {})",
+                                totalProcessed, totalCreated, totalUpdated, totalErrors, mapping.skippedNoCategory);
+                        continue;
                     }
 
-                } catch (Exception e) {
-                    log.error("Error fetching products for category: {}", e.getMessage());
+                    List<Product> products = item.products;
+                    long mappingErrors = item.mappingErrors;
+                    try {
+                        ChunkResult result = pipeline.write(() -> syncCheckpointService.commitChunk(run,
+                                sourceCategory.getId(),
+                                () -> writeProductsChunk(products, mappingErrors, syncLog.getId(), sourceCategory)));
+                        progress.record(result);
+                        totalProcessed += result.processed;
+                        totalCreated += result.created;
+                        totalUpdated += result.updated;
+                        totalErrors += result.errors;
+
+                    } catch (SyncLockLostException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        log.error("Error writing products of category {}: {}", sourceCategory.getTekraSlug(), e.getMessage());
+                        totalErrors += products.size() + mappingErrors;
+                        progress.recordErrors(products.size() + mappingErrors);
+                        failedCategoryIds.add(sourceCategory.getId());
+                    }
                 }
             }
 
-            log.info("STEP 1 COMPLETE: Collected {} unique products from {} categories",
-                    allProducts.size(), allCategories.size());
-
-            // ✅ DEBUG: Покажи sample продукти
-            log.info("Sample products:");
-            allProducts.stream().limit(5).forEach(p ->
-                    log.info("  - SKU: {}, Name: {}, L1={}, L2={}, L3={}",
-                            getString(p, "sku"),
-                            getString(p, "name"),
-                            getString(p, "category_1"),
-                            getString(p, "category_2"),
-                            getString(p, "category_3")
-                    )
+            // a cancelled run must not deactivate anything; it is swept once resumed and completed
+            progress.checkCancelled();
+            SyncLockService.verifyLease();
+
+            // a SKU listed under several categories is written once, so its stamped category is not the only listing
+            int deactivated = productSyncWriter.deactivateMissing(ProductSyncWriter.SOURCE_TEKRA, syncLog.getId(),
+                    run.sweepableCategoryIds(), mapping.processedSkus);
+
+            log.info("=== CATEGORY MATCHING STATISTICS ===");
+            mapping.matchTypeStats.forEach((type, count) ->
+                    log.info("{}: {}", type, count)
+            );
+            log.info("====================================");
+
+            String message = String.format(
+                    "Total: %d, Created: %d, Updated: %d, Deactivated: %d, Skipped (No Category): %d, Errors: %d",
+                    totalProcessed, totalCreated, totalUpdated, deactivated, mapping.skippedNoCategory, totalErrors
             );
 
-            if (allProducts.isEmpty()) {
-                log.warn("No products found in any category");
-                logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_SUCCESS, 0, 0, 0, 0, "No products found", startTime);
-                return;
-            }
+            logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_SUCCESS, totalProcessed, totalCreated,
+                    totalUpdated, totalErrors, message, startTime);
 
-            // STEP 2: Prepare category maps
-            log.info("STEP 2: Loading categories for matching...");
-            Map<String, Category> categoriesByPath = new HashMap<>();
-            Map<String, Category> categoriesByName = new HashMap<>();
-            Map<String, Category> categoriesBySlug = new HashMap<>();
-            Map<String, Category> categoriesByTekraSlug = new HashMap<>();
+            productChangeRefresher.refresh(ProductSyncWriter.SOURCE_TEKRA, syncLog.getId());
 
-            for (Category cat : allCategories) {
-                if (cat.getCategoryPath() != null) {
-                    categoriesByPath.put(cat.getCategoryPath().toLowerCase(), cat);
-                }
-                if (cat.getNameBg() != null) {
-                    categoriesByName.put(cat.getNameBg().toLowerCase(), cat);
-                }
-                if (cat.getSlug() != null) {
-                    categoriesBySlug.put(cat.getSlug().toLowerCase(), cat);
-                }
-                if (cat.getTekraSlug() != null) {
-                    categoriesByTekraSlug.put(cat.getTekraSlug().toLowerCase(), cat);
-                }
-            }
+            log.info("=== COMPLETE: Products sync finished in {}ms ===",
+                    System.currentTimeMillis() - startTime);
 
-            log.info("Category maps created: byPath={}, byName={}, bySlug={}, byTekraSlug={}",
-                    categoriesByPath.size(), categoriesByName.size(),
-                    categoriesBySlug.size(), categoriesByTekraSlug.size());
+        } catch (Exception e) {
+            logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, totalProcessed, totalCreated, totalUpdated,
+                    totalErrors, e.getMessage(), startTime);
+            log.error("=== FAILED: Products synchronization error ===", e);
+            throw e;
+        } finally {
+            referenceDataCache.evictParameters();
+        }
+    }
 
-            // STEP 3: Process products with improved matching
-            log.info("STEP 3: Processing {} products...", allProducts.size());
+    /**
+     * Mapper stage of the products pipeline: splits a category's feed into chunks, maps them and emits them for the
+     * writer. Parameter options and manufacturers created while mapping are inserted here, before the chunk is
+     * emitted, so the writer only writes products.
+     */
+    private void mapCategoryProducts(Category sourceCategory, List<Map<String, Object>> categoryProducts,
+                                     Consumer<TekraProductPipeline.Item> emit, ProductMappingContext mapping) {
+        int committedChunks = mapping.run.committedChunks(sourceCategory.getId());
 
-            long totalProcessed = 0, totalCreated = 0, totalUpdated = 0, totalErrors = 0;
-            long skippedNoCategory = 0;
+        for (int from = 0, chunkIndex = 0; from < categoryProducts.size(); from += batchSize, chunkIndex++) {
+            List<Map<String, Object>> rawChunk =
+                    categoryProducts.subList(from, Math.min(from + batchSize, categoryProducts.size()));
 
-            Map<String, Integer> matchTypeStats = new HashMap<>();
-            matchTypeStats.put("perfect_path", 0);
-            matchTypeStats.put("partial_path", 0);
-            matchTypeStats.put("name_match", 0);
-            matchTypeStats.put("no_match", 0);
+            if (chunkIndex < committedChunks) {
+                // committed before the run was interrupted
+                rawChunk.forEach(rawProduct -> mapping.processedSkus.add(getString(rawProduct, "sku")));
+                continue;
+            }
 
-            for (int i = 0; i < allProducts.size(); i++) {
-                Map<String, Object> rawProduct = allProducts.get(i);
+            List<Product> pendingProducts = new ArrayList<>(rawChunk.size());
+            long chunkErrors = 0;
 
+            for (Map<String, Object> rawProduct : rawChunk) {
                 try {
                     String sku = getString(rawProduct, "sku");
                     String name = getString(rawProduct, "name");
 
                     if (sku == null || name == null) {
                         log.debug("Skipping product with missing SKU or name");
-                        totalErrors++;
+                        chunkErrors++;
+                        continue;
+                    }
+
+                    if (!mapping.processedSkus.add(sku)) {
+                        // already listed in another category
                         continue;
                     }
 
                     // ✅ Намираме правилната категория
-                    Category productCategory = findMostSpecificCategory(rawProduct,
-                            categoriesByName, categoriesBySlug, categoriesByTekraSlug, matchTypeStats);
+                    Category productCategory = findMostSpecificCategory(rawProduct, mapping.categoryMatcher,
+                            mapping.matchTypeStats);
 
                     if (productCategory == null || !isValidCategory(productCategory)) {
                         log.warn("✗✗✗ Skipping product '{}' ({}): NO VALID CATEGORY", name, sku);
-                        skippedNoCategory++;
-                        matchTypeStats.put("no_match", matchTypeStats.get("no_match") + 1);
+                        mapping.skippedNoCategory++;
+                        mapping.matchTypeStats.put("no_match", mapping.matchTypeStats.get("no_match") + 1);
                         continue;
                     }
 
                     log.info("✓✓✓ Product '{}' → category: '{}' (path: '{}')",
                             sku, productCategory.getNameBg(), productCategory.getCategoryPath());
 
-                    // ✅ Намираме/създаваме продукта С категорията
-                    Product product = findOrCreateProduct(sku, rawProduct, productCategory);
-
-                    // ✅ ВАЖНА ПРОВЕРКА: Гарантираме че категорията е зададена
-                    if (product.getCategory() == null) {
-                        log.error("Product {} still has no category after findOrCreateProduct!", sku);
-                        product.setCategory(productCategory);
-                    }
-
-                    boolean isNew = (product.getId() == null);
-
-                    // ✅ Запазваме продукта ПРЕДИ параметрите
-                    product = productRepository.save(product);
-
-                    if (isNew) {
-                        totalCreated++;
-                    } else {
-                        totalUpdated++;
-                    }
-
-                    // ✅ Сега мапваме параметрите (продуктът има категория!)
-                    if (product.getCategory() != null) {
-                        setTekraParametersToProduct(product, rawProduct);
-                        product = productRepository.save(product);
-                    } else {
-                        log.error("Cannot set parameters for product {} - no category!", sku);
-                    }
-
-                    totalProcessed++;
-
-                    if (totalProcessed % 20 == 0) {
-                        log.info("Progress: {}/{} (created: {}, updated: {}, errors: {}, skipped: {})",
-                                totalProcessed, allProducts.size(), totalCreated, totalUpdated,
-                                totalErrors, skippedNoCategory);
-                    }
-
-                    if (totalProcessed % 50 == 0) {
-                        entityManager.flush();
-                        entityManager.clear();
-                    }
+                    pendingProducts.add(mapTekraProduct(sku, rawProduct, productCategory, mapping.parameterDictionary,
+                            mapping.manufacturerResolver));
 
                 } catch (Exception e) {
-                    totalErrors++;
+                    chunkErrors++;
                     log.error("Error processing product {}: {}",
                             getString(rawProduct, "sku"), e.getMessage(), e);
                 }
             }
 
-            log.info("=== CATEGORY MATCHING STATISTICS ===");
-            matchTypeStats.forEach((type, count) ->
-                    log.info("{}: {}", type, count)
-            );
-            log.info("====================================");
+            mapping.parameterDictionary.flushPendingOptions();
+            mapping.manufacturerResolver.flushPending();
 
-            String message = String.format(
-                    "Total: %d, Created: %d, Updated: %d, Skipped (No Category): %d, Errors: %d",
-                    totalProcessed, totalCreated, totalUpdated, skippedNoCategory, totalErrors
-            );
-
-            logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_SUCCESS, totalProcessed, totalCreated,
-                    totalUpdated, totalErrors, message, startTime);
-
-            log.info("=== COMPLETE: Products sync finished in {}ms ===",
-                    System.currentTimeMillis() - startTime);
-
-        } catch (Exception e) {
-            logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, 0, 0, 0, 0, e.getMessage(), startTime);
-            log.error("=== FAILED: Products synchronization error ===", e);
-            throw e;
+            emit.accept(TekraProductPipeline.Item.chunk(sourceCategory, pendingProducts, chunkErrors));
         }
     }
 
-    @Transactional
-    private void fixDuplicateProducts() {
-        log.info("Checking for duplicate products...");
-
-        List<Object[]> duplicates = productRepository.findDuplicateProductsBySku();
-
-        if (!duplicates.isEmpty()) {
-            log.warn("Found {} duplicate products by SKU", duplicates.size());
-
-            for (Object[] duplicate : duplicates) {
-                String sku = (String) duplicate[0];
-                Long count = (Long) duplicate[1];
-
-                List<Product> products = productRepository.findProductsBySkuCode(sku);
-                if (products.size() > 1) {
-                    Product productToKeep = products.get(0);
-                    for (int i = 1; i < products.size(); i++) {
-                        productRepository.delete(products.get(i));
-                    }
-                }
-            }
-        }
-
-        List<Object[]> duplicateExternalIds = productRepository.findDuplicateProductsByExternalId();
-        if (!duplicateExternalIds.isEmpty()) {
-            for (Object[] duplicate : duplicateExternalIds) {
-                Long externalId = (Long) duplicate[0];
+    /**
+     * Writes a mapped chunk of the feed of {@code feedCategory}. Its mapping errors and the products the writer
+     * skipped are recorded as failed records, which keeps the category out of the end-of-run sweep.
+     */
+    private ChunkResult writeProductsChunk(List<Product> products, long mappingErrors, Long syncId,
+                                           Category feedCategory) {
+        ProductSyncWriter.WriteResult writeResult = productSyncWriter.writeTekraProducts(products, syncId,
+                feedCategory.getId());
+        return new ChunkResult(products.size(), writeResult.getCreated(), writeResult.getUpdated(),
+                mappingErrors + writeResult.getConflicts());
+    }
 
-                List<Product> products = productRepository.findProductsByExternalId(externalId);
-                if (products.size() > 1) {
-                    for (int i = 1; i < products.size(); i++) {
-                        productRepository.delete(products.get(i));
-                    }
-                }
-            }
+    private static TekraProductPipeline.Item takeFromPipeline(TekraProductPipeline pipeline) {
+        try {
+            return pipeline.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the products pipeline");
         }
     }
 
-    private Product findOrCreateProduct(String sku, Map<String, Object> rawProduct, Category category) {
+    private Product mapTekraProduct(String sku, Map<String, Object> rawProduct, Category category,
+                                    ParameterDictionary parameterDictionary,
+                                    ManufacturerResolver manufacturerResolver) {
         try {
-            List<Product> existing = productRepository.findProductsBySkuCode(sku);
-            Product product;
-
-            if (!existing.isEmpty()) {
-                product = existing.get(0);
-                if (existing.size() > 1) {
-                    log.warn("Found {} duplicates for SKU: {}, keeping first", existing.size(), sku);
-                    for (int i = 1; i < existing.size(); i++) {
-                        productRepository.delete(existing.get(i));
-                    }
-                }
-            } else {
-                product = new Product();
-                product.setSku(sku);
-            }
-
+            Product product = new Product();
+            product.setSku(sku);
             product.setCategory(category);
-            updateProductFieldsFromTekraXML(product, rawProduct, category.getTekraSlug());
+            // null collections are left untouched by the writer
+            product.setAdditionalImages(null);
+            product.setProductParameters(null);
+
+            updateProductFieldsFromTekraXML(product, rawProduct, category.getTekraSlug(), manufacturerResolver);
+            setTekraParametersToProduct(product, rawProduct, parameterDictionary);
 
             return product;
 
         } catch (Exception e) {
-            log.error("Error in findOrCreateProduct for SKU {}: {}", sku, e.getMessage());
+            log.error("Error mapping Tekra product for SKU {}: {}", sku, e.getMessage());
             throw e;
         }
     }
 
-    private void updateProductFieldsFromTekraXML(Product product, Map<String, Object> rawData, String categorySlug) {
+    private void updateProductFieldsFromTekraXML(Product product, Map<String, Object> rawData, String categorySlug,
+                                                 ManufacturerResolver manufacturerResolver) {
         try {
             product.setReferenceNumber(getString(rawData, "sku"));
 
@@ -938,7 +920,7 @@ public class TekraSyncService {
 
             String manufacturer = getString(rawData, "manufacturer");
             if (manufacturer != null) {
-                setManufacturerFromName(product, manufacturer);
+                setManufacturerFromName(product, manufacturer, manufacturerResolver);
             }
 
             product.calculateFinalPrice();
@@ -985,50 +967,21 @@ public class TekraSyncService {
         }
     }
 
-    private void setManufacturerFromName(Product product, String manufacturerName) {
+    private void setManufacturerFromName(Product product, String manufacturerName,
+                                         ManufacturerResolver manufacturerResolver) {
         if (manufacturerName == null || manufacturerName.trim().isEmpty()) {
             return;
         }
 
-        String normalizedName = normalizeManufacturerName(manufacturerName);
-
-        // Търсим по точно име
-        Optional<Manufacturer> existingOpt = manufacturerRepository.findByName(manufacturerName);
-
-        if (existingOpt.isEmpty()) {
-            // Търсим по нормализирано име (за случаи с малки/големи букви или spacing)
-            List<Manufacturer> allManufacturers = manufacturerRepository.findAll();
-
-            for (Manufacturer m : allManufacturers) {
-                if (normalizedName.equals(normalizeManufacturerName(m.getName()))) {
-                    log.debug("Found existing manufacturer by normalized name: {} ≈ {}",
-                            manufacturerName, m.getName());
-                    product.setManufacturer(m);
-                    return;
-                }
-            }
-
-            // Създаваме нов
+        product.setManufacturer(manufacturerResolver.resolveOrCreate(manufacturerName, name -> {
             Manufacturer manufacturer = new Manufacturer();
-            manufacturer.setName(manufacturerName);
-            manufacturer = manufacturerRepository.save(manufacturer);
-            product.setManufacturer(manufacturer);
-            log.info("Created new manufacturer: {}", manufacturerName);
-        } else {
-            product.setManufacturer(existingOpt.get());
-        }
-    }
-
-    private String normalizeManufacturerName(String name) {
-        if (name == null) return "";
-
-        return name.toLowerCase()
-                .trim()
-                .replaceAll("\\s+", " ")
-                .replaceAll("[^a-zа-я0-9\\s]+", "");  // Премахва специални символи
+            manufacturer.setName(name);
+            return manufacturer;
+        }));
     }
 
-    private void setTekraParametersToProduct(Product product, Map<String, Object> rawProduct) {
+    private void setTekraParametersToProduct(Product product, Map<String, Object> rawProduct,
+                                             ParameterDictionary parameterDictionary) {
         try {
             if (product.getCategory() == null) {
                 log.warn("Product {} has no category, cannot set parameters", product.getSku());
@@ -1046,12 +999,12 @@ public class TekraSyncService {
                     String parameterKey = paramEntry.getKey();
                     String parameterValue = paramEntry.getValue();
 
-                    Optional<Parameter> parameterOpt = parameterRepository
-                            .findByTekraKeyAndCategoryId(parameterKey, product.getCategory().getId());
+                    Optional<Parameter> parameterOpt = parameterDictionary
+                            .findByTekraKey(product.getCategory().getId(), parameterKey);
 
                     if (parameterOpt.isEmpty()) {
                         String parameterName = convertTekraParameterKeyToName(parameterKey);
-                        parameterOpt = parameterRepository.findByCategoryAndNameBg(product.getCategory(), parameterName);
+                        parameterOpt = parameterDictionary.findByNameBg(product.getCategory().getId(), parameterName);
                     }
 
                     if (parameterOpt.isEmpty()) {
@@ -1063,7 +1016,7 @@ public class TekraSyncService {
 
                     Parameter parameter = parameterOpt.get();
 
-                    ParameterOption option = findOrCreateParameterOption(parameter, parameterValue);
+                    ParameterOption option = parameterDictionary.findOrCreateOption(parameter, parameterValue);
                     if (option == null) {
                         log.debug("Parameter option not found: parameter={}, value={}, productSku={}",
                                 parameter.getNameBg(), parameterValue, product.getSku());
@@ -1100,63 +1053,6 @@ public class TekraSyncService {
         }
     }
 
-    private ParameterOption findOrCreateParameterOption(Parameter parameter, String value) {
-        try {
-            // Нормализираме стойността за по-добро сравнение
-            String normalizedValue = normalizeParameterValue(value);
-
-            // СТЪПКА 1: Търсим по точно съвпадение
-            Optional<ParameterOption> option = parameterOptionRepository
-                    .findByParameterAndNameBg(parameter, value);
-
-            if (option.isPresent()) {
-                return option.get();
-            }
-
-            // СТЪПКА 2: Търсим по нормализирана стойност (case-insensitive)
-            List<ParameterOption> allOptions = parameterOptionRepository
-                    .findByParameterIdOrderByOrderAsc(parameter.getId());
-
-            for (ParameterOption opt : allOptions) {
-                String optNormalizedBg = normalizeParameterValue(opt.getNameBg());
-                String optNormalizedEn = normalizeParameterValue(opt.getNameEn());
-
-                if (normalizedValue.equals(optNormalizedBg) ||
-                        normalizedValue.equals(optNormalizedEn)) {
-                    log.debug("Found existing parameter option by normalized value: {} ≈ {}",
-                            value, opt.getNameBg());
-                    return opt;
-                }
-            }
-
-            // СТЪПКА 3: Създаваме нова опция
-            ParameterOption newOption = new ParameterOption();
-            newOption.setParameter(parameter);
-            newOption.setNameBg(value);
-            newOption.setNameEn(value);
-            newOption.setOrder(allOptions.size());
-
-            newOption = parameterOptionRepository.save(newOption);
-            log.debug("Created new parameter option: {} = {} for parameter {}",
-                    parameter.getNameBg(), value, parameter.getNameBg());
-
-            return newOption;
-
-        } catch (Exception e) {
-            log.error("Error finding/creating parameter option for {} = {}: {}",
-                    parameter.getNameBg(), value, e.getMessage());
-            return null;
-        }
-    }
-
-    private String normalizeParameterValue(String value) {
-        if (value == null) return "";
-
-        return value.toLowerCase()
-                .trim()
-                .replaceAll("\\s+", " ");
-    }
-
     private Integer getParameterOrder(String parameterKey) {
         Map<String, Integer> orderMap = Map.ofEntries(
                 Map.entry("model", 1),
@@ -1284,9 +1180,7 @@ public class TekraSyncService {
 
 
     private Category findMostSpecificCategory(Map<String, Object> product,
-                                              Map<String, Category> categoriesByName,
-                                              Map<String, Category> categoriesBySlug,
-                                              Map<String, Category> categoriesByTekraSlug,
+                                              CategoryMatcher categoryMatcher,
                                               Map<String, Integer> matchTypeStats) {
 
         final String category3Raw = getString(product, "category_3");
@@ -1312,9 +1206,7 @@ public class TekraSyncService {
         // ===========================================
         // STRATEGY 1: Exact path match using categoryPath field
         // ===========================================
-        Optional<Category> exactMatch = categoryRepository.findAll().stream()
-                .filter(cat -> cat.getCategoryPath() != null)
-                .filter(cat -> expectedPath.equalsIgnoreCase(cat.getCategoryPath()))
+        Optional<Category> exactMatch = categoryMatcher.findByPath(expectedPath).stream()
                 .filter(this::isValidCategory)
                 .findFirst();
 
@@ -1333,10 +1225,7 @@ public class TekraSyncService {
             log.debug("Product {}: No category_3, searching for level-2 category", sku);
 
             // Try by exact name match
-            Optional<Category> level2Match = categoryRepository.findAll().stream()
-                    .filter(cat -> category2.equalsIgnoreCase(cat.getNameBg()))
-                    .filter(cat -> cat.getParent() != null)
-                    .filter(cat -> category1.equalsIgnoreCase(cat.getParent().getNameBg()))
+            Optional<Category> level2Match = categoryMatcher.findByNameAndParentName(category2, category1).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1350,9 +1239,7 @@ public class TekraSyncService {
 
             // Try by tekraSlug
             String normalizedCat2 = syncHelper.normalizeCategoryForPath(category2);
-            Optional<Category> level2TekraMatch = categoryRepository.findAll().stream()
-                    .filter(cat -> cat.getTekraSlug() != null)
-                    .filter(cat -> normalizedCat2.equalsIgnoreCase(cat.getTekraSlug()))
+            Optional<Category> level2TekraMatch = categoryMatcher.findByTekraSlugIgnoreCase(normalizedCat2).stream()
                     .filter(cat -> cat.getParent() != null)
                     .filter(cat -> category1.equalsIgnoreCase(cat.getParent().getNameBg()))
                     .filter(this::isValidCategory)
@@ -1373,9 +1260,7 @@ public class TekraSyncService {
         if (category2 != null) {
             String partialPath = syncHelper.buildCategoryPath(category1, category2, null);
 
-            Optional<Category> partialMatch = categoryRepository.findAll().stream()
-                    .filter(cat -> cat.getCategoryPath() != null)
-                    .filter(cat -> partialPath.equalsIgnoreCase(cat.getCategoryPath()))
+            Optional<Category> partialMatch = categoryMatcher.findByPath(partialPath).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1394,9 +1279,7 @@ public class TekraSyncService {
         if (category1 != null) {
             String l1Path = syncHelper.buildCategoryPath(category1, null, null);
 
-            Optional<Category> l1Match = categoryRepository.findAll().stream()
-                    .filter(cat -> cat.getCategoryPath() != null)
-                    .filter(cat -> l1Path.equalsIgnoreCase(cat.getCategoryPath()))
+            Optional<Category> l1Match = categoryMatcher.findByPath(l1Path).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1413,9 +1296,7 @@ public class TekraSyncService {
         // ===========================================
         if (category3 != null) {
             String normalizedCat3 = syncHelper.normalizeCategoryForPath(category3);
-            Optional<Category> match = categoryRepository.findAll().stream()
-                    .filter(cat -> cat.getTekraSlug() != null)
-                    .filter(cat -> normalizedCat3.equalsIgnoreCase(cat.getTekraSlug()))
+            Optional<Category> match = categoryMatcher.findByTekraSlugIgnoreCase(normalizedCat3).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1430,9 +1311,7 @@ public class TekraSyncService {
 
         if (category2 != null) {
             String normalizedCat2 = syncHelper.normalizeCategoryForPath(category2);
-            Optional<Category> match = categoryRepository.findAll().stream()
-                    .filter(cat -> cat.getTekraSlug() != null)
-                    .filter(cat -> normalizedCat2.equalsIgnoreCase(cat.getTekraSlug()))
+            Optional<Category> match = categoryMatcher.findByTekraSlugIgnoreCase(normalizedCat2).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1447,9 +1326,7 @@ public class TekraSyncService {
 
         if (category1 != null) {
             String normalizedCat1 = syncHelper.normalizeCategoryForPath(category1);
-            Optional<Category> match = categoryRepository.findAll().stream()
-                    .filter(cat -> cat.getTekraSlug() != null)
-                    .filter(cat -> normalizedCat1.equalsIgnoreCase(cat.getTekraSlug()))
+            Optional<Category> match = categoryMatcher.findByTekraSlugIgnoreCase(normalizedCat1).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1466,10 +1343,7 @@ public class TekraSyncService {
         // STRATEGY 6: Match by name with parent chain validation (L3)
         // ===========================================
         if (category3 != null && category2 != null && category1 != null) {
-            Optional<Category> level3Match = categoryRepository.findAll().stream()
-                    .filter(cat -> category3.equalsIgnoreCase(cat.getNameBg()))
-                    .filter(cat -> cat.getParent() != null)
-                    .filter(cat -> category2.equalsIgnoreCase(cat.getParent().getNameBg()))
+            Optional<Category> level3Match = categoryMatcher.findByNameAndParentName(category3, category2).stream()
                     .filter(cat -> cat.getParent().getParent() != null)
                     .filter(cat -> category1.equalsIgnoreCase(cat.getParent().getParent().getNameBg()))
                     .filter(this::isValidCategory)
@@ -1488,8 +1362,7 @@ public class TekraSyncService {
         // STRATEGY 7: Match by name (L3 → L2 → L1)
         // ===========================================
         if (category3 != null) {
-            Optional<Category> match = categoryRepository.findAll().stream()
-                    .filter(cat -> category3.equalsIgnoreCase(cat.getNameBg()))
+            Optional<Category> match = categoryMatcher.findByName(category3).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1502,8 +1375,7 @@ public class TekraSyncService {
         }
 
         if (category2 != null) {
-            Optional<Category> match = categoryRepository.findAll().stream()
-                    .filter(cat -> category2.equalsIgnoreCase(cat.getNameBg()))
+            Optional<Category> match = categoryMatcher.findByName(category2).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1516,8 +1388,7 @@ public class TekraSyncService {
         }
 
         if (category1 != null) {
-            Optional<Category> match = categoryRepository.findAll().stream()
-                    .filter(cat -> category1.equalsIgnoreCase(cat.getNameBg()))
+            Optional<Category> match = categoryMatcher.findByName(category1).stream()
                     .filter(this::isValidCategory)
                     .findFirst();
 
@@ -1541,6 +1412,7 @@ public class TekraSyncService {
 
     private Category createOrUpdateTekraCategory(Map<String, Object> rawData,
                                                  Map<String, Category> existingCategories,
+                                                 CategoryMatcher categoryMatcher,
                                                  Category parentCategory) {
         try {
             String tekraId = getString(rawData, "id");
@@ -1554,7 +1426,7 @@ public class TekraSyncService {
 
             // ✅ ПОДОБРЕНА ПРОВЕРКА: Включва проверка по име за Vali категории
             Optional<Category> existingCategoryOpt = findExistingCategoryByTekraData(
-                    tekraId, tekraSlug, name, parentCategory);
+                    tekraId, tekraSlug, name, parentCategory, categoryMatcher);
 
             Category category;
             boolean isNew = false;
@@ -1615,7 +1487,7 @@ public class TekraSyncService {
                 // Запазваме съществуващия slug ако категорията вече съществува
                 uniqueSlug = category.getSlug();
             } else {
-                uniqueSlug = generateUniqueSlug(tekraSlug, name, parentCategory, existingCategories);
+                uniqueSlug = generateUniqueSlug(tekraSlug, name, parentCategory, existingCategories, categoryMatcher);
             }
             category.setSlug(uniqueSlug);
 
@@ -1658,57 +1530,37 @@ public class TekraSyncService {
     private Optional<Category> findExistingCategoryByTekraData(String tekraId,
                                                                String tekraSlug,
                                                                String categoryName,
-                                                               Category parentCategory) {
+                                                               Category parentCategory,
+                                                               CategoryMatcher categoryMatcher) {
         // СТЪПКА 1: Проверка по tekraId (ако вече е синхронизирана от Tekra)
         if (tekraId != null) {
-            List<Category> byTekraId = categoryRepository.findAll().stream()
-                    .filter(cat -> tekraId.equals(cat.getTekraId()))
-                    .toList();
-
-            if (!byTekraId.isEmpty()) {
-                for (Category cat : byTekraId) {
-                    if (parentMatches(cat, parentCategory)) {
-                        log.debug("Found existing Tekra category by tekraId: {}", tekraId);
-                        return Optional.of(cat);
-                    }
+            for (Category cat : categoryMatcher.findByTekraId(tekraId)) {
+                if (parentMatches(cat, parentCategory)) {
+                    log.debug("Found existing Tekra category by tekraId: {}", tekraId);
+                    return Optional.of(cat);
                 }
             }
         }
 
         // СТЪПКА 2: Проверка по tekraSlug
         if (tekraSlug != null) {
-            List<Category> byTekraSlug = categoryRepository.findAll().stream()
-                    .filter(cat -> tekraSlug.equals(cat.getTekraSlug()))
-                    .toList();
-
-            if (!byTekraSlug.isEmpty()) {
-                for (Category cat : byTekraSlug) {
-                    if (parentMatches(cat, parentCategory)) {
-                        log.debug("Found existing Tekra category by tekraSlug: {}", tekraSlug);
-                        return Optional.of(cat);
-                    }
+            for (Category cat : categoryMatcher.findByTekraSlugIgnoreCase(tekraSlug)) {
+                if (tekraSlug.equals(cat.getTekraSlug()) && parentMatches(cat, parentCategory)) {
+                    log.debug("Found existing Tekra category by tekraSlug: {}", tekraSlug);
+                    return Optional.of(cat);
                 }
             }
         }
 
         // ✅ СТЪПКА 3: Проверка по име (за категории от Vali, които имат същото име)
         if (categoryName != null && !categoryName.trim().isEmpty()) {
-            String normalizedName = normalizeCategoryName(categoryName);
-
-            List<Category> allCategories = categoryRepository.findAll();
-
-            for (Category cat : allCategories) {
-                // Проверяваме нормализирано име (без регистър, специални символи)
-                String catNameBg = normalizeCategoryName(cat.getNameBg());
-                String catNameEn = normalizeCategoryName(cat.getNameEn());
-
-                if (normalizedName.equals(catNameBg) || normalizedName.equals(catNameEn)) {
-                    // Проверка дали parent съвпада
-                    if (parentMatches(cat, parentCategory)) {
-                        log.info("✓ Found existing Vali category by name: '{}' (ID: {}, will REUSE instead of creating new)",
-                                cat.getNameBg(), cat.getId());
-                        return Optional.of(cat);
-                    }
+            // Нормализирано име (без регистър, специални символи), BG или EN
+            for (Category cat : categoryMatcher.findByNormalizedName(categoryName)) {
+                // Проверка дали parent съвпада
+                if (parentMatches(cat, parentCategory)) {
+                    log.info("✓ Found existing Vali category by name: '{}' (ID: {}, will REUSE instead of creating new)",
+                            cat.getNameBg(), cat.getId());
+                    return Optional.of(cat);
                 }
             }
         }
@@ -1728,7 +1580,8 @@ public class TekraSyncService {
 
     private String generateUniqueSlug(String tekraSlug, String categoryName,
                                       Category parentCategory,
-                                      Map<String, Category> existingCategories) {
+                                      Map<String, Category> existingCategories,
+                                      CategoryMatcher categoryMatcher) {
         if (tekraSlug == null || tekraSlug.isEmpty()) {
             tekraSlug = syncHelper.createSlugFromName(categoryName);
         }
@@ -1737,7 +1590,7 @@ public class TekraSyncService {
 
         if (parentCategory == null) {
             if (!syncHelper.slugExistsInMap(baseSlug, existingCategories) &&
-                    !syncHelper.slugExistsInDatabase(baseSlug, null)) {
+                    !syncHelper.slugExists(baseSlug, null, categoryMatcher)) {
                 return baseSlug;
             }
             return baseSlug + "-root";
@@ -1754,7 +1607,7 @@ public class TekraSyncService {
         String hierarchicalSlug = parentSlug + "-" + baseSlug;
 
         if (!syncHelper.slugExistsInMap(hierarchicalSlug, existingCategories) &&
-                !syncHelper.slugExistsInDatabase(hierarchicalSlug, parentCategory)) {
+                !syncHelper.slugExists(hierarchicalSlug, parentCategory, categoryMatcher)) {
             return hierarchicalSlug;
         }
 
@@ -1768,7 +1621,7 @@ public class TekraSyncService {
         if (discriminator != null && !discriminator.isEmpty()) {
             String discriminatedSlug = hierarchicalSlug + "-" + discriminator;
             if (!syncHelper.slugExistsInMap(discriminatedSlug, existingCategories) &&
-                    !syncHelper.slugExistsInDatabase(discriminatedSlug, parentCategory)) {
+                    !syncHelper.slugExists(discriminatedSlug, parentCategory, categoryMatcher)) {
                 return discriminatedSlug;
             }
         }
@@ -1779,20 +1632,11 @@ public class TekraSyncService {
             numberedSlug = hierarchicalSlug + "-" + counter;
             counter++;
         } while ((syncHelper.slugExistsInMap(numberedSlug, existingCategories) ||
-                syncHelper.slugExistsInDatabase(numberedSlug, parentCategory)) && counter < 100);
+                syncHelper.slugExists(numberedSlug, parentCategory, categoryMatcher)) && counter < 100);
 
         return numberedSlug;
     }
 
-    private String normalizeCategoryName(String name) {
-        if (name == null) return "";
-
-        return name.toLowerCase()
-                .trim()
-                .replaceAll("[^a-zа-я0-9]+", "")
-                .replaceAll("\\s+", "");
-    }
-
     private String getString(Map<String, Object> map, String key) {
         Object value = map.get(key);
         if (value == null) {
@@ -1830,4 +1674,29 @@ public class TekraSyncService {
             return null;
         }
     }
+
+    /**
+     * State of the mapper stage of one products sync; only touched by the mapper thread until the pipeline ends.
+     */
+    private static class ProductMappingContext {
+        final SyncCheckpointService.SyncRun run;
+        final CategoryMatcher categoryMatcher;
+        final ParameterDictionary parameterDictionary;
+        final ManufacturerResolver manufacturerResolver;
+        final Set<String> processedSkus = new HashSet<>();
+        final Map<String, Integer> matchTypeStats = new HashMap<>();
+        long skippedNoCategory;
+
+        ProductMappingContext(SyncCheckpointService.SyncRun run, CategoryMatcher categoryMatcher,
+                              ParameterDictionary parameterDictionary, ManufacturerResolver manufacturerResolver) {
+            this.run = run;
+            this.categoryMatcher = categoryMatcher;
+            this.parameterDictionary = parameterDictionary;
+            this.manufacturerResolver = manufacturerResolver;
+            matchTypeStats.put("perfect_path", 0);
+            matchTypeStats.put("partial_path", 0);
+            matchTypeStats.put("name_match", 0);
+            matchTypeStats.put("no_match", 0);
+        }
+    }
 }
@@ -0,0 +1,215 @@
+package com.techstore.service.sync;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of upstream feed responses for conditional requests.
+ * <p>
+ * A response that carries an {@code ETag} or {@code Last-Modified} header is stored gzip-compressed together with
+ * those validators; the next request for the same URL sends them back as {@code If-None-Match} /
+ * {@code If-Modified-Since}, and a {@code 304 Not Modified} is served from the stored body. Entries are keyed by a
+ * hash of the URL, so access tokens in query strings never end up on disk. Bodies are stored as UTF-8.
+ * <p>
+ * Validators are only sent while the body file exists, so a deleted or corrupt entry just means a full download.
+ * Callers may also store bodies without validators to read them again later ({@link #storedAt(String)}); such an
+ * entry never produces a conditional request.
+ */
+@Component
+@Slf4j
+public class UpstreamResponseCache {
+
+    private static final String BODY_SUFFIX = ".body.gz";
+    private static final String META_SUFFIX = ".properties";
+
+    @Value("${app.sync.upstream-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.sync.upstream-cache.dir:${java.io.tmpdir}/techstore/upstream-cache}")
+    private String cacheDirectory;
+
+    /**
+     * Adds the validators stored for {@code url}, if any, to an outgoing request.
+     */
+    public void addConditionalHeaders(String url, HttpHeaders requestHeaders) {
+        if (!enabled) {
+            return;
+        }
+        String key = key(url);
+        if (!Files.isRegularFile(bodyFile(key))) {
+            return;
+        }
+
+        Properties meta = readMeta(key);
+        if (meta == null) {
+            return;
+        }
+        String etag = meta.getProperty(HttpHeaders.ETAG);
+        String lastModified = meta.getProperty(HttpHeaders.LAST_MODIFIED);
+        if (etag != null) {
+            requestHeaders.set(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            requestHeaders.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a successful response can be revalidated later, i.e. is worth storing.
+     */
+    public boolean isCacheable(HttpHeaders responseHeaders) {
+        return enabled && (responseHeaders.getETag() != null || responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED) != null);
+    }
+
+    /**
+     * Decompressed body stored for {@code url}; used after a {@code 304}.
+     */
+    public InputStream open(String url) throws IOException {
+        return new GZIPInputStream(Files.newInputStream(bodyFile(key(url))));
+    }
+
+    /**
+     * Stores {@code body} with the validators of {@code responseHeaders}, replacing any previous entry.
+     */
+    public void store(String url, HttpHeaders responseHeaders, InputStream body) throws IOException {
+        String key = key(url);
+        Path directory = Paths.get(cacheDirectory);
+        Files.createDirectories(directory);
+
+        Path bodyTemp = Files.createTempFile(directory, key, ".tmp");
+        Path metaTemp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(bodyTemp))) {
+                body.transferTo(out);
+            }
+
+            Properties meta = new Properties();
+            if (responseHeaders.getETag() != null) {
+                meta.setProperty(HttpHeaders.ETAG, responseHeaders.getETag());
+            }
+            if (responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED) != null) {
+                meta.setProperty(HttpHeaders.LAST_MODIFIED, responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED));
+            }
+            try (Writer writer = Files.newBufferedWriter(metaTemp, StandardCharsets.UTF_8)) {
+                meta.store(writer, null);
+            }
+
+            // the body goes first: validators are never sent for a body that is not there yet
+            Files.move(bodyTemp, bodyFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(metaTemp, metaFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(bodyTemp);
+            Files.deleteIfExists(metaTemp);
+        }
+    }
+
+    /**
+     * Stores a body spooled to {@code rawBody} and deletes that file.
+     */
+    public void store(String url, HttpHeaders responseHeaders, Path rawBody) throws IOException {
+        try (InputStream in = Files.newInputStream(rawBody)) {
+            store(url, responseHeaders, in);
+        } finally {
+            Files.deleteIfExists(rawBody);
+        }
+    }
+
+    /**
+     * When the body of {@code url} was stored or last {@linkplain #markRevalidated(String) revalidated}, or
+     * {@code null} if there is none.
+     */
+    public Instant storedAt(String url) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            return Files.getLastModifiedTime(bodyFile(key(url))).toInstant();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records that upstream confirmed the stored body of {@code url} is current ({@code 304}).
+     */
+    public void markRevalidated(String url) {
+        try {
+            Files.setLastModifiedTime(bodyFile(key(url)), FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("Failed to mark upstream cache entry of {} revalidated: {}", key(url), e.getMessage());
+        }
+    }
+
+    public Path createTempFile() throws IOException {
+        Path directory = Paths.get(cacheDirectory);
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, "response-", ".tmp");
+    }
+
+    public void evict(String url) {
+        String key = key(url);
+        try {
+            Files.deleteIfExists(metaFile(key));
+            Files.deleteIfExists(bodyFile(key));
+        } catch (IOException e) {
+            log.warn("Failed to evict upstream cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    private Properties readMeta(String key) {
+        Path file = metaFile(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Properties meta = new Properties();
+            meta.load(reader);
+            return meta;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable upstream cache entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path bodyFile(String key) {
+        return Paths.get(cacheDirectory, key + BODY_SUFFIX);
+    }
+
+    private Path metaFile(String key) {
+        return Paths.get(cacheDirectory, key + META_SUFFIX);
+    }
+
+    private static String key(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -15,29 +15,33 @@ import com.techstore.entity.Product;
 import com.techstore.entity.ProductParameter;
 import com.techstore.entity.SyncLog;
 import com.techstore.enums.ProductStatus;
+import com.techstore.exception.SyncLockLostException;
 import com.techstore.repository.CategoryRepository;
 import com.techstore.repository.ManufacturerRepository;
-import com.techstore.repository.ParameterOptionRepository;
 import com.techstore.repository.ParameterRepository;
-import com.techstore.repository.ProductRepository;
+import com.techstore.repository.ParameterSyncWriter;
+import com.techstore.repository.ProductStagingRepository;
+import com.techstore.repository.ProductSyncWriter;
 import com.techstore.service.CachedLookupService;
 import com.techstore.service.ValiApiService;
 import com.techstore.util.LogHelper;
 import com.techstore.util.SyncHelper;
-import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 import static com.techstore.util.LogHelper.LOG_STATUS_FAILED;
 import static com.techstore.util.LogHelper.LOG_STATUS_SUCCESS;
@@ -50,13 +54,17 @@ public class ValiSyncService {
     private final ValiApiService valiApiService;
     private final CategoryRepository categoryRepository;
     private final ManufacturerRepository manufacturerRepository;
-    private final ProductRepository productRepository;
+    private final ProductSyncWriter productSyncWriter;
+    private final ProductStagingRepository productStagingRepository;
+    private final ParameterSyncWriter parameterSyncWriter;
     private final ParameterRepository parameterRepository;
-    private final ParameterOptionRepository parameterOptionRepository;
-    private final EntityManager entityManager;
+    private final SyncWriteMetrics syncWriteMetrics;
+    private final ProductChangeRefresher productChangeRefresher;
+    private final ReferenceDataCache referenceDataCache;
     private final CachedLookupService cachedLookupService;
     private final SyncHelper syncHelper;
     private final LogHelper logHelper;
+    private final SyncCheckpointService syncCheckpointService;
 
     @Value("#{'${excluded.categories.external-ids}'.split(',')}")
     private Set<Long> excludedCategories;
@@ -64,8 +72,8 @@ public class ValiSyncService {
     @Value("${app.sync.batch-size:30}")
     private int batchSize;
 
-    @Value("${app.sync.max-chunk-duration-minutes:5}")
-    private int maxChunkDurationMinutes;
+    @Value("${app.sync.vali.fetch-concurrency:4}")
+    private int fetchConcurrency;
 
     // ===========================================
     // MANUFACTURERS SYNC
@@ -109,6 +117,8 @@ public class ValiSyncService {
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, 0, 0, 0, 0, e.getMessage(), startTime);
             log.error("Error during manufacturers synchronization", e);
             throw new RuntimeException(e);
+        } finally {
+            referenceDataCache.evictManufacturers();
         }
     }
 
@@ -162,6 +172,8 @@ public class ValiSyncService {
         } catch (Exception e) {
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, 0, 0, 0, 0, e.getMessage(), startTime);
             throw new RuntimeException(e);
+        } finally {
+            referenceDataCache.evictCategories();
         }
     }
 
@@ -169,7 +181,11 @@ public class ValiSyncService {
     // PARAMETERS SYNC
     // ===========================================
 
-    @Transactional
+    /**
+     * Upserts parameters and their options category by category. Categories are fetched concurrently; each one is
+     * written with a few multi-row statements in its own transaction, so a failed category does not roll back the
+     * others.
+     */
     public void syncParameters() {
         String syncType = "PARAMETERS";
         SyncLog syncLog = logHelper.createSyncLogSimple(syncType);
@@ -178,57 +194,38 @@ public class ValiSyncService {
         try {
             log.info("Starting Vali parameters synchronization with options");
 
-            List<Category> categories = categoryRepository.findAll();
-            long totalProcessed = 0, created = 0, updated = 0, errors = 0;
-
-            for (Category category : categories) {
-                try {
-                    Map<String, Parameter> existingParameters = cachedLookupService.getParametersByCategory(category);
-
-                    List<ParameterRequestDto> externalParameters = valiApiService.getParametersByCategory(category.getExternalId());
+            List<Category> categories = categoryRepository.findAll().stream()
+                    .filter(category -> category.getExternalId() != null)
+                    .toList();
+            long totalProcessed = 0, created = 0, updated = 0, optionsCreated = 0, optionsUpdated = 0, errors = 0;
 
-                    if (externalParameters == null || externalParameters.isEmpty()) {
-                        log.debug("No parameters found for category: {}", category.getNameBg());
-                        continue;
-                    }
+            for (CategoryFetch<ParameterRequestDto> fetch : fetchByCategory(categories, valiApiService::fetchParametersByCategory)) {
+                Category category = fetch.category;
+                if (fetch.error != null) {
+                    log.error("Error fetching parameters for category {}: {}", category.getExternalId(), fetch.error.getMessage());
+                    errors++;
+                    continue;
+                }
 
-                    List<Parameter> parametersToSave = new ArrayList<>();
+                List<ParameterRequestDto> externalParameters = fetch.items;
+                if (externalParameters == null || externalParameters.isEmpty()) {
+                    log.debug("No parameters found for category: {}", category.getNameBg());
+                    continue;
+                }
 
+                try {
+                    List<Parameter> parameters = new ArrayList<>(externalParameters.size());
                     for (ParameterRequestDto extParam : externalParameters) {
-                        Parameter parameter = existingParameters.get(extParam.getId().toString());
-
-                        if (parameter == null) {
-                            parameter = parameterRepository
-                                    .findByExternalIdAndCategoryId(extParam.getId(), category.getId())
-                                    .orElseGet(() -> createParameterFromExternal(extParam, category));
-                            created++;
-                        } else {
-                            updateParameterFromExternal(parameter, extParam);
-                            updated++;
-                        }
-
-                        parametersToSave.add(parameter);
-                    }
-
-                    if (!parametersToSave.isEmpty()) {
-                        parameterRepository.saveAll(parametersToSave);
-
-                        for (int i = 0; i < parametersToSave.size(); i++) {
-                            Parameter parameter = parametersToSave.get(i);
-                            ParameterRequestDto extParam = externalParameters.get(i);
-
-                            try {
-                                if (parameter.getExternalId() != null && extParam.getOptions() != null) {
-                                    syncValiParameterOptions(parameter, extParam.getOptions());
-                                }
-                            } catch (Exception e) {
-                                log.error("Error syncing options for parameter {}: {}",
-                                        parameter.getNameBg(), e.getMessage());
-                                errors++;
-                            }
+                        if (extParam.getId() != null) {
+                            parameters.add(createParameterFromExternal(extParam, category));
                         }
                     }
 
+                    ParameterSyncWriter.ParameterWriteResult result = parameterSyncWriter.writeValiParameters(parameters);
+                    created += result.getParametersCreated();
+                    updated += result.getParametersUpdated();
+                    optionsCreated += result.getOptionsCreated();
+                    optionsUpdated += result.getOptionsUpdated();
                     totalProcessed += externalParameters.size();
 
                 } catch (Exception e) {
@@ -237,22 +234,28 @@ public class ValiSyncService {
                 }
             }
 
-            String message = String.format("Vali parameters processed: %d, created: %d, updated: %d",
-                    totalProcessed, created, updated);
+            syncWriteMetrics.recordWrites("vali", "parameter", created, updated);
+            syncWriteMetrics.recordWrites("vali", "parameter_option", optionsCreated, optionsUpdated);
+
+            String message = String.format("Vali parameters processed: %d, created: %d, updated: %d, " +
+                    "options created: %d, options updated: %d", totalProcessed, created, updated, optionsCreated, optionsUpdated);
             if (errors > 0) {
                 message += String.format(", errors: %d", errors);
             }
 
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_SUCCESS, totalProcessed, created, updated, errors,
-                    errors > 0 ? message : null, startTime);
+                    message, startTime);
 
-            log.info("Vali parameters synchronization completed - Processed: {}, Created: {}, Updated: {}, Errors: {}",
-                    totalProcessed, created, updated, errors);
+            log.info("Vali parameters synchronization completed - Processed: {}, Created: {}, Updated: {}, " +
+                            "Options created: {}, Options updated: {}, Errors: {}",
+                    totalProcessed, created, updated, optionsCreated, optionsUpdated, errors);
 
         } catch (Exception e) {
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, 0, 0, 0, 0, e.getMessage(), startTime);
             log.error("Error during Vali parameters synchronization", e);
             throw new RuntimeException(e);
+        } finally {
+            referenceDataCache.evictParameters();
         }
     }
 
@@ -260,36 +263,95 @@ public class ValiSyncService {
     // PRODUCTS SYNC
     // ===========================================
 
-    @Transactional
     public void syncProducts() {
+        syncProducts(false);
+    }
+
+    /**
+     * Upserts products category by category. Every chunk is committed on its own together with its category's
+     * checkpoint; with {@code resume} an interrupted run is continued from its last committed chunk. Vali products of
+     * completed categories that the run did not see are deactivated at the end.
+     */
+    public void syncProducts(boolean resume) {
         String syncType = "PRODUCTS";
-        log.info("Starting chunked products synchronization");
-        SyncLog syncLog = logHelper.createSyncLogSimple(syncType);
+        log.info("Starting chunked products synchronization{}", resume ? " (resume)" : "");
+        SyncCheckpointService.SyncRun run = syncCheckpointService.start(syncType, resume);
+        SyncLog syncLog = run.getSyncLog();
+        SyncProgress progress = SyncProgress.current();
         long startTime = System.currentTimeMillis();
 
-        long totalProcessed = 0, created = 0, updated = 0, errors = 0;
+        ChunkResult committed = run.committedTotals();
+        long totalProcessed = committed.processed, created = committed.created, updated = committed.updated,
+                errors = committed.errors;
 
         try {
-            List<Category> categories = categoryRepository.findAll();
+            List<Category> categories = categoryRepository.findAll().stream()
+                    .filter(category -> !run.isCompleted(category.getId()))
+                    .toList();
             log.info("Found {} categories to process for products", categories.size());
+            progress.setTotalUnits(categories.size());
+
+            ParameterDictionary parameterDictionary = new ParameterDictionary(parameterRepository, parameterSyncWriter);
+            ManufacturerResolver manufacturerResolver = new ManufacturerResolver(manufacturerRepository);
+            Map<Long, Integer> chunksSeen = new HashMap<>();
+            Set<Long> failedCategoryIds = new HashSet<>();
+
+            for (CategoryFetch<ProductRequestDto> batch : streamByCategory(categories, valiApiService::streamProductsByCategory)) {
+                Category category = batch.category;
+                if (batch.error != null) {
+                    log.error("Error getting products for category {}: {}", category.getExternalId(), batch.error.getMessage());
+                    errors++;
+                    progress.recordErrors(1);
+                    progress.unitCompleted();
+                    continue;
+                }
+                if (batch.completed) {
+                    if (!failedCategoryIds.contains(category.getId())) {
+                        syncCheckpointService.completeCategory(run, category.getId());
+                    }
+                    progress.unitCompleted();
+                    continue;
+                }
+
+                int chunkIndex = chunksSeen.merge(category.getId(), 1, Integer::sum) - 1;
+                if (chunkIndex < run.committedChunks(category.getId())) {
+                    // committed before the run was interrupted
+                    continue;
+                }
 
-            for (Category category : categories) {
                 try {
-                    CategorySyncResult result = syncProductsByCategory(category);
+                    ChunkResult result = syncCheckpointService.commitChunk(run, category.getId(),
+                            () -> processProductsChunk(batch.items, parameterDictionary, manufacturerResolver,
+                                    syncLog.getId(), category));
+                    progress.record(result);
                     totalProcessed += result.processed;
                     created += result.created;
                     updated += result.updated;
                     errors += result.errors;
 
+                } catch (SyncLockLostException e) {
+                    throw e;
                 } catch (Exception e) {
                     log.error("Error processing products for category {}: {}", category.getExternalId(), e.getMessage());
-                    errors++;
+                    failedCategoryIds.add(category.getId());
+                    errors += batch.items.size();
+                    progress.recordErrors(batch.items.size());
                 }
             }
+            // a cancelled run must not deactivate anything; it is swept once resumed and completed
+            progress.checkCancelled();
+            SyncLockService.verifyLease();
+
+            int deactivated = productSyncWriter.deactivateMissing(ProductSyncWriter.SOURCE_VALI, syncLog.getId(),
+                    run.sweepableCategoryIds());
 
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_SUCCESS, totalProcessed, created, updated, errors,
-                    errors > 0 ? String.format("Completed with %d errors", errors) : null, startTime);
-            log.info("Products synchronization completed - Created: {}, Updated: {}, Errors: {}", created, updated, errors);
+                    String.format("Deactivated: %d%s", deactivated,
+                            errors > 0 ? String.format(", completed with %d errors", errors) : ""), startTime);
+            log.info("Products synchronization completed - Created: {}, Updated: {}, Deactivated: {}, Errors: {}",
+                    created, updated, deactivated, errors);
+
+            productChangeRefresher.refresh(ProductSyncWriter.SOURCE_VALI, syncLog.getId());
 
         } catch (Exception e) {
             logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, totalProcessed, created, updated, errors, e.getMessage(), startTime);
@@ -298,55 +360,103 @@ public class ValiSyncService {
         }
     }
 
-    // ===========================================
-    // PARAMETER OPTIONS SYNC
-    // ===========================================
+    /**
+     * Full catalog refresh: every category is fetched and COPY-ed into the staging tables, then merged into the live
+     * tables in one short transaction. Products of fully fetched categories that are missing from the feed are
+     * deactivated.
+     */
+    public void syncProductsFull() {
+        String syncType = "PRODUCTS_FULL";
+        log.info("Starting full products refresh via staging tables");
+        SyncLog syncLog = logHelper.createSyncLogSimple(syncType);
+        long startTime = System.currentTimeMillis();
 
-    private void syncValiParameterOptions(Parameter parameter, List<ParameterOptionRequestDto> externalOptions) {
-        if (externalOptions == null || externalOptions.isEmpty()) {
-            return;
-        }
+        long totalProcessed = 0, errors = 0;
 
-        Map<String, ParameterOption> existingOptions = parameterOptionRepository
-                .findByParameterIdOrderByOrderAsc(parameter.getId())
-                .stream()
-                .filter(opt -> opt.getNameBg() != null && !opt.getNameBg().isEmpty())
-                .collect(Collectors.toMap(
-                        ParameterOption::getNameBg,
-                        o -> o,
-                        (existing, duplicate) -> {
-                            log.warn("Duplicate parameter option name '{}' for parameter {}, keeping first (IDs: {} and {})",
-                                    existing.getNameBg(), parameter.getNameBg(), existing.getId(), duplicate.getId());
-                            return existing;
-                        }
-                ));
+        try {
+            List<Category> categories = categoryRepository.findAll();
+            Set<Long> fetchedCategoryIds = new HashSet<>();
+            SyncProgress progress = SyncProgress.current();
+            progress.setTotalUnits(categories.size());
+            ParameterDictionary parameterDictionary = new ParameterDictionary(parameterRepository, parameterSyncWriter);
+            ManufacturerResolver manufacturerResolver = new ManufacturerResolver(manufacturerRepository);
 
-        List<ParameterOption> optionsToSave = new ArrayList<>();
-        int created = 0, updated = 0;
+            productStagingRepository.truncate();
 
-        for (ParameterOptionRequestDto extOption : externalOptions) {
-            ParameterOption option = existingOptions.get(extOption.getId());
+            Set<Long> failedCategoryIds = new HashSet<>();
 
-            if (option == null) {
-                option = createValiParameterOptionFromExternal(extOption, parameter);
-                if (option != null) {
-                    created++;
+            for (CategoryFetch<ProductRequestDto> batch : streamByCategory(categories, valiApiService::streamProductsByCategory)) {
+                Category category = batch.category;
+                if (batch.error != null) {
+                    log.error("Error getting products for category {}: {}", category.getExternalId(), batch.error.getMessage());
+                    errors++;
+                    progress.recordErrors(1);
+                    progress.unitCompleted();
+                    continue;
                 }
-            } else {
-                updateValiParameterOptionFromExternal(option, extOption);
-                updated++;
-            }
+                if (batch.completed) {
+                    if (!failedCategoryIds.contains(category.getId())) {
+                        fetchedCategoryIds.add(category.getId());
+                    }
+                    progress.unitCompleted();
+                    continue;
+                }
+
+                SyncLockService.checkLease();
+                try {
+                    List<Product> mappedProducts = new ArrayList<>(batch.items.size());
+                    for (ProductRequestDto extProduct : batch.items) {
+                        try {
+                            mappedProducts.add(mapProductFromExternal(extProduct, parameterDictionary,
+                                    manufacturerResolver));
+                        } catch (Exception e) {
+                            errors++;
+                            log.error("Error mapping product {}: {}", extProduct.getId(), e.getMessage());
+                            // not staged, so the merge must not deactivate it as missing
+                            failedCategoryIds.add(category.getId());
+                        }
+                    }
+                    // staged rows bypass the writer, so mirrored images are applied before the copy
+                    productSyncWriter.applyImageMirrors(mappedProducts);
+                    long copied = productStagingRepository.copy(mappedProducts, category.getId());
+                    totalProcessed += copied;
+                    progress.recordProcessed(copied);
 
-            if (option != null) {
-                optionsToSave.add(option);
+                } catch (Exception e) {
+                    log.error("Error staging products for category {}: {}", category.getExternalId(), e.getMessage());
+                    failedCategoryIds.add(category.getId());
+                    errors++;
+                }
             }
-        }
 
-        if (!optionsToSave.isEmpty()) {
-            parameterOptionRepository.saveAll(optionsToSave);
+            // a cancelled refresh must not deactivate anything, so stop before the merge
+            progress.checkCancelled();
+            SyncLockService.verifyLease();
+
+            ProductStagingRepository.MergeResult result = productStagingRepository.merge(fetchedCategoryIds, syncLog.getId());
+            // skipped for a reference number another product already has; reported like mapping errors
+            errors += result.getConflicts();
+
+            logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_SUCCESS, totalProcessed, result.getInserted(),
+                    result.getUpdated(), errors,
+                    String.format("Deactivated: %d%s", result.getDeactivated(),
+                            errors > 0 ? String.format(", completed with %d errors", errors) : ""), startTime);
+            log.info("Full products refresh completed - Created: {}, Updated: {}, Deactivated: {}, Errors: {}",
+                    result.getInserted(), result.getUpdated(), result.getDeactivated(), errors);
+
+            productChangeRefresher.refresh(ProductSyncWriter.SOURCE_VALI, syncLog.getId());
+
+        } catch (Exception e) {
+            logHelper.updateSyncLogSimple(syncLog, LOG_STATUS_FAILED, totalProcessed, 0, 0, errors, e.getMessage(), startTime);
+            log.error("Error during full products refresh", e);
+            throw new RuntimeException(e);
         }
     }
 
+    // ===========================================
+    // PARAMETER OPTIONS MAPPING
+    // ===========================================
+
     private ParameterOption createValiParameterOptionFromExternal(ParameterOptionRequestDto extOption, Parameter parameter) {
         try {
             ParameterOption option = new ParameterOption();
@@ -371,29 +481,12 @@ public class ValiSyncService {
         }
     }
 
-    private void updateValiParameterOptionFromExternal(ParameterOption option, ParameterOptionRequestDto extOption) {
-        try {
-            option.setOrder(extOption.getOrder());
-
-            if (extOption.getName() != null) {
-                extOption.getName().forEach(name -> {
-                    if ("bg".equals(name.getLanguageCode())) {
-                        option.setNameBg(name.getText());
-                    } else if ("en".equals(name.getLanguageCode())) {
-                        option.setNameEn(name.getText());
-                    }
-                });
-            }
-        } catch (Exception e) {
-            log.error("Error updating Vali parameter option: {}", e.getMessage());
-        }
-    }
-
     // ===========================================
     // PRODUCT PARAMETERS MAPPING
     // ===========================================
 
-    private void setParametersToProduct(Product product, ProductRequestDto extProduct) {
+    private void setParametersToProduct(Product product, ProductRequestDto extProduct,
+                                        ParameterDictionary parameterDictionary) {
         if (extProduct.getParameters() == null || product.getCategory() == null) {
             product.setProductParameters(new HashSet<>());
             return;
@@ -405,35 +498,22 @@ public class ValiSyncService {
 
         for (ParameterValueRequestDto paramValue : extProduct.getParameters()) {
             try {
-                Optional<Parameter> parameterOpt = cachedLookupService
-                        .getParameter(paramValue.getParameterId(), product.getCategory().getId());
+                Optional<Parameter> parameterOpt = parameterDictionary
+                        .findByExternalId(product.getCategory().getId(), paramValue.getParameterId());
 
                 if (parameterOpt.isEmpty()) {
-                    parameterOpt = parameterRepository.findByExternalIdAndCategoryId(
-                            paramValue.getParameterId(), product.getCategory().getId());
-
-                    if (parameterOpt.isEmpty()) {
-                        notFoundCount++;
-                        continue;
-                    }
+                    notFoundCount++;
+                    continue;
                 }
 
                 Parameter parameter = parameterOpt.get();
 
-                Optional<ParameterOption> optionOpt = cachedLookupService
-                        .getParameterOption(paramValue.getOptionId(), parameter.getId());
+                Optional<ParameterOption> optionOpt = parameterDictionary
+                        .findOptionByExternalId(parameter, paramValue.getOptionId());
 
                 if (optionOpt.isEmpty()) {
-                    optionOpt = parameterOptionRepository
-                            .findByParameterIdOrderByOrderAsc(parameter.getId())
-                            .stream()
-                            .filter(opt -> paramValue.getOptionId().equals(opt.getExternalId()))
-                            .findFirst();
-
-                    if (optionOpt.isEmpty()) {
-                        notFoundCount++;
-                        continue;
-                    }
+                    notFoundCount++;
+                    continue;
                 }
 
                 ParameterOption option = optionOpt.get();
@@ -628,152 +708,76 @@ public class ValiSyncService {
             });
         }
 
-        return parameter;
-    }
-
-    private void updateParameterFromExternal(Parameter parameter, ParameterRequestDto extParameter) {
-        parameter.setOrder(extParameter.getOrder());
-
-        if (extParameter.getName() != null) {
-            extParameter.getName().forEach(name -> {
-                if ("bg".equals(name.getLanguageCode())) {
-                    parameter.setNameBg(name.getText());
-                } else if ("en".equals(name.getLanguageCode())) {
-                    parameter.setNameEn(name.getText());
+        if (extParameter.getOptions() != null) {
+            for (ParameterOptionRequestDto extOption : extParameter.getOptions()) {
+                if (extOption.getId() == null) {
+                    continue;
                 }
-            });
+                ParameterOption option = createValiParameterOptionFromExternal(extOption, parameter);
+                if (option != null) {
+                    parameter.getOptions().add(option);
+                }
+            }
         }
+
+        return parameter;
     }
 
     // ===========================================
     // PRODUCT SYNC BY CATEGORY
     // ===========================================
 
-    private CategorySyncResult syncProductsByCategory(Category category) {
-        long totalProcessed = 0, created = 0, updated = 0, errors = 0;
-
-        try {
-            Map<Long, Manufacturer> manufacturersMap = manufacturerRepository.findAll()
-                    .stream()
-                    .filter(m -> m.getExternalId() != null)
-                    .collect(Collectors.toMap(
-                            Manufacturer::getExternalId,
-                            m -> m,
-                            (existing, duplicate) -> {
-                                log.warn("Duplicate manufacturer externalId: {}, IDs: {} and {}, keeping first",
-                                        existing.getExternalId(), existing.getId(), duplicate.getId());
-                                return existing;
-                            }
-                    ));
-
-            List<ProductRequestDto> allProducts = valiApiService.getProductsByCategory(category.getExternalId());
-
-            if (allProducts.isEmpty()) {
-                return new CategorySyncResult(0, 0, 0, 0);
-            }
-
-            List<List<ProductRequestDto>> chunks = partitionList(allProducts, batchSize);
-
-            for (int i = 0; i < chunks.size(); i++) {
-                List<ProductRequestDto> chunk = chunks.get(i);
-
-                try {
-                    ChunkResult result = processProductsChunk(chunk, manufacturersMap);
-                    totalProcessed += result.processed;
-                    created += result.created;
-                    updated += result.updated;
-                    errors += result.errors;
-
-                    if (i < chunks.size() - 1) {
-                        entityManager.flush();
-                        entityManager.clear();
-                    }
-
-                } catch (Exception e) {
-                    log.error("Error processing product chunk: {}", e.getMessage());
-                    errors += chunk.size();
-                }
-            }
-
-        } catch (Exception e) {
-            log.error("Error getting products for category: {}", e.getMessage());
-            errors++;
-        }
-
-        return new CategorySyncResult(totalProcessed, created, updated, errors);
-    }
+    /**
+     * Maps and writes one chunk of the feed of {@code feedCategory}. Every product of the chunk is mapped; products
+     * that fail to map or are skipped by the writer are counted as errors, which keeps the category out of the
+     * end-of-run sweep.
+     */
+    private ChunkResult processProductsChunk(List<ProductRequestDto> products, ParameterDictionary parameterDictionary,
+                                             ManufacturerResolver manufacturerResolver, Long syncId,
+                                             Category feedCategory) {
+        long processed = 0, errors = 0;
 
-    private ChunkResult processProductsChunk(List<ProductRequestDto> products, Map<Long, Manufacturer> manufacturersMap) {
-        long processed = 0, created = 0, updated = 0, errors = 0;
-        long chunkStartTime = System.currentTimeMillis();
+        List<Product> mappedProducts = new ArrayList<>(products.size());
 
         for (ProductRequestDto extProduct : products) {
             try {
-                Optional<Product> existingProduct = productRepository.findByExternalId(extProduct.getId());
-
-                if (existingProduct.isPresent()) {
-                    updateProductFromExternal(existingProduct.get(), extProduct, manufacturersMap);
-                    updated++;
-                } else {
-                    createProductFromExternal(extProduct, manufacturersMap);
-                    created++;
-                }
-
+                mappedProducts.add(mapProductFromExternal(extProduct, parameterDictionary, manufacturerResolver));
                 processed++;
 
-                if (processed % 10 == 0) {
-                    entityManager.flush();
-                    entityManager.clear();
-                }
-
-                if ((System.currentTimeMillis() - chunkStartTime) > (maxChunkDurationMinutes * 60 * 1000)) {
-                    break;
-                }
-
             } catch (Exception e) {
                 errors++;
                 log.error("Error processing product: {}", e.getMessage());
             }
         }
 
-        entityManager.flush();
-        entityManager.clear();
+        ProductSyncWriter.WriteResult writeResult = productSyncWriter.writeValiProducts(mappedProducts, syncId,
+                feedCategory.getId());
 
-        return new ChunkResult(processed, created, updated, errors);
+        return new ChunkResult(processed, writeResult.getCreated(), writeResult.getUpdated(),
+                errors + writeResult.getConflicts());
     }
 
     // ===========================================
     // PRODUCT HELPERS
     // ===========================================
 
-    private void createProductFromExternal(ProductRequestDto extProduct, Map<Long, Manufacturer> manufacturersMap) {
-        Manufacturer manufacturer = manufacturersMap.get(extProduct.getManufacturerId());
+    private Product mapProductFromExternal(ProductRequestDto extProduct, ParameterDictionary parameterDictionary,
+                                           ManufacturerResolver manufacturerResolver) {
+        Manufacturer manufacturer = manufacturerResolver.findByExternalId(extProduct.getManufacturerId()).orElse(null);
 
         Product product = new Product();
-        product.setId(null);
-        updateProductFieldsFromExternal(product, extProduct, manufacturer);
+        updateProductFieldsFromExternal(product, extProduct, manufacturer, parameterDictionary);
 
-        try {
-            productRepository.save(product);
-        } catch (Exception e) {
-            log.error("Failed to create product: {}", e.getMessage());
-            throw e;
+        if (product.getCategory() == null) {
+            // category unknown here, so keep whatever parameters the stored product already has
+            product.setProductParameters(null);
         }
-    }
-
-    private void updateProductFromExternal(Product product, ProductRequestDto extProduct, Map<Long, Manufacturer> manufacturersMap) {
-        Manufacturer manufacturer = manufacturersMap.get(extProduct.getManufacturerId());
-        updateProductFieldsFromExternal(product, extProduct, manufacturer);
 
-        try {
-            productRepository.save(product);
-        } catch (Exception e) {
-            log.error("Failed to update product: {}", e.getMessage());
-            throw e;
-        }
+        return product;
     }
 
-    private void updateProductFieldsFromExternal(Product product, ProductRequestDto extProduct, Manufacturer manufacturer) {
+    private void updateProductFieldsFromExternal(Product product, ProductRequestDto extProduct, Manufacturer manufacturer,
+                                                ParameterDictionary parameterDictionary) {
         product.setExternalId(extProduct.getId());
         product.setWorkflowId(extProduct.getIdWF());
         product.setReferenceNumber(extProduct.getReferenceNumber());
@@ -793,7 +797,7 @@ public class ValiSyncService {
         setImagesToProduct(product, extProduct);
         setNamesToProduct(product, extProduct);
         setDescriptionToProduct(product, extProduct);
-        setParametersToProduct(product, extProduct);
+        setParametersToProduct(product, extProduct, parameterDictionary);
         product.calculateFinalPrice();
     }
 
@@ -866,43 +870,59 @@ public class ValiSyncService {
     // UTILITY METHODS
     // ===========================================
 
-    private <T> List<List<T>> partitionList(List<T> list, int partitionSize) {
-        List<List<T>> partitions = new ArrayList<>();
-        for (int i = 0; i < list.size(); i += partitionSize) {
-            partitions.add(list.subList(i, Math.min(i + partitionSize, list.size())));
-        }
-        return partitions;
+    /**
+     * Fetches per-category data with at most {@code fetchConcurrency} requests in flight. Results are consumed on the
+     * calling (transactional) thread as they complete; the bounded iterator applies backpressure, so no more than a
+     * few categories are buffered ahead of the DB writes. A failed category is reported in its result instead of
+     * failing the whole sync.
+     */
+    private <T> Iterable<CategoryFetch<T>> fetchByCategory(List<Category> categories,
+                                                           Function<Long, Mono<List<T>>> fetcher) {
+        return Flux.fromIterable(categories)
+                .flatMap(category -> fetcher.apply(category.getExternalId())
+                                .map(items -> new CategoryFetch<>(category, items, null, true))
+                                .onErrorResume(e -> Mono.just(new CategoryFetch<>(category, List.of(), e, false))),
+                        fetchConcurrency)
+                .toIterable(fetchConcurrency);
+    }
+
+    /**
+     * Like {@link #fetchByCategory} for streamed responses: each category's items arrive in batches of
+     * {@code batchSize} as they are decoded, followed by a {@code completed} marker once its response has been read
+     * to the end. Batches of different categories may interleave. At most {@code fetchConcurrency} batches wait
+     * for the caller, so memory stays bounded however large a single category is. Cancelling the current
+     * {@link SyncProgress}, or losing the sync lock, ends the stream and the in-flight requests.
+     */
+    private <T> Iterable<CategoryFetch<T>> streamByCategory(List<Category> categories,
+                                                            Function<Long, Flux<T>> fetcher) {
+        SyncProgress progress = SyncProgress.current();
+        SyncLockService.SyncLock lock = SyncLockService.current();
+        return Flux.fromIterable(categories)
+                .flatMap(category -> fetcher.apply(category.getExternalId())
+                                .buffer(batchSize)
+                                .map(items -> new CategoryFetch<>(category, items, null, false))
+                                .concatWith(Mono.fromSupplier(() -> new CategoryFetch<>(category, List.of(), null, true)))
+                                .onErrorResume(e -> Mono.just(new CategoryFetch<>(category, List.of(), e, false))),
+                        fetchConcurrency, 1)
+                .takeWhile(batch -> !progress.isCancelled() && (lock == null || !lock.isLost()))
+                .toIterable(fetchConcurrency);
     }
 
     // ===========================================
     // RESULT CLASSES
     // ===========================================
 
-    private static class CategorySyncResult {
-        long processed;
-        long created;
-        long updated;
-        long errors;
-
-        CategorySyncResult(long processed, long created, long updated, long errors) {
-            this.processed = processed;
-            this.created = created;
-            this.updated = updated;
-            this.errors = errors;
-        }
-    }
-
-    private static class ChunkResult {
-        long processed;
-        long created;
-        long updated;
-        long errors;
-
-        ChunkResult(long processed, long created, long updated, long errors) {
-            this.processed = processed;
-            this.created = created;
-            this.updated = updated;
-            this.errors = errors;
+    private static class CategoryFetch<T> {
+        final Category category;
+        final List<T> items;
+        final Throwable error;
+        final boolean completed;
+
+        CategoryFetch(Category category, List<T> items, Throwable error, boolean completed) {
+            this.category = category;
+            this.items = items;
+            this.error = error;
+            this.completed = completed;
         }
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.techstore.util;
 
 import com.techstore.entity.Category;
 import com.techstore.repository.CategoryRepository;
+import com.techstore.service.sync.CategoryMatcher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -51,9 +52,11 @@ public class SyncHelper {
     }
 
     public boolean slugExistsInDatabase(String slug, Category parentCategory) {
-        List<Category> existing = categoryRepository.findAll().stream()
-                .filter(cat -> slug.equals(cat.getSlug()))
-                .toList();
+        return slugExists(slug, parentCategory, CategoryMatcher.of(categoryRepository.findAll()));
+    }
+
+    public boolean slugExists(String slug, Category parentCategory, CategoryMatcher categoryMatcher) {
+        List<Category> existing = categoryMatcher.findBySlug(slug);
 
         if (existing.isEmpty()) {
             return false;
@@ -102,6 +105,8 @@ public class SyncHelper {
             return Optional.empty();
         }
 
+        CategoryMatcher categoryMatcher = CategoryMatcher.of(categoryRepository.findAll());
+
         // Start with root level categories
         Category currentCategory = null;
 
@@ -114,8 +119,7 @@ public class SyncHelper {
 
             // Find category with this slug that has the current category as parent
             Category finalCurrentCategory = currentCategory;
-            Optional<Category> foundCategory = categoryRepository.findAll().stream()
-                    .filter(cat -> slug.equals(cat.getSlug()))
+            Optional<Category> foundCategory = categoryMatcher.findBySlug(slug).stream()
                     .filter(cat -> {
                         if (finalCurrentCategory == null) {
                             // Looking for root level category (no parent)
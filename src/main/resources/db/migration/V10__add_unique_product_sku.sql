@@ -0,0 +1,47 @@
+-- V10__add_unique_product_sku.sql
+
+-- Tekra products are keyed by SKU, but products.sku was never unique, so every sync
+-- started with a duplicate cleanup. Existing duplicates are merged into the row with
+-- the lowest id (the one the sync has always updated), then the constraint keeps new
+-- ones out. NULL SKUs (Vali and manually created products) stay allowed.
+
+CREATE TEMP TABLE product_duplicates ON COMMIT DROP AS
+SELECT id, keep_id
+FROM (
+    SELECT id, FIRST_VALUE(id) OVER (PARTITION BY sku ORDER BY id) AS keep_id
+    FROM products
+    WHERE sku IS NOT NULL
+) ranked
+WHERE id <> keep_id;
+
+-- Cart lines of duplicates are merged into the canonical product, adding up quantities
+INSERT INTO cart_items (user_id, product_id, quantity)
+SELECT c.user_id, d.keep_id, SUM(c.quantity)
+FROM cart_items c
+JOIN product_duplicates d ON d.id = c.product_id
+GROUP BY c.user_id, d.keep_id
+ON CONFLICT (user_id, product_id) DO UPDATE
+    SET quantity = cart_items.quantity + EXCLUDED.quantity,
+        updated_at = CURRENT_TIMESTAMP;
+
+INSERT INTO user_favorites (user_id, product_id)
+SELECT DISTINCT f.user_id, d.keep_id
+FROM user_favorites f
+JOIN product_duplicates d ON d.id = f.product_id
+ON CONFLICT (user_id, product_id) DO NOTHING;
+
+-- Order lines keep their snapshot columns; only the reference moves
+UPDATE order_items o
+SET product_id = d.keep_id
+FROM product_duplicates d
+WHERE o.product_id = d.id;
+
+-- Remaining child rows (cart, favorites, parameters, images, flags) go with the cascade
+DELETE FROM products p
+USING product_duplicates d
+WHERE p.id = d.id;
+
+ALTER TABLE products ADD CONSTRAINT uq_products_sku UNIQUE (sku);
+
+-- Covered by the constraint's index
+DROP INDEX IF EXISTS idx_products_sku;
@@ -0,0 +1,18 @@
+-- V11__add_product_source_tracking.sql
+
+-- Mark-and-sweep deactivation: every product sync stamps the products it writes with
+-- its sync_logs id, and products of completely fetched categories whose stamp is
+-- older than the current run are deactivated at the end of it.
+
+ALTER TABLE products ADD COLUMN source VARCHAR(20);
+ALTER TABLE products ADD COLUMN last_seen_sync_id BIGINT;
+
+-- Vali products are keyed by external_id, Tekra products by sku; manually created
+-- products have neither and are never swept
+UPDATE products SET source = 'VALI' WHERE external_id IS NOT NULL;
+UPDATE products SET source = 'TEKRA' WHERE source IS NULL AND sku IS NOT NULL;
+
+CREATE INDEX idx_products_source_category ON products(source, category_id);
+
+COMMENT ON COLUMN products.source IS 'Upstream feed the product is synced from (VALI, TEKRA); NULL for manual products';
+COMMENT ON COLUMN products.last_seen_sync_id IS 'sync_logs id of the last product sync that found the product in its feed';
@@ -0,0 +1,35 @@
+-- V12__add_unique_parameter_option_external_id.sql
+
+-- The Vali parameters sync matched existing options by name against the upstream id,
+-- so every run inserted each option again. Duplicates are merged into the option with
+-- the lowest id, then the constraint lets the sync upsert options by external id.
+-- NULL external ids (Tekra and manually created options) stay allowed.
+
+CREATE TEMP TABLE parameter_option_duplicates ON COMMIT DROP AS
+SELECT id, keep_id
+FROM (
+    SELECT id, FIRST_VALUE(id) OVER (PARTITION BY parameter_id, external_id ORDER BY id) AS keep_id
+    FROM parameter_options
+    WHERE external_id IS NOT NULL
+) ranked
+WHERE id <> keep_id;
+
+UPDATE product_parameters pp
+SET parameter_option_id = d.keep_id
+FROM parameter_option_duplicates d
+WHERE pp.parameter_option_id = d.id;
+
+-- Re-pointing can leave a product with the same value twice
+DELETE FROM product_parameters pp
+USING product_parameters kept
+WHERE pp.product_id = kept.product_id
+  AND pp.parameter_id = kept.parameter_id
+  AND pp.parameter_option_id = kept.parameter_option_id
+  AND pp.id > kept.id;
+
+DELETE FROM parameter_options o
+USING parameter_option_duplicates d
+WHERE o.id = d.id;
+
+ALTER TABLE parameter_options
+    ADD CONSTRAINT uq_parameter_option_parameter_external UNIQUE (parameter_id, external_id);
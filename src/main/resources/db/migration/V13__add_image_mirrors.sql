@@ -0,0 +1,26 @@
+-- V13__add_image_mirrors.sql
+
+-- Supplier product images copied to our own storage. One row per supplier URL;
+-- URLs serving the same content share one stored copy (content_hash). Failed
+-- downloads keep a row without mirrored_url so they are retried a limited number
+-- of times instead of on every run.
+
+CREATE TABLE image_mirrors (
+    source_url VARCHAR(1000) PRIMARY KEY,
+    content_hash CHAR(64),
+    mirrored_url VARCHAR(1000),
+    content_type VARCHAR(100),
+    size_bytes BIGINT,
+    failures INTEGER NOT NULL DEFAULT 0,
+    last_error VARCHAR(500),
+    last_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_image_mirrors_content_hash ON image_mirrors(content_hash);
+CREATE INDEX idx_image_mirrors_mirrored_url ON image_mirrors(mirrored_url);
+
+-- Used when rewriting product images to their mirrored copies
+CREATE INDEX idx_additional_images_urls ON additional_images(additional_urls);
+
+COMMENT ON TABLE image_mirrors IS 'Supplier image URLs and their copies in our storage';
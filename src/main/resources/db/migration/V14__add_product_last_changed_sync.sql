@@ -0,0 +1,12 @@
+-- V14__add_product_last_changed_sync.sql
+
+-- Product syncs stamp every product they see with last_seen_sync_id (V11), but only
+-- products whose columns, parameters or images actually changed get
+-- last_changed_sync_id. The post-sync refresh reads this set instead of reindexing
+-- and re-analyzing the whole catalog, and it survives an interrupted run being resumed.
+
+ALTER TABLE products ADD COLUMN last_changed_sync_id BIGINT;
+
+CREATE INDEX idx_products_last_changed_sync ON products(last_changed_sync_id);
+
+COMMENT ON COLUMN products.last_changed_sync_id IS 'sync_logs id of the last product sync that inserted or changed the product';
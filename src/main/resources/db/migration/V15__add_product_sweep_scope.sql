@@ -0,0 +1,24 @@
+-- V15__add_product_sweep_scope.sql
+
+-- The end-of-sync sweep (V11) deactivates products that a completely fetched feed
+-- category no longer lists. It used to match on the mapped category_id, but a product
+-- is placed in a category other than the feed category it is listed under (most
+-- specific Tekra match, first Vali category), so the sweep now matches on the feed
+-- category the product was last seen under.
+--
+-- deactivated_by_sync marks products the sweep deactivated, so a sync that finds them
+-- again reactivates them; products disabled by an admin are left alone.
+
+ALTER TABLE products ADD COLUMN last_seen_feed_category_id BIGINT;
+ALTER TABLE products ADD COLUMN deactivated_by_sync BOOLEAN NOT NULL DEFAULT false;
+
+-- until a product is seen again, its mapped category is the best guess
+UPDATE products SET last_seen_feed_category_id = category_id WHERE source IS NOT NULL;
+
+DROP INDEX idx_products_source_category;
+CREATE INDEX idx_products_source_feed_category ON products(source, last_seen_feed_category_id);
+
+ALTER TABLE staging_products ADD COLUMN feed_category_id BIGINT;
+
+COMMENT ON COLUMN products.last_seen_feed_category_id IS 'Local id of the feed category the last product sync that saw the product listed it under';
+COMMENT ON COLUMN products.deactivated_by_sync IS 'Deactivated by a product sync because its feed no longer listed it; reactivated when it reappears';
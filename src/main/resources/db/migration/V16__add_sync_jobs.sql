@@ -0,0 +1,31 @@
+-- V16__add_sync_jobs.sql
+
+-- Admin-triggered sync jobs, shared by all nodes. The node running a job (owner) writes
+-- its status and counters here periodically and picks up cancel_requested from here, so
+-- the jobs API and cancellation work from whichever node receives the request. A job
+-- whose owner stops reporting is failed by the other nodes once updated_at goes stale.
+
+CREATE TABLE sync_jobs (
+    id VARCHAR(36) PRIMARY KEY,
+    source VARCHAR(50) NOT NULL,
+    type VARCHAR(50) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    owner VARCHAR(255) NOT NULL,
+    cancel_requested BOOLEAN NOT NULL DEFAULT false,
+    submitted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    error_message TEXT,
+    processed BIGINT,
+    created BIGINT,
+    updated BIGINT,
+    errors BIGINT,
+    completed_units BIGINT,
+    total_units BIGINT,
+    throughput_per_second DOUBLE PRECISION,
+    eta_seconds BIGINT,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_sync_jobs_submitted_at ON sync_jobs(submitted_at);
+CREATE INDEX idx_sync_jobs_unfinished ON sync_jobs(updated_at) WHERE finished_at IS NULL;
@@ -0,0 +1,11 @@
+-- V17__add_sync_checkpoint_resumed_mid_feed.sql
+
+-- A resumed run skips the chunks a category already committed by their position in a
+-- freshly fetched feed. If the feed changed in between, products that moved into the
+-- skipped range are never seen by the run, so such a category must not take part in the
+-- end-of-sync sweep. The flag is kept on the checkpoint so that it survives further
+-- resumes of the same run.
+
+ALTER TABLE sync_checkpoints ADD COLUMN resumed_mid_feed BOOLEAN NOT NULL DEFAULT false;
+
+COMMENT ON COLUMN sync_checkpoints.resumed_mid_feed IS 'Resumed after some of its chunks were committed; its feed was not read as a whole, so it is not swept';
@@ -0,0 +1,51 @@
+-- V7__add_product_staging_tables.sql
+
+-- Staging tables for full catalog refreshes. They are loaded with COPY and merged into
+-- products / product_parameters / additional_images with set-based statements.
+-- UNLOGGED: contents are disposable and truncated before every load.
+
+CREATE UNLOGGED TABLE staging_products (
+    row_no BIGSERIAL PRIMARY KEY,
+    external_id BIGINT NOT NULL,
+    workflow_id BIGINT,
+    reference_number VARCHAR(255),
+    model VARCHAR(255),
+    barcode VARCHAR(255),
+    manufacturer_id BIGINT,
+    status VARCHAR(50),
+    price_client DECIMAL(10, 2),
+    price_partner DECIMAL(10, 2),
+    price_promo DECIMAL(10, 2),
+    price_client_promo DECIMAL(10, 2),
+    final_price DECIMAL(10, 2),
+    show_flag BOOLEAN,
+    warranty INTEGER,
+    weight DECIMAL(8, 2),
+    category_id BIGINT,
+    image_url VARCHAR(1000),
+    name_bg TEXT,
+    name_en TEXT,
+    description_bg TEXT,
+    description_en TEXT,
+    has_parameters BOOLEAN NOT NULL DEFAULT false
+);
+
+CREATE INDEX idx_staging_products_external_id ON staging_products(external_id);
+
+CREATE UNLOGGED TABLE staging_product_parameters (
+    external_id BIGINT NOT NULL,
+    parameter_id BIGINT NOT NULL,
+    parameter_option_id BIGINT NOT NULL
+);
+
+CREATE INDEX idx_staging_product_parameters_external_id ON staging_product_parameters(external_id);
+
+CREATE UNLOGGED TABLE staging_additional_images (
+    external_id BIGINT NOT NULL,
+    position INTEGER NOT NULL,
+    url VARCHAR(1000) NOT NULL
+);
+
+CREATE INDEX idx_staging_additional_images_external_id ON staging_additional_images(external_id);
+
+COMMENT ON TABLE staging_products IS 'COPY target for full product refreshes (truncated before each load)';
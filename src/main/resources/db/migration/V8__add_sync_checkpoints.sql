@@ -0,0 +1,27 @@
+-- V8__add_sync_checkpoints.sql
+
+-- Per-category progress of product syncs. A row is updated in the same transaction as every
+-- committed chunk, so an interrupted run can be resumed from the last committed chunk.
+
+CREATE TABLE sync_checkpoints (
+    id BIGSERIAL PRIMARY KEY,
+    sync_log_id BIGINT NOT NULL,
+    category_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    chunks_committed INTEGER NOT NULL DEFAULT 0,
+    records_processed BIGINT NOT NULL DEFAULT 0,
+    records_created BIGINT NOT NULL DEFAULT 0,
+    records_updated BIGINT NOT NULL DEFAULT 0,
+    records_failed BIGINT NOT NULL DEFAULT 0,
+
+    -- Audit fields
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    created_by VARCHAR(100) DEFAULT 'system',
+    last_modified_by VARCHAR(100) DEFAULT 'system',
+
+    CONSTRAINT fk_sync_checkpoints_sync_log FOREIGN KEY (sync_log_id) REFERENCES sync_logs(id) ON DELETE CASCADE,
+    CONSTRAINT uk_sync_checkpoints_log_category UNIQUE (sync_log_id, category_id)
+);
+
+CREATE INDEX idx_sync_checkpoints_status ON sync_checkpoints(status);
@@ -0,0 +1,14 @@
+-- V9__add_sync_locks.sql
+
+-- Owners of the sync advisory locks, for visibility only. The locks themselves are
+-- session-level pg_try_advisory_lock(classid, lock_key) locks and are released by
+-- PostgreSQL when the owning connection goes away; rows of dead owners are simply
+-- overwritten by the next owner.
+
+CREATE TABLE sync_locks (
+    name VARCHAR(50) PRIMARY KEY,
+    lock_key INTEGER NOT NULL,
+    owner VARCHAR(255) NOT NULL,
+    acquired_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,38 @@
+package com.techstore.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Responses served by {@link FeedStubServer}. Every method returns {@code null} for a resource that does not exist,
+ * which the stub answers with 404.
+ */
+interface FeedSource {
+
+    Body tekraCategories();
+
+    Body tekraProducts(String categorySlug);
+
+    Body valiCategories();
+
+    Body valiManufacturers();
+
+    Body valiParameters(long categoryId);
+
+    Body valiProducts(long categoryId);
+
+    /**
+     * A response body, written straight to the connection so that large feeds are never held in memory.
+     */
+    interface Body {
+
+        String contentType();
+
+        /**
+         * Entity tag of the body, or {@code null} if the source cannot tell whether it changed.
+         */
+        String etag();
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,251 @@
+package com.techstore.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the Tekra and Vali APIs, serving a {@link FeedSource} over HTTP.
+ * <p>
+ * Routes mirror the real APIs: {@code /tekra?action=categories|browse&catSlug=...} and
+ * {@code /vali/categories}, {@code /vali/manufacturers}, {@code /vali/parameters/{id}},
+ * {@code /vali/products/by_category/{id}/full}. Every response is delayed by {@code latencyMs}; requests beyond
+ * {@code maxRequestsPerSecond} and a random {@code throttleProbability} share of the rest get 429. Bodies are
+ * gzip-encoded when the client accepts it, and {@code If-None-Match} is answered with 304 when the source has
+ * entity tags.
+ */
+@Slf4j
+class FeedStubServer implements AutoCloseable {
+
+    private final FeedSource source;
+    private final long latencyMs;
+    private final int maxRequestsPerSecond;
+    private final double throttleProbability;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private long windowStart;
+    private int windowRequests;
+
+    FeedStubServer(FeedSource source, long latencyMs, int maxRequestsPerSecond, double throttleProbability)
+            throws IOException {
+        this.source = source;
+        this.latencyMs = latencyMs;
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.throttleProbability = throttleProbability;
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newFixedThreadPool(16);
+        server.setExecutor(executor);
+        server.createContext("/tekra", this::handleTekra);
+        server.createContext("/vali", this::handleVali);
+        server.start();
+
+        log.info("Feed stub listening on {}", baseUrl());
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getThrottled() {
+        return throttled.get();
+    }
+
+    long getNotModified() {
+        return notModified.get();
+    }
+
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    void resetCounters() {
+        requests.set(0);
+        throttled.set(0);
+        notModified.set(0);
+        bytesSent.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ===========================================
+    // ROUTES
+    // ===========================================
+
+    private void handleTekra(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String action = query.getOrDefault("action", "");
+
+        FeedSource.Body body = switch (action) {
+            case "categories" -> source.tekraCategories();
+            case "browse" -> source.tekraProducts(query.get("catSlug"));
+            default -> null;
+        };
+        respond(exchange, body);
+    }
+
+    private void handleVali(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().substring("/vali".length()).split("/");
+        // path[0] is the empty segment before the leading slash
+        FeedSource.Body body = null;
+        try {
+            if (path.length == 2 && "categories".equals(path[1])) {
+                body = source.valiCategories();
+            } else if (path.length == 2 && "manufacturers".equals(path[1])) {
+                body = source.valiManufacturers();
+            } else if (path.length == 3 && "parameters".equals(path[1])) {
+                body = source.valiParameters(Long.parseLong(path[2]));
+            } else if (path.length == 5 && "products".equals(path[1]) && "by_category".equals(path[2])) {
+                body = source.valiProducts(Long.parseLong(path[3]));
+            }
+        } catch (NumberFormatException e) {
+            body = null;
+        }
+        respond(exchange, body);
+    }
+
+    // ===========================================
+    // RESPONSES
+    // ===========================================
+
+    private void respond(HttpExchange exchange, FeedSource.Body body) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            sleep(latencyMs);
+
+            if (isThrottled()) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String etag = body.etag();
+            if (etag != null) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", body.contentType());
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, 0);
+
+            CountingOutputStream counting = new CountingOutputStream(exchange.getResponseBody());
+            OutputStream out = gzip ? new GZIPOutputStream(counting, 64 * 1024) : counting;
+            body.writeTo(out);
+            out.close();
+            bytesSent.addAndGet(counting.count);
+        }
+    }
+
+    private synchronized boolean isThrottled() {
+        if (maxRequestsPerSecond > 0) {
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= 1000) {
+                windowStart = now;
+                windowRequests = 0;
+            }
+            if (++windowRequests > maxRequestsPerSecond) {
+                return true;
+            }
+        }
+        return throttleProbability > 0 && ThreadLocalRandom.current().nextDouble() < throttleProbability;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private long count;
+
+        CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
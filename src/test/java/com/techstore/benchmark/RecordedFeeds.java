@@ -0,0 +1,103 @@
+package com.techstore.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Responses recorded from the real APIs, replayed from a directory:
+ * <pre>
+ * tekra/categories.json
+ * tekra/products/{catSlug}.xml
+ * vali/categories.json
+ * vali/manufacturers.json
+ * vali/parameters/{categoryId}.json
+ * vali/products/{categoryId}.json
+ * </pre>
+ * Any file may also be stored gzip-compressed with an extra {@code .gz} suffix. Entity tags are derived from size and
+ * modification time, so replacing a recording is seen as a changed feed.
+ */
+class RecordedFeeds implements FeedSource {
+
+    private final Path directory;
+
+    RecordedFeeds(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String toString() {
+        return "recorded(" + directory + ")";
+    }
+
+    @Override
+    public Body tekraCategories() {
+        return file("tekra/categories.json", "application/json");
+    }
+
+    @Override
+    public Body tekraProducts(String categorySlug) {
+        if (categorySlug == null || !categorySlug.matches("[A-Za-z0-9_-]+")) {
+            return null;
+        }
+        return file("tekra/products/" + categorySlug + ".xml", "application/xml; charset=UTF-8");
+    }
+
+    @Override
+    public Body valiCategories() {
+        return file("vali/categories.json", "application/json");
+    }
+
+    @Override
+    public Body valiManufacturers() {
+        return file("vali/manufacturers.json", "application/json");
+    }
+
+    @Override
+    public Body valiParameters(long categoryId) {
+        return file("vali/parameters/" + categoryId + ".json", "application/json");
+    }
+
+    @Override
+    public Body valiProducts(long categoryId) {
+        return file("vali/products/" + categoryId + ".json", "application/json");
+    }
+
+    private Body file(String name, String contentType) {
+        Path plain = directory.resolve(name);
+        Path gzipped = directory.resolve(name + ".gz");
+        boolean compressed = !Files.isRegularFile(plain) && Files.isRegularFile(gzipped);
+        Path file = compressed ? gzipped : plain;
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        return new Body() {
+            @Override
+            public String contentType() {
+                return contentType;
+            }
+
+            @Override
+            public String etag() {
+                try {
+                    return "\"" + Files.size(file) + "-" + Files.getLastModifiedTime(file).toMillis() + "\"";
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (InputStream in = compressed
+                        ? new GZIPInputStream(Files.newInputStream(file))
+                        : Files.newInputStream(file)) {
+                    in.transferTo(out);
+                }
+            }
+        };
+    }
+}
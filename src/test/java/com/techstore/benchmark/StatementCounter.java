@@ -0,0 +1,110 @@
+package com.techstore.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the SQL sent through the application {@link DataSource}.
+ * <p>
+ * {@code executions} counts every {@code execute*} call, i.e. database round trips (a JDBC batch is one);
+ * {@code batchedStatements} counts the statements queued with {@code addBatch}. {@code COPY} through the unwrapped
+ * PgJDBC connection bypasses the proxies and is not counted.
+ */
+class StatementCounter implements BeanPostProcessor {
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong batchedStatements = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    long getExecutions() {
+        return executions.get();
+    }
+
+    long getBatchedStatements() {
+        return batchedStatements.get();
+    }
+
+    long getConnections() {
+        return connections.get();
+    }
+
+    void reset() {
+        executions.set(0);
+        batchedStatements.set(0);
+        connections.set(0);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // only the routing data source the application uses; its pools would count every statement twice
+        if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                && !Proxy.isProxyClass(bean.getClass())) {
+            return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                if (result instanceof Connection connection) {
+                    connections.incrementAndGet();
+                    return proxyConnection(connection);
+                }
+                return result;
+            });
+        }
+        return bean;
+    }
+
+    private Connection proxyConnection(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof CallableStatement statement) {
+                return proxyStatement(CallableStatement.class, statement);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxyStatement(PreparedStatement.class, statement);
+            }
+            if (result instanceof Statement statement) {
+                return proxyStatement(Statement.class, statement);
+            }
+            return result;
+        });
+    }
+
+    private <S extends Statement> S proxyStatement(Class<S> type, S statement) {
+        return proxy(type, statement, (target, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                executions.incrementAndGet();
+            } else if ("addBatch".equals(name)) {
+                batchedStatements.incrementAndGet();
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, TargetHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface TargetHandler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,325 @@
+package com.techstore.benchmark;
+
+import com.techstore.service.CronJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end benchmark of the scheduled Tekra and Vali syncs against {@link FeedStubServer} and a throwaway
+ * PostgreSQL 15 container.
+ * <p>
+ * Not part of the regular build; run with {@code mvn -Pbenchmark test}. Settings are system properties:
+ * <ul>
+ *     <li>{@code benchmark.products} - products per source in the synthetic catalog (default 5000)</li>
+ *     <li>{@code benchmark.runs} - sync runs against the same database (default 2); the first one imports into an
+ *     empty catalog, later ones measure incremental syncs</li>
+ *     <li>{@code benchmark.revise} - change every tenth product between runs (default true); with {@code false}
+ *     later runs are answered with 304</li>
+ *     <li>{@code benchmark.recordings-dir} - replay recorded responses (see {@link RecordedFeeds}) instead of the
+ *     synthetic catalog</li>
+ *     <li>{@code benchmark.stub.latency-ms}, {@code benchmark.stub.max-requests-per-second},
+ *     {@code benchmark.stub.throttle-probability} - upstream behaviour (defaults 50, 0 = unlimited, 0)</li>
+ * </ul>
+ * Each sync reports products/second, peak heap and SQL statements; the report is logged and written to
+ * {@code target/benchmark}.
+ */
+@Slf4j
+@Testcontainers
+@SpringBootTest
+@Import(StatementCounter.class)
+@TestPropertySource(locations = "classpath:benchmark/benchmark.properties")
+class SyncBenchmarkIT {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 5000);
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 2);
+    private static final boolean REVISE = Boolean.parseBoolean(System.getProperty("benchmark.revise", "true"));
+    private static final String RECORDINGS_DIR = System.getProperty("benchmark.recordings-dir");
+    private static final long SEED = 42;
+
+    private static final Path REPORT_DIR = Paths.get("target", "benchmark");
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static Stub stub;
+
+    @Autowired
+    private CronJobService cronJobService;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void benchmarkProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+        registry.add("tekra.api.base-url", () -> stub().baseUrl() + "/tekra");
+        registry.add("vali.api.base-url", () -> stub().baseUrl() + "/vali");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        if (stub != null) {
+            stub.close();
+            stub = null;
+        }
+    }
+
+    @Test
+    void benchmarkSync() throws IOException {
+        log.warn("Sync benchmark: source={}, runs={}", stub().source, RUNS);
+
+        List<Result> results = new ArrayList<>();
+        for (int run = 1; run <= RUNS; run++) {
+            if (RECORDINGS_DIR == null) {
+                stub().source = new SyntheticCatalog(PRODUCTS, SEED, REVISE ? run - 1 : 0);
+            }
+            results.add(measure(run, "tekra", "TEKRA", cronJobService::syncTekra));
+            results.add(measure(run, "vali", "VALI", cronJobService::syncVali));
+        }
+
+        writeReport(results);
+        for (Result result : results) {
+            assertTrue(result.products > 0, "No " + result.source + " products were synced in run " + result.run);
+        }
+    }
+
+    private Result measure(int run, String name, String source, Runnable sync) {
+        System.gc();
+        statementCounter.reset();
+        stub().server.resetCounters();
+
+        Result result = new Result();
+        result.run = run;
+        result.source = name;
+
+        long started = System.nanoTime();
+        try (HeapSampler heap = new HeapSampler()) {
+            sync.run();
+            result.elapsedMs = (System.nanoTime() - started) / 1_000_000;
+            result.peakHeapBytes = heap.peak();
+        }
+
+        // read the counters before the queries below add to them
+        result.executions = statementCounter.getExecutions();
+        result.batchedStatements = statementCounter.getBatchedStatements();
+        result.connections = statementCounter.getConnections();
+        result.requests = stub().server.getRequests();
+        result.throttled = stub().server.getThrottled();
+        result.notModified = stub().server.getNotModified();
+        result.bytesSent = stub().server.getBytesSent();
+
+        Long syncId = jdbcTemplate.queryForObject(
+                "SELECT MAX(last_seen_sync_id) FROM products WHERE source = ?", Long.class, source);
+        result.products = syncId == null ? 0 : jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE source = ? AND last_seen_sync_id = ?", Long.class, source, syncId);
+
+        log.warn("Sync benchmark {}", result);
+        return result;
+    }
+
+    private static void writeReport(List<Result> results) throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path report = REPORT_DIR.resolve("sync-benchmark-" + timestamp + ".csv");
+
+        try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write("run,source,products,elapsed_ms,products_per_second,peak_heap_mb,sql_executions,"
+                    + "sql_batched_statements,connections,http_requests,http_429,http_304,http_bytes\n");
+            for (Result result : results) {
+                writer.write(String.format(Locale.ROOT, "%d,%s,%d,%d,%.1f,%.1f,%d,%d,%d,%d,%d,%d,%d%n",
+                        result.run, result.source, result.products, result.elapsedMs, result.productsPerSecond(),
+                        result.peakHeapMb(), result.executions, result.batchedStatements, result.connections,
+                        result.requests, result.throttled, result.notModified, result.bytesSent));
+            }
+        }
+        log.warn("Sync benchmark report written to {}", report.toAbsolutePath());
+    }
+
+    private static synchronized Stub stub() {
+        if (stub == null) {
+            FeedSource source = RECORDINGS_DIR != null
+                    ? new RecordedFeeds(Paths.get(RECORDINGS_DIR))
+                    : new SyntheticCatalog(PRODUCTS, SEED, 0);
+            stub = new Stub(source);
+        }
+        return stub;
+    }
+
+    // ===========================================
+    // HELPERS
+    // ===========================================
+
+    /**
+     * The stub server together with the source it currently serves, swappable between runs.
+     */
+    private static class Stub implements FeedSource, AutoCloseable {
+        private volatile FeedSource source;
+        private final FeedStubServer server;
+
+        Stub(FeedSource source) {
+            this.source = source;
+            try {
+                this.server = new FeedStubServer(this,
+                        Long.getLong("benchmark.stub.latency-ms", 50),
+                        Integer.getInteger("benchmark.stub.max-requests-per-second", 0),
+                        Double.parseDouble(System.getProperty("benchmark.stub.throttle-probability", "0")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        String baseUrl() {
+            return server.baseUrl();
+        }
+
+        @Override
+        public Body tekraCategories() {
+            return source.tekraCategories();
+        }
+
+        @Override
+        public Body tekraProducts(String categorySlug) {
+            return source.tekraProducts(categorySlug);
+        }
+
+        @Override
+        public Body valiCategories() {
+            return source.valiCategories();
+        }
+
+        @Override
+        public Body valiManufacturers() {
+            return source.valiManufacturers();
+        }
+
+        @Override
+        public Body valiParameters(long categoryId) {
+            return source.valiParameters(categoryId);
+        }
+
+        @Override
+        public Body valiProducts(long categoryId) {
+            return source.valiProducts(categoryId);
+        }
+
+        @Override
+        public void close() {
+            server.close();
+        }
+    }
+
+    /**
+     * Samples used heap while a sync runs; more accurate than pool peaks, which include garbage not yet collected
+     * from before the sync started.
+     */
+    private static class HeapSampler implements AutoCloseable {
+        private static final long INTERVAL_MS = 20;
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final Thread thread;
+        private volatile long peak;
+        private volatile boolean running = true;
+
+        HeapSampler() {
+            sample();
+            thread = new Thread(() -> {
+                while (running) {
+                    sample();
+                    try {
+                        Thread.sleep(INTERVAL_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "benchmark-heap-sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void sample() {
+            long used = memory.getHeapMemoryUsage().getUsed();
+            if (used > peak) {
+                peak = used;
+            }
+        }
+
+        long peak() {
+            sample();
+            return peak;
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            thread.interrupt();
+        }
+    }
+
+    private static class Result {
+        private int run;
+        private String source;
+        private long products;
+        private long elapsedMs;
+        private long peakHeapBytes;
+        private long executions;
+        private long batchedStatements;
+        private long connections;
+        private long requests;
+        private long throttled;
+        private long notModified;
+        private long bytesSent;
+
+        double productsPerSecond() {
+            return elapsedMs > 0 ? products * 1000.0 / elapsedMs : 0;
+        }
+
+        double peakHeapMb() {
+            return peakHeapBytes / (1024.0 * 1024.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "run %d %s: %d products in %d ms (%.1f/s), peak heap %.1f MB, %d SQL executions "
+                            + "(%d batched statements, %d connections), %d HTTP requests (%d x 429, %d x 304, %d bytes)",
+                    run, source, products, elapsedMs, productsPerSecond(), peakHeapMb(), executions,
+                    batchedStatements, connections, requests, throttled, notModified, bytesSent);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.techstore.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic, generated Tekra and Vali catalogs of {@code productsPerSource} products each.
+ * <p>
+ * Nothing is materialized: every response is generated while it is written, and every product is derived from
+ * {@code seed} and its index, so the same settings always produce byte-identical feeds and catalogs of 100k products
+ * cost no stub memory. {@code revision} changes prices and stock of every tenth product, which makes an otherwise
+ * identical second run exercise the update path; it is part of the entity tags, so a changed catalog is never
+ * answered with 304.
+ * <p>
+ * Tekra: {@code videonablyudenie} with {@code group-N} subcategories of {@code group-N-line-M} leaves; only leaves
+ * carry products, and the {@code category_*} names of a product normalize to the slugs of its path. Vali: a root
+ * category with leaf children, {@value #VALI_PARAMETERS_PER_CATEGORY} parameters per leaf and
+ * {@value #VALI_MANUFACTURERS} manufacturers.
+ */
+class SyntheticCatalog implements FeedSource {
+
+    private static final int PRODUCTS_PER_LEAF = 250;
+    private static final int LEAVES_PER_GROUP = 5;
+    private static final int TEKRA_MANUFACTURERS = 40;
+    private static final String[] TEKRA_PROPERTIES = {"resolution", "lens", "ir_range", "protection", "power"};
+
+    private static final long VALI_ROOT_CATEGORY_ID = 1000;
+    private static final long VALI_PRODUCT_ID_OFFSET = 500_000;
+    private static final int VALI_MANUFACTURERS = 50;
+    private static final int VALI_PARAMETERS_PER_CATEGORY = 5;
+    private static final int VALI_OPTIONS_PER_PARAMETER = 4;
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final XMLOutputFactory XML = XMLOutputFactory.newFactory();
+
+    private final int productsPerSource;
+    private final long seed;
+    private final int revision;
+    private final int leaves;
+
+    SyntheticCatalog(int productsPerSource, long seed, int revision) {
+        this.productsPerSource = productsPerSource;
+        this.seed = seed;
+        this.revision = revision;
+        this.leaves = Math.max(1, (productsPerSource + PRODUCTS_PER_LEAF - 1) / PRODUCTS_PER_LEAF);
+    }
+
+    @Override
+    public String toString() {
+        return "synthetic(products=" + productsPerSource + ", seed=" + seed + ", revision=" + revision + ")";
+    }
+
+    // ===========================================
+    // TEKRA
+    // ===========================================
+
+    @Override
+    public Body tekraCategories() {
+        return json("tekra-categories", json -> {
+            json.writeStartObject();
+            json.writeObjectFieldStart("data");
+            json.writeArrayFieldStart("categories");
+
+            json.writeStartObject();
+            json.writeStringField("id", "1");
+            json.writeStringField("slug", "videonablyudenie");
+            json.writeStringField("name", "Videonablyudenie");
+            json.writeNumberField("count", productsPerSource);
+            json.writeArrayFieldStart("sub_categories");
+            for (int group = 1; group <= groups(); group++) {
+                json.writeStartObject();
+                json.writeStringField("id", String.valueOf(100 + group));
+                json.writeStringField("slug", "group-" + group);
+                json.writeStringField("name", "Group " + group);
+                json.writeArrayFieldStart("subsubcat");
+                for (int leaf = firstLeaf(group); leaf < Math.min(leaves, firstLeaf(group) + LEAVES_PER_GROUP); leaf++) {
+                    json.writeStartObject();
+                    json.writeStringField("id", String.valueOf(10_000 + leaf));
+                    json.writeStringField("slug", tekraLeafSlug(leaf));
+                    json.writeStringField("name", tekraLeafName(leaf));
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndObject();
+        });
+    }
+
+    @Override
+    public Body tekraProducts(String categorySlug) {
+        if (categorySlug == null) {
+            return null;
+        }
+        int leaf = -1;
+        for (int candidate = 0; candidate < leaves; candidate++) {
+            if (tekraLeafSlug(candidate).equals(categorySlug)) {
+                leaf = candidate;
+                break;
+            }
+        }
+        int productLeaf = leaf;
+
+        return new Body() {
+            @Override
+            public String contentType() {
+                return "application/xml; charset=UTF-8";
+            }
+
+            @Override
+            public String etag() {
+                return etagOf("tekra-" + categorySlug);
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try {
+                    XMLStreamWriter xml = XML.createXMLStreamWriter(out, "UTF-8");
+                    xml.writeStartDocument("UTF-8", "1.0");
+                    xml.writeStartElement("products");
+                    if (productLeaf >= 0) {
+                        for (int index = productLeaf; index < productsPerSource; index += leaves) {
+                            writeTekraProduct(xml, index, productLeaf);
+                        }
+                    }
+                    xml.writeEndElement();
+                    xml.writeEndDocument();
+                    xml.flush();
+                    xml.close();
+                } catch (XMLStreamException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    private void writeTekraProduct(XMLStreamWriter xml, int index, int leaf) throws XMLStreamException {
+        SplittableRandom random = random(index);
+        double price = price(random, index);
+
+        xml.writeStartElement("item");
+        element(xml, "sku", String.format(Locale.ROOT, "TK-%06d", index));
+        element(xml, "name", "Camera " + index + " " + word(random) + " " + word(random));
+        element(xml, "model", "M-" + Integer.toHexString(index).toUpperCase(Locale.ROOT));
+        element(xml, "price", format(price));
+        element(xml, "partner_price", format(price * 0.8));
+        element(xml, "quantity", String.valueOf(quantity(random, index)));
+        element(xml, "manufacturer", "Brand " + (1 + random.nextInt(TEKRA_MANUFACTURERS)));
+        element(xml, "description", description(random, index));
+        element(xml, "weight", format(0.1 + random.nextDouble() * 3));
+        element(xml, "category_1", "Videonablyudenie");
+        element(xml, "category_2", "Group " + groupOf(leaf));
+        element(xml, "category_3", tekraLeafName(leaf));
+        for (String property : TEKRA_PROPERTIES) {
+            element(xml, "prop_" + property, property + " " + (1 + random.nextInt(6)));
+        }
+        xml.writeStartElement("gallery");
+        for (int image = 1; image <= 1 + random.nextInt(3); image++) {
+            element(xml, "image", "https://img.example.invalid/tekra/" + index + "/" + image + ".jpg");
+        }
+        xml.writeEndElement();
+        xml.writeEndElement();
+    }
+
+    private int groups() {
+        return (leaves + LEAVES_PER_GROUP - 1) / LEAVES_PER_GROUP;
+    }
+
+    private static int firstLeaf(int group) {
+        return (group - 1) * LEAVES_PER_GROUP;
+    }
+
+    private static int groupOf(int leaf) {
+        return leaf / LEAVES_PER_GROUP + 1;
+    }
+
+    private static String tekraLeafSlug(int leaf) {
+        return "group-" + groupOf(leaf) + "-line-" + (leaf % LEAVES_PER_GROUP + 1);
+    }
+
+    private static String tekraLeafName(int leaf) {
+        return "Group " + groupOf(leaf) + " Line " + (leaf % LEAVES_PER_GROUP + 1);
+    }
+
+    // ===========================================
+    // VALI
+    // ===========================================
+
+    @Override
+    public Body valiCategories() {
+        return json("vali-categories", json -> {
+            json.writeStartArray();
+            writeValiCategory(json, VALI_ROOT_CATEGORY_ID, 0, "Vali Root", "vali-root", 0);
+            for (int leaf = 0; leaf < leaves; leaf++) {
+                writeValiCategory(json, valiCategoryId(leaf), VALI_ROOT_CATEGORY_ID,
+                        "Vali Line " + (leaf + 1), "vali-line-" + (leaf + 1), leaf);
+            }
+            json.writeEndArray();
+        });
+    }
+
+    private static void writeValiCategory(JsonGenerator json, long id, long parent, String name, String slug, int order)
+            throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", id);
+        json.writeNumberField("parent", parent);
+        writeNames(json, "name", name);
+        json.writeBooleanField("show", true);
+        json.writeNumberField("order", order);
+        json.writeStringField("slug", slug);
+        json.writeEndObject();
+    }
+
+    @Override
+    public Body valiManufacturers() {
+        return json("vali-manufacturers", json -> {
+            json.writeStartArray();
+            for (int manufacturer = 1; manufacturer <= VALI_MANUFACTURERS; manufacturer++) {
+                json.writeStartObject();
+                json.writeNumberField("id", manufacturer);
+                json.writeStringField("name", "Vali Brand " + manufacturer);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        });
+    }
+
+    @Override
+    public Body valiParameters(long categoryId) {
+        int leaf = valiLeaf(categoryId);
+        if (leaf < 0 && categoryId != VALI_ROOT_CATEGORY_ID) {
+            return null;
+        }
+        return json("vali-parameters-" + categoryId, json -> {
+            json.writeStartArray();
+            if (leaf >= 0) {
+                for (int parameter = 0; parameter < VALI_PARAMETERS_PER_CATEGORY; parameter++) {
+                    json.writeStartObject();
+                    json.writeNumberField("id", valiParameterId(categoryId, parameter));
+                    json.writeNumberField("category_id", categoryId);
+                    writeNames(json, "name", "Parameter " + (parameter + 1));
+                    json.writeArrayFieldStart("options");
+                    for (int option = 0; option < VALI_OPTIONS_PER_PARAMETER; option++) {
+                        json.writeStartObject();
+                        json.writeNumberField("id", valiOptionId(categoryId, parameter, option));
+                        writeNames(json, "name", "Value " + (option + 1));
+                        json.writeNumberField("order", option);
+                        json.writeEndObject();
+                    }
+                    json.writeEndArray();
+                    json.writeNumberField("order", parameter);
+                    json.writeEndObject();
+                }
+            }
+            json.writeEndArray();
+        });
+    }
+
+    @Override
+    public Body valiProducts(long categoryId) {
+        int leaf = valiLeaf(categoryId);
+        if (leaf < 0 && categoryId != VALI_ROOT_CATEGORY_ID) {
+            return null;
+        }
+        return json("vali-products-" + categoryId, json -> {
+            json.writeStartArray();
+            if (leaf >= 0) {
+                for (int index = leaf; index < productsPerSource; index += leaves) {
+                    writeValiProduct(json, index, categoryId);
+                }
+            }
+            json.writeEndArray();
+        });
+    }
+
+    private void writeValiProduct(JsonGenerator json, int index, long categoryId) throws IOException {
+        // a stream independent of the Tekra product with the same index
+        SplittableRandom random = random(index).split();
+        double price = price(random, index);
+
+        json.writeStartObject();
+        json.writeNumberField("id", VALI_PRODUCT_ID_OFFSET + index);
+        json.writeNumberField("idWF", VALI_PRODUCT_ID_OFFSET + index);
+        json.writeStringField("reference_number", String.format(Locale.ROOT, "VL-%06d", index));
+        json.writeNumberField("manufacturer_id", 1 + random.nextInt(VALI_MANUFACTURERS));
+        json.writeNumberField("status", quantity(random, index) > 0 ? 1 : 0);
+        json.writeNumberField("price_client", round(price));
+        json.writeNumberField("price_partner", round(price * 0.8));
+        json.writeBooleanField("show", true);
+        json.writeArrayFieldStart("categories");
+        json.writeStartObject();
+        json.writeNumberField("id", categoryId);
+        json.writeEndObject();
+        json.writeEndArray();
+        json.writeStringField("model", "V-" + Integer.toHexString(index).toUpperCase(Locale.ROOT));
+        json.writeStringField("barcode", String.format(Locale.ROOT, "38%011d", index));
+        json.writeNumberField("warranty", 12 + 12 * random.nextInt(3));
+        json.writeNumberField("weight", round(0.1 + random.nextDouble() * 3));
+        writeNames(json, "name", "Device " + index + " " + word(random) + " " + word(random));
+        writeNames(json, "description", description(random, index));
+        json.writeArrayFieldStart("images");
+        for (int image = 1; image <= 1 + random.nextInt(3); image++) {
+            json.writeStartObject();
+            json.writeStringField("href", "https://img.example.invalid/vali/" + index + "/" + image + ".jpg");
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeArrayFieldStart("parameters");
+        for (int parameter = 0; parameter < VALI_PARAMETERS_PER_CATEGORY; parameter++) {
+            int option = random.nextInt(VALI_OPTIONS_PER_PARAMETER);
+            json.writeStartObject();
+            json.writeNumberField("parameter_id", valiParameterId(categoryId, parameter));
+            writeNames(json, "parameter_name", "Parameter " + (parameter + 1));
+            json.writeNumberField("option_id", valiOptionId(categoryId, parameter, option));
+            writeNames(json, "option_name", "Value " + (option + 1));
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private long valiCategoryId(int leaf) {
+        return VALI_ROOT_CATEGORY_ID + 1 + leaf;
+    }
+
+    private int valiLeaf(long categoryId) {
+        long leaf = categoryId - VALI_ROOT_CATEGORY_ID - 1;
+        return leaf >= 0 && leaf < leaves ? (int) leaf : -1;
+    }
+
+    private static long valiParameterId(long categoryId, int parameter) {
+        return categoryId * 100 + parameter;
+    }
+
+    private static long valiOptionId(long categoryId, int parameter, int option) {
+        return valiParameterId(categoryId, parameter) * 10 + option;
+    }
+
+    private static void writeNames(JsonGenerator json, String field, String text) throws IOException {
+        json.writeArrayFieldStart(field);
+        json.writeStartObject();
+        json.writeStringField("language_code", "bg");
+        json.writeStringField("text", text);
+        json.writeEndObject();
+        json.writeStartObject();
+        json.writeStringField("language_code", "en");
+        json.writeStringField("text", text);
+        json.writeEndObject();
+        json.writeEndArray();
+    }
+
+    // ===========================================
+    // GENERATION HELPERS
+    // ===========================================
+
+    private static final String[] WORDS = {
+            "outdoor", "dome", "bullet", "turret", "wifi", "poe", "starlight", "varifocal", "compact", "pro",
+            "night", "vision", "motion", "audio", "zoom", "smart"
+    };
+
+    private SplittableRandom random(int index) {
+        return new SplittableRandom(seed * 1_000_003L + index);
+    }
+
+    /**
+     * Base price, changed for every tenth product by each revision.
+     */
+    private double price(SplittableRandom random, int index) {
+        double price = 20 + random.nextDouble() * 1500;
+        return index % 10 == 0 ? price * (1 + revision * 0.05) : price;
+    }
+
+    private int quantity(SplittableRandom random, int index) {
+        int quantity = random.nextInt(20);
+        return index % 10 == 0 ? (quantity + revision) % 20 : quantity;
+    }
+
+    private static String description(SplittableRandom random, int index) {
+        StringBuilder description = new StringBuilder("<p>Product ").append(index).append(".</p><ul>");
+        for (int line = 0; line < 4 + random.nextInt(6); line++) {
+            description.append("<li>").append(word(random)).append(' ').append(word(random))
+                    .append(' ').append(word(random)).append("</li>");
+        }
+        return description.append("</ul>").toString();
+    }
+
+    private static String word(SplittableRandom random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static void element(XMLStreamWriter xml, String name, String text) throws XMLStreamException {
+        xml.writeStartElement(name);
+        xml.writeCharacters(text);
+        xml.writeEndElement();
+    }
+
+    private String etagOf(String resource) {
+        return "\"" + resource + "-" + productsPerSource + "-" + seed + "-" + revision + "\"";
+    }
+
+    private Body json(String resource, JsonWriter writer) {
+        return new Body() {
+            @Override
+            public String contentType() {
+                return "application/json";
+            }
+
+            @Override
+            public String etag() {
+                return etagOf(resource);
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (JsonGenerator json = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+                    writer.write(json);
+                }
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator json) throws IOException;
+    }
+}
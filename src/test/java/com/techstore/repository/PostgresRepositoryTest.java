@@ -0,0 +1,66 @@
+package com.techstore.repository;
+
+import com.techstore.entity.Product;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+
+/**
+ * Base for repository tests against the Flyway schema in a throwaway PostgreSQL 15 container; skipped without Docker.
+ * Subclasses truncate the tables they write in {@code @BeforeEach}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+abstract class PostgresRepositoryTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    protected static final Long FEED_CATEGORY = 10L;
+    protected static final Long OTHER_FEED_CATEGORY = 20L;
+
+    protected static DriverManagerDataSource dataSource;
+    protected static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrate() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    protected static void truncate(String... tables) {
+        jdbcTemplate.execute("TRUNCATE " + String.join(", ", tables) + " CASCADE");
+    }
+
+    // ===========================================
+    // FIXTURES
+    // ===========================================
+
+    protected static Product valiProduct(Long externalId, String price) {
+        Product product = new Product();
+        product.setExternalId(externalId);
+        product.setNameBg("Product " + externalId);
+        product.setPriceClient(new BigDecimal(price));
+        return product;
+    }
+
+    protected static Product valiProduct(Long externalId, String price, String referenceNumber) {
+        Product product = valiProduct(externalId, price);
+        product.setReferenceNumber(referenceNumber);
+        return product;
+    }
+
+    protected static Product tekraProduct(String sku, String price) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setNameBg("Product " + sku);
+        product.setPriceClient(new BigDecimal(price));
+        return product;
+    }
+}
@@ -0,0 +1,79 @@
+package com.techstore.repository;
+
+import com.techstore.entity.Product;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * {@link ProductStagingRepository} against the Flyway schema; see {@link PostgresRepositoryTest}. Each load and merge
+ * runs in one transaction, as in the full refresh.
+ */
+class ProductStagingRepositoryTest extends PostgresRepositoryTest {
+
+    private static TransactionTemplate transactionTemplate;
+
+    private ProductStagingRepository stagingRepository;
+
+    @BeforeAll
+    static void createTransactionTemplate() {
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @BeforeEach
+    void setUp() {
+        truncate("products");
+        stagingRepository = new ProductStagingRepository(jdbcTemplate, dataSource);
+        stagingRepository.truncate();
+    }
+
+    @Test
+    void mergeStampsSourceAndLastSeenOnUnchangedProducts() {
+        jdbcTemplate.update("INSERT INTO products (external_id, reference_number, name_bg, price_client, show_flag) " +
+                "VALUES (1, 'REF-1', 'Product 1', 10.00, true)");
+        Long productId = jdbcTemplate.queryForObject("SELECT id FROM products WHERE external_id = 1", Long.class);
+        mergeInTransaction(List.of(valiProduct(1L, "10.00", "REF-1")), 7L);
+        jdbcTemplate.update("UPDATE products SET last_changed_sync_id = NULL WHERE id = ?", productId);
+
+        ProductStagingRepository.MergeResult result = mergeInTransaction(
+                List.of(valiProduct(1L, "10.00", "REF-1")), 8L);
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT source, last_seen_sync_id, last_changed_sync_id FROM products WHERE id = ?", productId);
+        assertEquals(0, result.getUpdated());
+        assertEquals(ProductSyncWriter.SOURCE_VALI, row.get("source"));
+        assertEquals(8L, row.get("last_seen_sync_id"));
+        assertNull(row.get("last_changed_sync_id"));
+    }
+
+    @Test
+    void conflictingReferenceNumberIsSkippedInsteadOfFailingTheMerge() {
+        jdbcTemplate.update("INSERT INTO products (name_bg, reference_number) VALUES ('Manual', 'REF-TAKEN')");
+
+        ProductStagingRepository.MergeResult result = mergeInTransaction(List.of(
+                valiProduct(1L, "10.00", "REF-TAKEN"),
+                valiProduct(2L, "20.00", "REF-2"),
+                valiProduct(3L, "30.00", "REF-DUP"),
+                valiProduct(4L, "40.00", "REF-DUP")), 1L);
+
+        assertEquals(3, result.getConflicts());
+        assertEquals(1, result.getInserted());
+        assertEquals(List.of(2L), jdbcTemplate.queryForList(
+                "SELECT external_id FROM products WHERE external_id IS NOT NULL", Long.class));
+    }
+
+    private ProductStagingRepository.MergeResult mergeInTransaction(List<Product> products, Long syncId) {
+        return transactionTemplate.execute(status -> {
+            stagingRepository.copy(products, FEED_CATEGORY);
+            return stagingRepository.merge(List.of(), syncId);
+        });
+    }
+}
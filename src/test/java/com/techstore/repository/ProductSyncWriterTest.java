@@ -0,0 +1,224 @@
+package com.techstore.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ProductSyncWriter} against the Flyway schema; see {@link PostgresRepositoryTest}.
+ */
+class ProductSyncWriterTest extends PostgresRepositoryTest {
+
+    private ProductSyncWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        truncate("products");
+        writer = new ProductSyncWriter(jdbcTemplate, new ImageMirrorRepository(jdbcTemplate));
+    }
+
+    // ===========================================
+    // CHANGED FLAG
+    // ===========================================
+
+    @Test
+    void insertCountsAsCreated() {
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 1L,
+                FEED_CATEGORY);
+
+        assertEquals(1, result.getCreated());
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getChangedProductIds().size());
+    }
+
+    @Test
+    void unchangedProductIsNotReportedInNextSync() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 1L, FEED_CATEGORY);
+
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 2L,
+                FEED_CATEGORY);
+
+        assertEquals(0, result.getCreated());
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertTrue(result.getChangedProductIds().isEmpty());
+        assertEquals(1L, lastChangedSyncId(1L));
+    }
+
+    @Test
+    void changedProductIsReportedAndStamped() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 1L, FEED_CATEGORY);
+
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(List.of(valiProduct(1L, "12.00")), 2L,
+                FEED_CATEGORY);
+
+        assertEquals(1, result.getUpdated());
+        assertEquals(2L, lastChangedSyncId(1L));
+    }
+
+    @Test
+    void secondUnchangedWriteInSameSyncIsNotReported() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 1L, FEED_CATEGORY);
+        writer.writeValiProducts(List.of(valiProduct(1L, "12.00")), 2L, FEED_CATEGORY);
+
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(List.of(valiProduct(1L, "12.00")), 2L,
+                FEED_CATEGORY);
+
+        assertEquals(0, result.getUpdated());
+        assertTrue(result.getChangedProductIds().isEmpty());
+        assertEquals(2L, lastChangedSyncId(1L));
+    }
+
+    @Test
+    void secondChangingWriteInSameSyncIsReported() {
+        writer.writeTekraProducts(List.of(tekraProduct("SKU-1", "10.00")), 1L, FEED_CATEGORY);
+        writer.writeTekraProducts(List.of(tekraProduct("SKU-1", "12.00")), 2L, FEED_CATEGORY);
+
+        ProductSyncWriter.WriteResult result = writer.writeTekraProducts(List.of(tekraProduct("SKU-1", "14.00")), 2L,
+                FEED_CATEGORY);
+
+        assertEquals(1, result.getUpdated());
+        assertFalse(result.getChangedProductIds().isEmpty());
+    }
+
+    // ===========================================
+    // REFERENCE NUMBER CONFLICTS
+    // ===========================================
+
+    @Test
+    void productWithStoredReferenceNumberIsSkipped() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00", "REF-1")), 1L, FEED_CATEGORY);
+
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(
+                List.of(valiProduct(2L, "10.00", "REF-1"), valiProduct(3L, "10.00", "REF-3")), 2L, FEED_CATEGORY);
+
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getConflicts());
+        assertEquals(0, countByExternalId(2L));
+        assertEquals(1, countByExternalId(3L));
+    }
+
+    @Test
+    void productsSharingReferenceNumberInOneWriteAreSkipped() {
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(
+                List.of(valiProduct(1L, "10.00", "REF-1"), valiProduct(2L, "10.00", "REF-1")), 1L, FEED_CATEGORY);
+
+        assertEquals(0, result.getCreated());
+        assertEquals(2, result.getConflicts());
+    }
+
+    @Test
+    void ownReferenceNumberIsNotAConflict() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00", "REF-1")), 1L, FEED_CATEGORY);
+
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(List.of(valiProduct(1L, "12.00", "REF-1")),
+                2L, FEED_CATEGORY);
+
+        assertEquals(1, result.getUpdated());
+        assertEquals(0, result.getConflicts());
+    }
+
+    // ===========================================
+    // SWEEP
+    // ===========================================
+
+    @Test
+    void sweepDeactivatesProductsMissingFromCompletedFeedCategory() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00"), valiProduct(2L, "10.00")), 1L, FEED_CATEGORY);
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 2L, FEED_CATEGORY);
+
+        int deactivated = writer.deactivateMissing(ProductSyncWriter.SOURCE_VALI, 2L, List.of(FEED_CATEGORY));
+
+        assertEquals(1, deactivated);
+        assertTrue(isActive(1L));
+        assertFalse(isActive(2L));
+    }
+
+    @Test
+    void sweepMatchesFeedCategoryNotMappedCategory() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 1L, OTHER_FEED_CATEGORY);
+
+        // product 1 is not listed by the feed that completed, whatever category it was mapped to
+        int deactivated = writer.deactivateMissing(ProductSyncWriter.SOURCE_VALI, 2L, List.of(FEED_CATEGORY));
+
+        assertEquals(0, deactivated);
+        assertTrue(isActive(1L));
+    }
+
+    @Test
+    void sweepLeavesOtherSourceAlone() {
+        writer.writeTekraProducts(List.of(tekraProduct("SKU-1", "10.00")), 1L, FEED_CATEGORY);
+
+        int deactivated = writer.deactivateMissing(ProductSyncWriter.SOURCE_VALI, 2L, List.of(FEED_CATEGORY));
+
+        assertEquals(0, deactivated);
+    }
+
+    @Test
+    void sweepKeepsSkuListedUnderAnotherCategory() {
+        writer.writeTekraProducts(List.of(tekraProduct("SKU-1", "10.00"), tekraProduct("SKU-2", "10.00")), 1L,
+                FEED_CATEGORY);
+
+        // both were listed again, but only under a category whose write failed
+        int deactivated = writer.deactivateMissing(ProductSyncWriter.SOURCE_TEKRA, 2L, List.of(FEED_CATEGORY),
+                List.of("SKU-1"));
+
+        assertEquals(1, deactivated);
+        assertTrue(isActiveSku("SKU-1"));
+        assertFalse(isActiveSku("SKU-2"));
+    }
+
+    @Test
+    void productListedAgainIsReactivated() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 1L, FEED_CATEGORY);
+        writer.deactivateMissing(ProductSyncWriter.SOURCE_VALI, 2L, List.of(FEED_CATEGORY));
+
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 3L,
+                FEED_CATEGORY);
+
+        assertTrue(isActive(1L));
+        assertEquals(1, result.getUpdated());
+        assertEquals(3L, lastChangedSyncId(1L));
+    }
+
+    @Test
+    void productDisabledByAdminStaysDisabled() {
+        writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 1L, FEED_CATEGORY);
+        jdbcTemplate.update("UPDATE products SET active = false WHERE external_id = 1");
+
+        ProductSyncWriter.WriteResult result = writer.writeValiProducts(List.of(valiProduct(1L, "10.00")), 2L,
+                FEED_CATEGORY);
+
+        assertFalse(isActive(1L));
+        assertEquals(0, result.getUpdated());
+    }
+
+    // ===========================================
+    // HELPERS
+    // ===========================================
+
+    private Long lastChangedSyncId(Long externalId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT last_changed_sync_id FROM products WHERE external_id = ?", Long.class, externalId);
+    }
+
+    private boolean isActive(Long externalId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT active FROM products WHERE external_id = ?", Boolean.class, externalId));
+    }
+
+    private int countByExternalId(Long externalId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE external_id = ?", Integer.class, externalId);
+    }
+
+    private boolean isActiveSku(String sku) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT active FROM products WHERE sku = ?", Boolean.class, sku));
+    }
+}
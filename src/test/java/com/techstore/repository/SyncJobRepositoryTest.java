@@ -0,0 +1,82 @@
+package com.techstore.repository;
+
+import com.techstore.dto.response.SyncJobResponseDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SyncJobRepository} against the Flyway schema; see {@link PostgresRepositoryTest}.
+ */
+class SyncJobRepositoryTest extends PostgresRepositoryTest {
+
+    private SyncJobRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        truncate("sync_jobs");
+        repository = new SyncJobRepository(jdbcTemplate);
+    }
+
+    @Test
+    void cancellationRequestedElsewhereIsReturnedToTheOwner() {
+        SyncJobResponseDto job = job("job-1", "RUNNING");
+        repository.insert(job, "node-a");
+
+        assertFalse(repository.save(job));
+        assertTrue(repository.requestCancel("job-1"));
+        assertTrue(repository.save(job));
+    }
+
+    @Test
+    void cancellingUnknownJobReportsMissing() {
+        assertFalse(repository.requestCancel("missing"));
+    }
+
+    @Test
+    void savedProgressIsVisibleToOtherNodes() {
+        SyncJobResponseDto job = job("job-1", "RUNNING");
+        repository.insert(job, "node-a");
+        job.setProcessed(120L);
+        job.setCompletedUnits(3L);
+        job.setTotalUnits(10L);
+        repository.save(job);
+
+        SyncJobResponseDto persisted = repository.findById("job-1");
+
+        assertNotNull(persisted);
+        assertEquals("RUNNING", persisted.getStatus());
+        assertEquals(120L, persisted.getProcessed());
+        assertEquals(3L, persisted.getCompletedUnits());
+    }
+
+    @Test
+    void staleUnfinishedJobIsFailed() {
+        repository.insert(job("job-1", "RUNNING"), "node-a");
+        repository.insert(job("job-2", "RUNNING"), "node-b");
+        jdbcTemplate.update("UPDATE sync_jobs SET updated_at = CURRENT_TIMESTAMP - INTERVAL '10 minutes' " +
+                "WHERE id = 'job-1'");
+
+        int failed = repository.failAbandoned(120_000, "gone");
+
+        assertEquals(1, failed);
+        assertEquals("FAILED", repository.findById("job-1").getStatus());
+        assertEquals("RUNNING", repository.findById("job-2").getStatus());
+    }
+
+    private static SyncJobResponseDto job(String id, String status) {
+        SyncJobResponseDto job = new SyncJobResponseDto();
+        job.setId(id);
+        job.setSource("VALI");
+        job.setType("PRODUCTS");
+        job.setStatus(status);
+        job.setSubmittedAt(LocalDateTime.now());
+        return job;
+    }
+}
@@ -0,0 +1,211 @@
+package com.techstore.service.sync;
+
+import com.techstore.entity.Category;
+import com.techstore.repository.CategoryRepository;
+import com.techstore.util.SyncHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link CategoryMatcher}, and {@link SyncHelper#findCategoryByPath(String)} built on it, over a small category tree.
+ */
+class CategoryMatcherTest {
+
+    private Category surveillance;
+    private Category ipCameras;
+    private Category ipDome;
+    private Category analogCameras;
+    private Category analogDome;
+    private Category bullet;
+    private Category alarms;
+    private Category unnamedSensors;
+    private Category sensors;
+    private Category valiOnly;
+    private List<Category> categories;
+
+    private CategoryMatcher matcher;
+
+    @BeforeEach
+    void setUp() {
+        surveillance = category(1L, null, "Видеонаблюдение", "Video surveillance", "videonablyudenie",
+                "videonablyudenie", "100", "videonablyudenie");
+        ipCameras = category(2L, surveillance, "IP Камери", "IP cameras", "ip-kameri", "ip-kameri", "200",
+                "videonablyudenie/ip-kameri");
+        ipDome = category(3L, ipCameras, "Куполни камери", null, "kupolni-kameri", "kupolni-kameri", "300",
+                "videonablyudenie/ip-kameri/kupolni-kameri");
+        analogCameras = category(4L, surveillance, "Аналогови камери", null, "analogovi-kameri", "ANALOGOVI-KAMERI",
+                "400", "VIDEONABLYUDENIE/analogovi-kameri");
+        analogDome = category(5L, analogCameras, "Куполни камери", null, "kupolni-kameri", null, null, null);
+        bullet = category(7L, ipCameras, "Булет камери", null, "bulet-kameri", "bulet-kameri", "700",
+                "videonablyudenie/ip-kameri/bulet-kameri");
+        alarms = category(8L, null, "Сигнализации", "Alarms", "signalizatsii", "signalizacii", "800", null);
+        unnamedSensors = category(9L, alarms, " ", null, null, "datchitsi", null, null);
+        sensors = category(10L, alarms, "Датчици", "Detectors & Sensors", "datchitsi", "datchitsi", "1000",
+                "signalizatsii/datchitsi");
+        valiOnly = category(11L, null, "Vali категория", "Detectors", "detectors", null, null, null);
+
+        categories = List.of(surveillance, ipCameras, ipDome, analogCameras, analogDome, bullet, alarms,
+                unnamedSensors, sensors, valiOnly);
+        matcher = CategoryMatcher.of(categories);
+    }
+
+    // ===========================================
+    // MATCHER
+    // ===========================================
+
+    @Test
+    void findByPathIgnoresCase() {
+        assertEquals(List.of(analogCameras), matcher.findByPath("videonablyudenie/ANALOGOVI-KAMERI"));
+        assertEquals(List.of(bullet), matcher.findByPath("Videonablyudenie/IP-Kameri/Bulet-Kameri"));
+    }
+
+    @Test
+    void findByPathMatchesWholePathsOnly() {
+        assertTrue(matcher.findByPath("ip-kameri").isEmpty());
+        assertTrue(matcher.findByPath("videonablyudenie/ip-kameri/kupolni-kameri/extra").isEmpty());
+        assertTrue(matcher.findByPath("videonablyudenie/").isEmpty());
+        assertTrue(matcher.findByPath(null).isEmpty());
+    }
+
+    @Test
+    void findByPathReturnsCategoriesSharingAPathInListOrder() {
+        Category copy = category(12L, ipCameras, "Булет камери", null, "bulet-kameri-2", null, null,
+                "videonablyudenie/ip-kameri/bulet-kameri");
+
+        CategoryMatcher withCopy = matcher.with(copy);
+
+        assertEquals(List.of(bullet, copy), withCopy.findByPath("videonablyudenie/ip-kameri/bulet-kameri"));
+    }
+
+    @Test
+    void findByNameIgnoresCaseAndKeepsListOrder() {
+        assertEquals(List.of(ipDome, analogDome), matcher.findByName("куполни КАМЕРИ"));
+        assertEquals(List.of(ipCameras), matcher.findByName("ip камери"));
+        assertTrue(matcher.findByName("Непозната").isEmpty());
+        assertTrue(matcher.findByName(null).isEmpty());
+    }
+
+    @Test
+    void findByNameAndParentNameIgnoresCase() {
+        assertEquals(List.of(ipCameras), matcher.findByNameAndParentName("ip камери", "ВИДЕОНАБЛЮДЕНИЕ"));
+        assertEquals(List.of(analogDome), matcher.findByNameAndParentName("Куполни камери", "аналогови камери"));
+        assertTrue(matcher.findByNameAndParentName("IP Камери", "Сигнализации").isEmpty());
+        assertTrue(matcher.findByNameAndParentName("Видеонаблюдение", null).isEmpty());
+    }
+
+    @Test
+    void findByTekraSlugIgnoresCase() {
+        assertEquals(List.of(analogCameras), matcher.findByTekraSlugIgnoreCase("analogovi-kameri"));
+        assertEquals(List.of(unnamedSensors, sensors), matcher.findByTekraSlugIgnoreCase("DATCHITSI"));
+        assertTrue(matcher.findByTekraSlugIgnoreCase("missing").isEmpty());
+    }
+
+    @Test
+    void findByTekraIdAndSlugAreCaseSensitive() {
+        assertEquals(List.of(ipCameras), matcher.findByTekraId("200"));
+        assertTrue(matcher.findByTekraId("999").isEmpty());
+
+        assertEquals(List.of(ipDome, analogDome), matcher.findBySlug("kupolni-kameri"));
+        assertTrue(matcher.findBySlug("KUPOLNI-KAMERI").isEmpty());
+        assertTrue(matcher.findBySlug(null).isEmpty());
+    }
+
+    @Test
+    void findByNormalizedNameMatchesBulgarianAndEnglishNames() {
+        assertEquals(List.of(ipCameras), matcher.findByNormalizedName("ip-камери!"));
+        assertEquals(List.of(sensors), matcher.findByNormalizedName("detectors & sensors!"));
+        assertEquals(List.of(valiOnly), matcher.findByNormalizedName("DETECTORS"));
+        assertEquals(List.of(alarms), matcher.findByNormalizedName("alarms"));
+    }
+
+    @Test
+    void normalizeNameKeepsOnlyLettersAndDigits() {
+        assertEquals("", CategoryMatcher.normalizeName(null));
+        assertEquals("", CategoryMatcher.normalizeName(" "));
+        assertEquals("ipкамери", CategoryMatcher.normalizeName(" IP Камери "));
+        assertEquals("detectorssensors", CategoryMatcher.normalizeName("Detectors & Sensors"));
+        assertEquals("4k", CategoryMatcher.normalizeName("4-K"));
+    }
+
+    @Test
+    void withReplacesCategoryOfSameIdAndAppendsNewOnes() {
+        Category renamed = category(2L, surveillance, "IP камери (нови)", null, "ip-kameri-novi", "ip-kameri", "200",
+                "videonablyudenie/ip-kameri-novi");
+        Category added = category(12L, alarms, "Сирени", null, "sireni", "sireni", "1200", "signalizatsii/sireni");
+
+        CategoryMatcher updated = matcher.with(renamed).with(added);
+
+        assertEquals(categories.size() + 1, updated.getCategories().size());
+        assertSame(renamed, updated.getCategories().get(1));
+        assertTrue(updated.findByPath("videonablyudenie/ip-kameri").isEmpty());
+        assertEquals(List.of(renamed), updated.findByPath("videonablyudenie/ip-kameri-novi"));
+        assertEquals(List.of(added), updated.findBySlug("sireni"));
+        assertEquals(List.of(ipCameras), matcher.findByPath("videonablyudenie/ip-kameri"));
+    }
+
+    // ===========================================
+    // PATH LOOKUP
+    // ===========================================
+
+    @Test
+    void findCategoryByPathWalksSlugsFromTheRoot() {
+        SyncHelper syncHelper = syncHelper();
+
+        assertSame(ipDome, syncHelper.findCategoryByPath("videonablyudenie/ip-kameri/kupolni-kameri").orElseThrow());
+        assertSame(analogDome,
+                syncHelper.findCategoryByPath("videonablyudenie/analogovi-kameri/kupolni-kameri").orElseThrow());
+        assertSame(sensors, syncHelper.findCategoryByPath("signalizatsii/datchitsi").orElseThrow());
+        assertSame(valiOnly, syncHelper.findCategoryByPath("detectors").orElseThrow());
+    }
+
+    @Test
+    void findCategoryByPathIgnoresBlankSegments() {
+        SyncHelper syncHelper = syncHelper();
+
+        assertSame(ipCameras, syncHelper.findCategoryByPath("videonablyudenie//ip-kameri").orElseThrow());
+        assertSame(ipCameras, syncHelper.findCategoryByPath(" videonablyudenie / ip-kameri ").orElseThrow());
+    }
+
+    @Test
+    void findCategoryByPathNeedsEveryLevel() {
+        SyncHelper syncHelper = syncHelper();
+
+        assertTrue(syncHelper.findCategoryByPath("ip-kameri").isEmpty());
+        assertTrue(syncHelper.findCategoryByPath("VIDEONABLYUDENIE").isEmpty());
+        assertTrue(syncHelper.findCategoryByPath("missing/ip-kameri").isEmpty());
+        assertTrue(syncHelper.findCategoryByPath(" ").isEmpty());
+        assertTrue(syncHelper.findCategoryByPath(null).isEmpty());
+    }
+
+    // ===========================================
+    // HELPERS
+    // ===========================================
+
+    private SyncHelper syncHelper() {
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(categories);
+        return new SyncHelper(categoryRepository);
+    }
+
+    private static Category category(Long id, Category parent, String nameBg, String nameEn, String slug,
+                                     String tekraSlug, String tekraId, String categoryPath) {
+        Category category = new Category();
+        category.setId(id);
+        category.setParent(parent);
+        category.setNameBg(nameBg);
+        category.setNameEn(nameEn);
+        category.setSlug(slug);
+        category.setTekraSlug(tekraSlug);
+        category.setTekraId(tekraId);
+        category.setCategoryPath(categoryPath);
+        return category;
+    }
+}
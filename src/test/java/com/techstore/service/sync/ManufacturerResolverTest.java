@@ -0,0 +1,148 @@
+package com.techstore.service.sync;
+
+import com.techstore.entity.Manufacturer;
+import com.techstore.repository.ManufacturerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ManufacturerResolver} against a mocked repository.
+ */
+class ManufacturerResolverTest {
+
+    private static final Function<String, Manufacturer> FACTORY = name -> {
+        Manufacturer manufacturer = new Manufacturer();
+        manufacturer.setName(name);
+        return manufacturer;
+    };
+
+    private ManufacturerRepository manufacturerRepository;
+    private ManufacturerResolver resolver;
+    private List<Manufacturer> saved;
+
+    private Manufacturer hikvision;
+    private Manufacturer hikvisionUpper;
+    private Manufacturer dahua;
+    private Manufacturer ajax;
+    private Manufacturer uniview;
+
+    @BeforeEach
+    void setUp() {
+        hikvision = manufacturer(1L, "Hikvision", 100L);
+        hikvisionUpper = manufacturer(2L, "HIKVISION", 101L);
+        dahua = manufacturer(3L, "Dahua  Technology", 100L);
+        ajax = manufacturer(4L, "Ajax", null);
+        uniview = manufacturer(7L, "Юниview", null);
+
+        manufacturerRepository = mock(ManufacturerRepository.class);
+        when(manufacturerRepository.findAll()).thenReturn(List.of(hikvision, hikvisionUpper, dahua, ajax,
+                manufacturer(5L, "", 102L), manufacturer(6L, null, 103L), uniview));
+
+        saved = new ArrayList<>();
+        // the resolver clears its queue after the call, so the argument is copied
+        doAnswer(invocation -> {
+            saved.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        }).when(manufacturerRepository).saveAll(anyList());
+
+        resolver = new ManufacturerResolver(manufacturerRepository);
+    }
+
+    @Test
+    void indexIsLoadedOnceUntilReset() {
+        resolver.findByName("Ajax");
+        resolver.findByExternalId(100L);
+        resolver.resolveOrCreate("Hikvision", FACTORY);
+        verify(manufacturerRepository, times(1)).findAll();
+
+        resolver.reset();
+        resolver.findByName("Ajax");
+        verify(manufacturerRepository, times(2)).findAll();
+    }
+
+    @Test
+    void findByExternalIdKeepsFirstManufacturerOfDuplicateId() {
+        assertSame(hikvision, resolver.findByExternalId(100L).orElseThrow());
+        assertSame(hikvisionUpper, resolver.findByExternalId(101L).orElseThrow());
+        assertEquals(102L, resolver.findByExternalId(102L).orElseThrow().getExternalId());
+        assertEquals(Optional.empty(), resolver.findByExternalId(999L));
+        assertEquals(Optional.empty(), resolver.findByExternalId(null));
+    }
+
+    @Test
+    void exactNameWinsOverNormalizedName() {
+        assertSame(hikvision, resolver.resolveOrCreate("Hikvision", FACTORY));
+        assertSame(hikvisionUpper, resolver.resolveOrCreate("HIKVISION", FACTORY));
+        assertSame(ajax, resolver.resolveOrCreate("Ajax", FACTORY));
+    }
+
+    @Test
+    void normalizedNameResolvesToFirstMatchingManufacturer() {
+        assertSame(hikvision, resolver.resolveOrCreate("hikvision", FACTORY));
+        assertSame(hikvision, resolver.resolveOrCreate(" Hik-Vision ", FACTORY));
+        assertSame(dahua, resolver.resolveOrCreate("dahua technology", FACTORY));
+        assertSame(dahua, resolver.resolveOrCreate("Dahua Technology", FACTORY));
+        assertSame(ajax, resolver.resolveOrCreate("AJAX", FACTORY));
+        assertSame(uniview, resolver.resolveOrCreate("ЮНИVIEW", FACTORY));
+
+        verify(manufacturerRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void missingManufacturerIsQueuedOnceAndSavedOnFlush() {
+        Manufacturer created = resolver.resolveOrCreate("Axis Communications", FACTORY);
+
+        assertNull(created.getId());
+        assertSame(created, resolver.resolveOrCreate("AXIS  communications!", FACTORY));
+        assertSame(created, resolver.findByName("Axis Communications").orElseThrow());
+
+        assertEquals(1, resolver.flushPending());
+        assertEquals(List.of(created), saved);
+        assertEquals(0, resolver.flushPending());
+    }
+
+    @Test
+    void resetKeepsManufacturersPendingFlush() {
+        Manufacturer created = resolver.resolveOrCreate("Axis Communications", FACTORY);
+
+        resolver.reset();
+
+        assertSame(created, resolver.resolveOrCreate("axis communications", FACTORY));
+        assertEquals(1, resolver.flushPending());
+        assertEquals(List.of(created), saved);
+    }
+
+    @Test
+    void normalizeNameLowercasesCollapsesWhitespaceAndDropsPunctuation() {
+        assertEquals("", ManufacturerResolver.normalizeName(null));
+        assertEquals("", ManufacturerResolver.normalizeName(""));
+        assertEquals("dahua technology", ManufacturerResolver.normalizeName("  Dahua   Technology "));
+        assertEquals("hikvision", ManufacturerResolver.normalizeName("Hik-Vision"));
+        assertEquals("юниview", ManufacturerResolver.normalizeName("ЮНИVIEW"));
+        assertEquals("ab ltd", ManufacturerResolver.normalizeName("A&B Ltd."));
+    }
+
+    private static Manufacturer manufacturer(Long id, String name, Long externalId) {
+        Manufacturer manufacturer = new Manufacturer();
+        manufacturer.setId(id);
+        manufacturer.setName(name);
+        manufacturer.setExternalId(externalId);
+        return manufacturer;
+    }
+}
@@ -0,0 +1,206 @@
+package com.techstore.service.sync;
+
+import com.techstore.entity.Category;
+import com.techstore.entity.Parameter;
+import com.techstore.entity.ParameterOption;
+import com.techstore.repository.ParameterRepository;
+import com.techstore.repository.ParameterSyncWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ParameterDictionary} against mocked repositories: parameter lookups within a category, and option resolution
+ * by exact Bulgarian name, then normalized Bulgarian or English value in option order, then a new option.
+ */
+class ParameterDictionaryTest {
+
+    private static final Long CATEGORY_ID = 10L;
+
+    private ParameterRepository parameterRepository;
+    private ParameterSyncWriter parameterSyncWriter;
+    private ParameterDictionary dictionary;
+
+    private Parameter resolution;
+    private Parameter nightVision;
+    private Parameter duplicateName;
+    private ParameterOption fullHd;
+    private ParameterOption fourMp;
+    private ParameterOption fullHdSpaced;
+    private ParameterOption eightMp;
+    private ParameterOption yes;
+    private ParameterOption no;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setId(CATEGORY_ID);
+
+        resolution = parameter(1L, category, "resolution", "Резолюция", 501L);
+        fullHd = option(resolution, 11L, "Full HD", "Full HD", 2, 5011L);
+        fourMp = option(resolution, 12L, "4 MP", "4 MP", 0, 5012L);
+        fullHdSpaced = option(resolution, 13L, "full  hd ", "1080p", 1, 5013L);
+        eightMp = option(resolution, 14L, "8 MP", "4K", null, 5014L);
+
+        nightVision = parameter(2L, category, "night_vision", "Нощно виждане", 502L);
+        yes = option(nightVision, 21L, "Да", "Yes", 0, 5021L);
+        no = option(nightVision, 22L, "Не", "No", 1, 5022L);
+
+        duplicateName = parameter(3L, category, "resolution_alt", "Резолюция", 503L);
+
+        parameterRepository = mock(ParameterRepository.class);
+        parameterSyncWriter = mock(ParameterSyncWriter.class);
+        when(parameterRepository.findByCategoryIdWithOptions(CATEGORY_ID))
+                .thenReturn(List.of(resolution, nightVision, duplicateName));
+        dictionary = new ParameterDictionary(parameterRepository, parameterSyncWriter);
+    }
+
+    @Test
+    void categoryIsLoadedOnce() {
+        dictionary.findByTekraKey(CATEGORY_ID, "resolution");
+        dictionary.findByNameBg(CATEGORY_ID, "Нощно виждане");
+        dictionary.findOrCreateOption(resolution, "4 MP");
+
+        verify(parameterRepository, times(1)).findByCategoryIdWithOptions(CATEGORY_ID);
+    }
+
+    @Test
+    void newOptionIsQueuedUntilFlushed() {
+        List<ParameterOption> inserted = new ArrayList<>();
+        // the dictionary clears its queue after the call, so the argument is copied
+        doAnswer(invocation -> inserted.addAll(invocation.getArgument(0)))
+                .when(parameterSyncWriter).insertOptions(anyList());
+
+        ParameterOption created = dictionary.findOrCreateOption(nightVision, "Частично");
+
+        assertNull(created.getId());
+        assertEquals(2, created.getOrder());
+        assertSame(created, dictionary.findOrCreateOption(nightVision, "частично "));
+        verifyNoInteractions(parameterSyncWriter);
+
+        assertEquals(1, dictionary.flushPendingOptions());
+        assertEquals(1, inserted.size());
+        assertSame(created, inserted.get(0));
+        assertEquals(0, dictionary.flushPendingOptions());
+    }
+
+    @Test
+    void optionOfUnknownParameterIsResolvedFromItsOwnOptions() {
+        Category otherCategory = new Category();
+        otherCategory.setId(20L);
+        Parameter unknown = parameter(9L, otherCategory, "zoom", "Зуум", null);
+        ParameterOption tenTimes = option(unknown, 91L, "10x", "10x", 0, null);
+        when(parameterRepository.findByCategoryIdWithOptions(20L)).thenReturn(List.of());
+
+        assertSame(tenTimes, dictionary.findOrCreateOption(unknown, "10X"));
+    }
+
+    @Test
+    void parametersAreFoundByTekraKeyNameAndExternalId() {
+        assertSame(resolution, dictionary.findByTekraKey(CATEGORY_ID, "resolution").orElseThrow());
+        assertSame(duplicateName, dictionary.findByTekraKey(CATEGORY_ID, "resolution_alt").orElseThrow());
+        assertEquals(Optional.empty(), dictionary.findByTekraKey(CATEGORY_ID, "missing"));
+
+        // the first of two parameters with the same name wins
+        assertSame(resolution, dictionary.findByNameBg(CATEGORY_ID, "Резолюция").orElseThrow());
+        assertSame(nightVision, dictionary.findByNameBg(CATEGORY_ID, "Нощно виждане").orElseThrow());
+        assertEquals(Optional.empty(), dictionary.findByNameBg(CATEGORY_ID, "резолюция"));
+
+        assertSame(duplicateName, dictionary.findByExternalId(CATEGORY_ID, 503L).orElseThrow());
+        assertEquals(Optional.empty(), dictionary.findByExternalId(CATEGORY_ID, 999L));
+    }
+
+    @Test
+    void optionsAreFoundByExternalId() {
+        assertSame(fullHd, dictionary.findOptionByExternalId(resolution, 5011L).orElseThrow());
+        assertSame(yes, dictionary.findOptionByExternalId(nightVision, 5021L).orElseThrow());
+        assertEquals(Optional.empty(), dictionary.findOptionByExternalId(resolution, 5021L));
+    }
+
+    @Test
+    void exactBulgarianNameWinsOverNormalizedValue() {
+        assertSame(fullHd, dictionary.findOrCreateOption(resolution, "Full HD"));
+        assertSame(fullHdSpaced, dictionary.findOrCreateOption(resolution, "full  hd "));
+        assertSame(yes, dictionary.findOrCreateOption(nightVision, "Да"));
+    }
+
+    @Test
+    void normalizedValueMatchesFirstOptionInOptionOrder() {
+        // "full  hd " (order 1) comes before "Full HD" (order 2)
+        assertSame(fullHdSpaced, dictionary.findOrCreateOption(resolution, "full hd"));
+        assertSame(fullHdSpaced, dictionary.findOrCreateOption(resolution, "FULL  HD"));
+        assertSame(fourMp, dictionary.findOrCreateOption(resolution, " 4 mp"));
+        assertSame(yes, dictionary.findOrCreateOption(nightVision, "да "));
+    }
+
+    @Test
+    void normalizedValueMatchesEnglishName() {
+        assertSame(fullHdSpaced, dictionary.findOrCreateOption(resolution, "1080P"));
+        // no order sorts last
+        assertSame(eightMp, dictionary.findOrCreateOption(resolution, "4k"));
+        assertSame(yes, dictionary.findOrCreateOption(nightVision, "yes"));
+        assertSame(no, dictionary.findOrCreateOption(nightVision, "NO"));
+    }
+
+    @Test
+    void createdOptionTakesNextOrderAndValueAsBothNames() {
+        ParameterOption created = dictionary.findOrCreateOption(resolution, "12 MP");
+
+        assertEquals(4, created.getOrder());
+        assertEquals("12 MP", created.getNameBg());
+        assertEquals("12 MP", created.getNameEn());
+        assertSame(resolution, created.getParameter());
+        assertEquals(5, dictionary.findOrCreateOption(resolution, "16 MP").getOrder());
+    }
+
+    @Test
+    void normalizeValueLowercasesTrimsAndCollapsesWhitespace() {
+        assertEquals("", ParameterDictionary.normalizeValue(null));
+        assertEquals("", ParameterDictionary.normalizeValue(""));
+        assertEquals("full hd", ParameterDictionary.normalizeValue("  Full   HD "));
+        assertEquals("да", ParameterDictionary.normalizeValue("ДА"));
+        assertEquals("4 mp", ParameterDictionary.normalizeValue("4\tMP"));
+        assertEquals("wi-fi 802.11n", ParameterDictionary.normalizeValue("Wi-Fi 802.11n"));
+    }
+
+    // ===========================================
+    // HELPERS
+    // ===========================================
+
+    private static Parameter parameter(Long id, Category category, String tekraKey, String nameBg, Long externalId) {
+        Parameter parameter = new Parameter();
+        parameter.setId(id);
+        parameter.setCategory(category);
+        parameter.setTekraKey(tekraKey);
+        parameter.setNameBg(nameBg);
+        parameter.setExternalId(externalId);
+        return parameter;
+    }
+
+    private static ParameterOption option(Parameter parameter, Long id, String nameBg, String nameEn, Integer order,
+                                          Long externalId) {
+        ParameterOption option = new ParameterOption();
+        option.setId(id);
+        option.setParameter(parameter);
+        option.setNameBg(nameBg);
+        option.setNameEn(nameEn);
+        option.setOrder(order);
+        option.setExternalId(externalId);
+        parameter.getOptions().add(option);
+        return option;
+    }
+}